@@ -1,13 +1,35 @@
 package managers;
 
 import managers.historymanager.HistoryManager;
-import managers.historymanager.inmemory.InMemoryHistoryManagerImpl;
+import managers.historymanager.analytics.ViewFrequencyTracker;
+import managers.historymanager.analytics.ViewTrackingHistoryManager;
+import managers.historymanager.concurrent.ConcurrentHistoryManagerImpl;
+import managers.historymanager.session.SessionHistoryManager;
 import managers.taskmanager.TaskManager;
 import managers.taskmanager.http.HttpTaskManager;
+import managers.taskmanager.lsm.LsmTaskManagerImpl;
 import presenter.server.KVServer;
 
+import java.nio.file.Path;
+import java.time.Duration;
+
 public class Managers {
-    private static final HistoryManager historyManager = new InMemoryHistoryManagerImpl();
+    private static final int SESSION_HISTORY_MAX_SIZE = 1_000;
+    private static final int HISTORY_MAX_TOTAL_SIZE = 100_000;
+    private static final Duration SESSION_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    private static final int HOT_TASKS_MAX_SIZE = 100;
+    private static final int VIEWS_SKETCH_WIDTH = 4096;
+    private static final int VIEWS_SKETCH_DEPTH = 4;
+    private static final Duration VIEWS_HALF_LIFE = Duration.ofHours(1);
+    private static final ViewFrequencyTracker viewFrequencyTracker = new ViewFrequencyTracker(
+            HOT_TASKS_MAX_SIZE, VIEWS_SKETCH_WIDTH, VIEWS_SKETCH_DEPTH, VIEWS_HALF_LIFE
+    );
+    private static final SessionHistoryManager historyManager = new SessionHistoryManager(
+            () -> new ViewTrackingHistoryManager(
+                    new ConcurrentHistoryManagerImpl(SESSION_HISTORY_MAX_SIZE), viewFrequencyTracker
+            ),
+            SESSION_HISTORY_MAX_SIZE, HISTORY_MAX_TOTAL_SIZE, SESSION_IDLE_TIMEOUT
+    );
     private static final TaskManager taskManager = new HttpTaskManager(
             historyManager, "http://localhost:" + KVServer.PORT
     );
@@ -17,7 +39,19 @@ public class Managers {
         return taskManager;
     }
 
+    public static TaskManager getLsmBacked(Path directory) {
+        return new LsmTaskManagerImpl(historyManager, directory);
+    }
+
     public static HistoryManager getDefaultHistory() {
         return historyManager;
     }
+
+    public static SessionHistoryManager getSessionHistory() {
+        return historyManager;
+    }
+
+    public static ViewFrequencyTracker getViewFrequencyTracker() {
+        return viewFrequencyTracker;
+    }
 }
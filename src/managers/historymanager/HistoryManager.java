@@ -8,7 +8,17 @@ public interface HistoryManager {
 
     void add(Task task);
 
+    //просмотр, восстановленный из хранилища, а не сделанный пользователем
+    default void restore(Task task) {
+        add(task);
+    }
+
     void remove(int id);
 
     List<Task> getHistory();
+
+    default List<Task> getHistory(int limit) {
+        List<Task> history = getHistory();
+        return history.subList(Math.max(0, history.size() - Math.max(0, limit)), history.size());
+    }
 }
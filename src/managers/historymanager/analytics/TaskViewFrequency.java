@@ -0,0 +1,27 @@
+package managers.historymanager.analytics;
+
+public class TaskViewFrequency {
+    private final int taskId;
+    private final double views;
+
+    public TaskViewFrequency(int taskId, double views) {
+        this.taskId = taskId;
+        this.views = views;
+    }
+
+    public int getTaskId() {
+        return taskId;
+    }
+
+    public double getViews() {
+        return views;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskViewFrequency{" +
+                "taskId=" + taskId +
+                ", views=" + views +
+                '}';
+    }
+}
@@ -0,0 +1,134 @@
+package managers.historymanager.analytics;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Collectors;
+
+public class ViewFrequencyTracker {
+    private static final int[] HASH_SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F, 0x165667B1, 0xD3A2646C};
+    private static final double MAX_VIEW_WEIGHT = 1e100;
+
+    //счетчики хранятся как биты double и увеличиваются CAS, просмотры разных задач не ждут друг друга
+    private final AtomicLongArray[] sketch;
+    private final int widthMask;
+    private final int maxHotTasks;
+    private final double decayPerMilli;
+    private final Map<Integer, Double> hotTasks = new ConcurrentHashMap<>();
+    //пересчет весов меняет все счетчики сразу, просмотры на это время ждут
+    private final StampedLock rescaleLock = new StampedLock();
+    //вытеснение из списка горячих задач идет под отдельной блокировкой
+    private final Object hotTasksLock = new Object();
+    private volatile long epochMillis = System.currentTimeMillis();
+    //нижняя граница просмотров самой холодной задачи: просмотры горячих задач только растут
+    private volatile double coldestHotTaskViews;
+
+    public ViewFrequencyTracker(int maxHotTasks, int sketchWidth, int sketchDepth, Duration halfLife) {
+        if (maxHotTasks < 1 || sketchWidth < 1 || sketchDepth < 1 || sketchDepth > HASH_SEEDS.length)
+            throw new IllegalArgumentException("Некорректные параметры счетчика просмотров");
+        int width = Integer.highestOneBit(sketchWidth * 2 - 1);
+        this.sketch = new AtomicLongArray[sketchDepth];
+        for (int row = 0; row < sketchDepth; row++)
+            sketch[row] = new AtomicLongArray(width);
+        this.widthMask = width - 1;
+        this.maxHotTasks = maxHotTasks;
+        this.decayPerMilli = Math.log(2) / Math.max(1, halfLife.toMillis());
+    }
+
+    public void recordView(int taskId) {
+        //вместо уменьшения всех счетчиков со временем растет вес нового просмотра
+        if (viewWeight(System.currentTimeMillis()) > MAX_VIEW_WEIGHT)
+            rescaleIfNeeded();
+        long stamp = rescaleLock.readLock();
+        try {
+            double weight = viewWeight(System.currentTimeMillis());
+            double views = Double.MAX_VALUE;
+            for (int row = 0; row < sketch.length; row++)
+                views = Math.min(views, add(sketch[row], column(row, taskId), weight));
+            updateHotTasks(taskId, views);
+        } finally {
+            rescaleLock.unlockRead(stamp);
+        }
+    }
+
+    public void forget(int taskId) {
+        //удаление только повышает минимум, граница самой холодной задачи остается верной
+        hotTasks.remove(taskId);
+    }
+
+    public List<TaskViewFrequency> getHotTasks(int limit) {
+        long stamp = rescaleLock.readLock();
+        try {
+            double weight = viewWeight(System.currentTimeMillis());
+            return hotTasks.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed())
+                    .limit(Math.max(0, limit))
+                    .map(entry -> new TaskViewFrequency(entry.getKey(), entry.getValue() / weight))
+                    .collect(Collectors.toList());
+        } finally {
+            rescaleLock.unlockRead(stamp);
+        }
+    }
+
+    private void updateHotTasks(int taskId, double views) {
+        if (hotTasks.computeIfPresent(taskId, (id, hotViews) -> Math.max(hotViews, views)) != null)
+            return;
+        if (hotTasks.size() >= maxHotTasks && views <= coldestHotTaskViews)
+            return;
+        synchronized (hotTasksLock) {
+            if (hotTasks.size() < maxHotTasks) {
+                hotTasks.merge(taskId, views, Math::max);
+            } else {
+                Map.Entry<Integer, Double> coldest = findColdestHotTask();
+                if (views > coldest.getValue() && hotTasks.remove(coldest.getKey(), coldest.getValue()))
+                    hotTasks.merge(taskId, views, Math::max);
+            }
+            if (hotTasks.size() >= maxHotTasks)
+                coldestHotTaskViews = findColdestHotTask().getValue();
+        }
+    }
+
+    private Map.Entry<Integer, Double> findColdestHotTask() {
+        Map.Entry<Integer, Double> coldest = Map.entry(0, Double.MAX_VALUE);
+        for (Map.Entry<Integer, Double> entry : hotTasks.entrySet())
+            if (entry.getValue() < coldest.getValue())
+                coldest = Map.entry(entry.getKey(), entry.getValue());
+        return coldest;
+    }
+
+    private void rescaleIfNeeded() {
+        long stamp = rescaleLock.writeLock();
+        try {
+            //пересчет мог уже выполнить другой поток
+            double weight = viewWeight(System.currentTimeMillis());
+            if (weight <= MAX_VIEW_WEIGHT)
+                return;
+            for (AtomicLongArray row : sketch)
+                for (int column = 0; column < row.length(); column++)
+                    row.set(column, Double.doubleToRawLongBits(Double.longBitsToDouble(row.get(column)) / weight));
+            hotTasks.replaceAll((taskId, views) -> views / weight);
+            coldestHotTaskViews /= weight;
+            epochMillis = System.currentTimeMillis();
+        } finally {
+            rescaleLock.unlockWrite(stamp);
+        }
+    }
+
+    private static double add(AtomicLongArray row, int column, double weight) {
+        long bits = row.accumulateAndGet(column, Double.doubleToRawLongBits(weight), (current, delta) ->
+                Double.doubleToRawLongBits(Double.longBitsToDouble(current) + Double.longBitsToDouble(delta)));
+        return Double.longBitsToDouble(bits);
+    }
+
+    private double viewWeight(long nowMillis) {
+        return Math.exp((nowMillis - epochMillis) * decayPerMilli);
+    }
+
+    private int column(int row, int taskId) {
+        int hash = (taskId ^ HASH_SEEDS[row]) * 0x9E3779B9;
+        return (hash ^ (hash >>> 15)) & widthMask;
+    }
+}
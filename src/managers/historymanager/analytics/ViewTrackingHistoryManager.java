@@ -0,0 +1,44 @@
+package managers.historymanager.analytics;
+
+import domain.Task;
+import managers.historymanager.HistoryManager;
+
+import java.util.List;
+
+public class ViewTrackingHistoryManager implements HistoryManager {
+    private final HistoryManager historyManager;
+    private final ViewFrequencyTracker viewFrequencyTracker;
+
+    public ViewTrackingHistoryManager(HistoryManager historyManager, ViewFrequencyTracker viewFrequencyTracker) {
+        this.historyManager = historyManager;
+        this.viewFrequencyTracker = viewFrequencyTracker;
+    }
+
+    @Override
+    public void add(Task task) {
+        historyManager.add(task);
+        viewFrequencyTracker.recordView(task.getId());
+    }
+
+    @Override
+    public void restore(Task task) {
+        //просмотр уже был учтен до перезапуска, повторно в частоту он не входит
+        historyManager.restore(task);
+    }
+
+    @Override
+    public void remove(int id) {
+        historyManager.remove(id);
+        viewFrequencyTracker.forget(id);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        return historyManager.getHistory(limit);
+    }
+}
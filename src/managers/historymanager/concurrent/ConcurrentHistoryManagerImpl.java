@@ -0,0 +1,87 @@
+package managers.historymanager.concurrent;
+
+import domain.Task;
+import managers.historymanager.HistoryManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConcurrentHistoryManagerImpl implements HistoryManager {
+    private final ConcurrentNavigableMap<Long, Task> views = new ConcurrentSkipListMap<>();
+    private final Map<Integer, Long> lastViews = new ConcurrentHashMap<>();
+    private final AtomicLong viewSequence = new AtomicLong();
+    private final int maxSize;
+
+    public ConcurrentHistoryManagerImpl() {
+        this(Integer.MAX_VALUE);
+    }
+
+    public ConcurrentHistoryManagerImpl(int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Размер истории должен быть больше нуля");
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public void add(Task task) {
+        long view = viewSequence.incrementAndGet();
+        //просмотр сначала публикуется в журнале, затем становится последним для задачи,
+        //поэтому каждый вытесненный просмотр удаляется ровно тем потоком, который его вытеснил
+        views.put(view, task);
+        Long previousView = lastViews.put(task.getId(), view);
+        if (previousView != null)
+            views.remove(previousView);
+        if (!views.containsKey(view))
+            lastViews.remove(task.getId(), view);
+        evictOldest();
+    }
+
+    @Override
+    public void remove(int id) {
+        Long view = lastViews.remove(id);
+        if (view != null)
+            views.remove(view);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        List<Task> history = new ArrayList<>(lastViews.size());
+        for (Map.Entry<Long, Task> view : views.entrySet()) {
+            if (isLastView(view))
+                history.add(view.getValue());
+        }
+        return history;
+    }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        List<Task> history = new ArrayList<>(Math.max(0, Math.min(limit, lastViews.size())));
+        for (Map.Entry<Long, Task> view : views.descendingMap().entrySet()) {
+            if (history.size() >= limit)
+                break;
+            if (isLastView(view))
+                history.add(view.getValue());
+        }
+        Collections.reverse(history);
+        return history;
+    }
+
+    private boolean isLastView(Map.Entry<Long, Task> view) {
+        return view.getKey().equals(lastViews.get(view.getValue().getId()));
+    }
+
+    private void evictOldest() {
+        while (lastViews.size() > maxSize) {
+            Map.Entry<Long, Task> oldestView = views.pollFirstEntry();
+            if (oldestView == null)
+                return;
+            lastViews.remove(oldestView.getValue().getId(), oldestView.getKey());
+        }
+    }
+}
@@ -6,7 +6,15 @@ import managers.historymanager.HistoryManager;
 import java.util.List;
 
 public class InMemoryHistoryManagerImpl implements HistoryManager {
-    private final TaskLinkedList<Task> history = new TaskLinkedList<>();
+    private final TaskLinkedList<Task> history;
+
+    public InMemoryHistoryManagerImpl() {
+        this(Integer.MAX_VALUE);
+    }
+
+    public InMemoryHistoryManagerImpl(int maxSize) {
+        history = new TaskLinkedList<>(maxSize);
+    }
 
     @Override
     public void add(Task task) {
@@ -22,4 +30,9 @@ public class InMemoryHistoryManagerImpl implements HistoryManager {
     public List<Task> getHistory() {
         return history.getTasks();
     }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        return history.getLastTasks(limit);
+    }
 }
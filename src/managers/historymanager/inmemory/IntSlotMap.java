@@ -0,0 +1,61 @@
+package managers.historymanager.inmemory;
+
+final class IntSlotMap {
+    static final int NO_SLOT = -1;
+
+    private final int[] keys;
+    private final int[] slots;
+    private final boolean[] occupied;
+    private final int mask;
+
+    IntSlotMap(int expectedSize) {
+        int tableSize = Integer.highestOneBit(Math.max(2, expectedSize) * 2 - 1) << 1;
+        keys = new int[tableSize];
+        slots = new int[tableSize];
+        occupied = new boolean[tableSize];
+        mask = tableSize - 1;
+    }
+
+    int get(int key) {
+        for (int i = indexOf(key); occupied[i]; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return slots[i];
+        }
+        return NO_SLOT;
+    }
+
+    void put(int key, int slot) {
+        int i = indexOf(key);
+        while (occupied[i] && keys[i] != key)
+            i = (i + 1) & mask;
+        keys[i] = key;
+        slots[i] = slot;
+        occupied[i] = true;
+    }
+
+    int remove(int key) {
+        int i = indexOf(key);
+        while (occupied[i] && keys[i] != key)
+            i = (i + 1) & mask;
+        if (!occupied[i])
+            return NO_SLOT;
+        int slot = slots[i];
+        //сдвигаем следующие элементы цепочки, чтобы не оставлять надгробий в таблице
+        int gap = i;
+        for (int j = (i + 1) & mask; occupied[j]; j = (j + 1) & mask) {
+            int home = indexOf(keys[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                slots[gap] = slots[j];
+                gap = j;
+            }
+        }
+        occupied[gap] = false;
+        return slot;
+    }
+
+    private int indexOf(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
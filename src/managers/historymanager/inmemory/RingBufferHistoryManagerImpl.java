@@ -0,0 +1,105 @@
+package managers.historymanager.inmemory;
+
+import domain.Task;
+import managers.historymanager.HistoryManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class RingBufferHistoryManagerImpl implements HistoryManager {
+    private final int maxSize;
+    private final int[] ids;
+    private final Task[] tasks;
+    private final IntSlotMap slotsById;
+    private int head;
+    private int usedSlots;
+    private int size;
+
+    public RingBufferHistoryManagerImpl(int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Размер истории должен быть больше нуля");
+        this.maxSize = maxSize;
+        //половина буфера остается под надгробия повторных просмотров, поэтому уплотнение амортизированно O(1)
+        ids = new int[maxSize * 2];
+        tasks = new Task[maxSize * 2];
+        slotsById = new IntSlotMap(maxSize);
+    }
+
+    @Override
+    public void add(Task task) {
+        remove(task.getId());
+        if (size == maxSize)
+            removeSlot(head);
+        if (usedSlots == tasks.length)
+            compact();
+        int slot = slotAt(usedSlots);
+        ids[slot] = task.getId();
+        tasks[slot] = task;
+        slotsById.put(task.getId(), slot);
+        usedSlots++;
+        size++;
+    }
+
+    @Override
+    public void remove(int id) {
+        int slot = slotsById.get(id);
+        if (slot != IntSlotMap.NO_SLOT)
+            removeSlot(slot);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        List<Task> history = new ArrayList<>(size);
+        for (int i = 0; i < usedSlots; i++) {
+            Task task = tasks[slotAt(i)];
+            if (task != null)
+                history.add(task);
+        }
+        return history;
+    }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        List<Task> history = new ArrayList<>(Math.max(0, Math.min(limit, size)));
+        for (int i = usedSlots - 1; i >= 0 && history.size() < limit; i--) {
+            Task task = tasks[slotAt(i)];
+            if (task != null)
+                history.add(task);
+        }
+        Collections.reverse(history);
+        return history;
+    }
+
+    private void removeSlot(int slot) {
+        slotsById.remove(ids[slot]);
+        tasks[slot] = null;
+        size--;
+        while (usedSlots > 0 && tasks[head] == null) {
+            head = (head + 1) % tasks.length;
+            usedSlots--;
+        }
+    }
+
+    private void compact() {
+        int target = 0;
+        for (int i = 0; i < usedSlots; i++) {
+            int slot = slotAt(i);
+            Task task = tasks[slot];
+            if (task == null)
+                continue;
+            int targetSlot = slotAt(target++);
+            if (targetSlot != slot) {
+                ids[targetSlot] = ids[slot];
+                tasks[targetSlot] = task;
+                tasks[slot] = null;
+                slotsById.put(ids[targetSlot], targetSlot);
+            }
+        }
+        usedSlots = target;
+    }
+
+    private int slotAt(int position) {
+        return (head + position) % tasks.length;
+    }
+}
@@ -2,26 +2,31 @@ package managers.historymanager.inmemory;
 
 import domain.Task;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 final class TaskLinkedList<T extends Task> {
 
     private final Map<Integer, TaskNode<T>> history = new HashMap<>();
+    private final int maxSize;
     private TaskNode<T> first;
     private TaskNode<T> last;
 
+    TaskLinkedList(int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Размер истории должен быть больше нуля");
+        this.maxSize = maxSize;
+    }
+
     public void add(T task) {
         linkLast(task);
+        if (history.size() > maxSize)
+            removeNode(first);
     }
 
     public void removeTask(int taskId) {
-        if (history.containsKey(taskId)) {
-            removeNode(history.get(taskId));
-            history.remove(taskId);
-        }
+        TaskNode<T> node = history.get(taskId);
+        if (node != null)
+            removeNode(node);
     }
 
     public List<T> getTasks() {
@@ -34,23 +39,28 @@ final class TaskLinkedList<T extends Task> {
         return tasks;
     }
 
+    public List<T> getLastTasks(int limit) {
+        int size = Math.min(Math.max(0, limit), history.size());
+        List<T> tasks = new ArrayList<>(size);
+        TaskNode<T> cur = last;
+        while (cur != null && tasks.size() < size) {
+            tasks.add(cur.task);
+            cur = cur.prev;
+        }
+        Collections.reverse(tasks);
+        return tasks;
+    }
+
     private void linkLast(T task) {
-        if (history.containsKey(task.getId()))
-            removeNode(history.get(task.getId()));
-        TaskNode<T> newNode;
-        if (first == null) {
-            newNode = new TaskNode<>(task, null, null);
+        TaskNode<T> currNode = history.get(task.getId());
+        if (currNode != null)
+            removeNode(currNode);
+        TaskNode<T> newNode = new TaskNode<>(task, null, last);
+        if (last == null)
             first = newNode;
-        } else if (last == null) {
-            newNode = new TaskNode<>(task, null, first);
-            last = newNode;
-            first.next = newNode;
-        } else {
-            TaskNode<T> currLast = last;
-            newNode = new TaskNode<>(task, null, currLast);
-            currLast.next = newNode;
-            last = newNode;
-        }
+        else
+            last.next = newNode;
+        last = newNode;
         history.put(task.getId(), newNode);
     }
 
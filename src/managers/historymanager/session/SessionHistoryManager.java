@@ -0,0 +1,149 @@
+package managers.historymanager.session;
+
+import domain.Task;
+import managers.historymanager.HistoryManager;
+import managers.historymanager.concurrent.ConcurrentHistoryManagerImpl;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+public class SessionHistoryManager implements HistoryManager {
+    public static final String DEFAULT_SESSION = "default";
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ThreadLocal<String> currentSession = ThreadLocal.withInitial(() -> DEFAULT_SESSION);
+    private final Supplier<HistoryManager> sessionHistoryFactory;
+    private final int maxSessionsCount;
+    private final long idleTimeoutMillis;
+
+    public SessionHistoryManager(int maxSessionSize, int maxTotalSize, Duration idleTimeout) {
+        this(() -> new ConcurrentHistoryManagerImpl(maxSessionSize), maxSessionSize, maxTotalSize, idleTimeout);
+    }
+
+    public SessionHistoryManager(Supplier<HistoryManager> sessionHistoryFactory,
+                                 int maxSessionSize, int maxTotalSize, Duration idleTimeout) {
+        if (maxSessionSize < 1 || maxTotalSize < maxSessionSize)
+            throw new IllegalArgumentException("Общий размер истории должен быть не меньше размера истории сессии");
+        this.sessionHistoryFactory = sessionHistoryFactory;
+        this.maxSessionsCount = maxTotalSize / maxSessionSize;
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+    }
+
+    public <T> T callInSession(String sessionId, Supplier<T> action) {
+        String previousSession = currentSession.get();
+        currentSession.set(sessionId);
+        try {
+            return action.get();
+        } finally {
+            currentSession.set(previousSession);
+        }
+    }
+
+    public void runInSession(String sessionId, Runnable action) {
+        callInSession(sessionId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    @Override
+    public void add(Task task) {
+        Session session = getSession(currentSession.get());
+        session.history.add(task);
+        session.changed.set(true);
+    }
+
+    @Override
+    public void restore(Task task) {
+        Session session = getSession(currentSession.get());
+        session.history.restore(task);
+        session.changed.set(true);
+    }
+
+    @Override
+    public void remove(int id) {
+        //удаленные задачи отбрасываются при восстановлении истории,
+        //поэтому удаление просмотра не делает сессию измененной
+        sessions.values().forEach(session -> session.history.remove(id));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        Session session = sessions.get(currentSession.get());
+        if (session == null)
+            return new ArrayList<>();
+        session.touch();
+        return session.history.getHistory();
+    }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        Session session = sessions.get(currentSession.get());
+        if (session == null)
+            return new ArrayList<>();
+        session.touch();
+        return session.history.getHistory(limit);
+    }
+
+    public Set<String> getSessionIds() {
+        return new HashSet<>(sessions.keySet());
+    }
+
+    public Map<String, List<Integer>> drainChangedSessions() {
+        Map<String, List<Integer>> changedSessions = new HashMap<>();
+        sessions.forEach((sessionId, session) -> {
+            if (session.changed.compareAndSet(true, false))
+                changedSessions.put(
+                        sessionId,
+                        session.history.getHistory().stream().map(Task::getId).collect(Collectors.toList())
+                );
+        });
+        return changedSessions;
+    }
+
+    public void evictIdleSessions() {
+        long now = System.currentTimeMillis();
+        sessions.entrySet().removeIf(entry -> !DEFAULT_SESSION.equals(entry.getKey())
+                && now - entry.getValue().lastAccessMillis > idleTimeoutMillis);
+    }
+
+    private Session getSession(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            evictIdleSessions();
+            session = sessions.computeIfAbsent(sessionId, id -> new Session(sessionHistoryFactory.get()));
+            evictLeastRecentlyUsedSessions();
+        }
+        session.touch();
+        return session;
+    }
+
+    private void evictLeastRecentlyUsedSessions() {
+        while (sessions.size() > maxSessionsCount) {
+            Optional<Map.Entry<String, Session>> leastRecentlyUsed = sessions.entrySet().stream()
+                    .filter(entry -> !DEFAULT_SESSION.equals(entry.getKey()))
+                    .min(Comparator.comparingLong(entry -> entry.getValue().lastAccessMillis));
+            if (leastRecentlyUsed.isEmpty())
+                return;
+            sessions.remove(leastRecentlyUsed.get().getKey(), leastRecentlyUsed.get().getValue());
+        }
+    }
+
+    private static class Session {
+        final HistoryManager history;
+        final AtomicBoolean changed = new AtomicBoolean();
+        volatile long lastAccessMillis = System.currentTimeMillis();
+
+        Session(HistoryManager history) {
+            this.history = history;
+        }
+
+        void touch() {
+            lastAccessMillis = System.currentTimeMillis();
+        }
+    }
+}
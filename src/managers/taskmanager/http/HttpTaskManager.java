@@ -6,68 +6,288 @@ import domain.Epic;
 import domain.Subtask;
 import domain.Task;
 import domain.exceptions.ManagerLoadException;
+import domain.exceptions.ManagerSaveException;
 import managers.historymanager.HistoryManager;
+import managers.historymanager.session.SessionHistoryManager;
 import managers.taskmanager.infile.FileBackedTaskManagerImpl;
-import presenter.client.KVTaskClient;
-import presenter.client.KVTaskClientImpl;
+import managers.taskmanager.infile.WriteBehindSettings;
+import presenter.client.*;
 import presenter.config.GsonConfig;
 
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class HttpTaskManager extends FileBackedTaskManagerImpl {
+    private static final long HISTORY_FLUSH_DELAY_MILLIS = 1_000;
+    //точки нет в токенах сессий, поэтому ключ сессии не совпадает с другими ключами хранилища
+    private static final String SESSION_KEY_SEPARATOR = ".";
+
+    private CompressingKVTaskClient compressingClient;
     private KVTaskClient kvTaskClient;
+    private WriteBehindKVTaskClient writeBehindClient;
+    private ScheduledExecutorService historyFlushExecutor;
+    private AtomicBoolean historyFlushScheduled;
+    private Set<String> persistedSessionIds;
+    //ключи записанных задач по id, их список хранится в манифесте
+    private SortedMap<Integer, String> recordKeys;
+    //манифест не записан после изменения списка ключей, запись повторяется при следующем сохранении
+    private boolean manifestDirty;
+    //после загрузки из общих значений все задачи переписываются по своим ключам
+    private boolean rewriteAllRecords;
+    private boolean loading;
 
     public HttpTaskManager(HistoryManager historyManager, String path) {
         super(historyManager, path);
     }
 
+    public HttpTaskManager(HistoryManager historyManager, String path, WriteBehindSettings writeBehindSettings) {
+        this(historyManager, path, writeBehindSettings, false);
+    }
+
+    public HttpTaskManager(HistoryManager historyManager, String path, WriteBehindSettings writeBehindSettings,
+                           boolean compressPayloads) {
+        this(historyManager, path, writeBehindSettings, compressPayloads, null);
+    }
+
+    public HttpTaskManager(HistoryManager historyManager, String path, WriteBehindSettings writeBehindSettings,
+                           boolean compressPayloads, KVWriteBehindSettings kvWriteBehindSettings) {
+        super(historyManager, path, writeBehindSettings);
+        //сжатые значения читаются всегда, сжатие при записи включается после загрузки
+        compressingClient.setCompressing(compressPayloads);
+        //загрузка читает хранилище напрямую, запись через буфер включается после нее
+        if (kvWriteBehindSettings != null) {
+            //манифест и список сессий ссылаются на ключи задач и историй и записываются после них
+            writeBehindClient = new WriteBehindKVTaskClient(compressingClient, kvWriteBehindSettings,
+                    Set.of(Keys.MANIFEST.name(), Keys.HISTORY_SESSIONS.name()));
+            kvTaskClient = writeBehindClient;
+        }
+    }
+
     @Override
-    protected void save() {
-        Gson gson = GsonConfig.getGson();
-        kvTaskClient.put(Keys.TASKS.name(), gson.toJson(getAllTasks()));
-        kvTaskClient.put(Keys.EPICS.name(), gson.toJson(getAllEpics()));
-        kvTaskClient.put(
-                Keys.HISTORY.name(),
-                gson.toJson(historyManager.getHistory().stream().map(Task::getId).collect(Collectors.toList()))
-        );
+    protected void persist() {
+        if (loading)
+            return;
+        //история пишется одновременно с задачами, сохранение завершается после ответа на все запросы
+        CompletableFuture<Void> historySaved = saveHistoryRecords();
+        Map<Integer, Task> changedRecords = drainChangedRecords();
+        try {
+            if (rewriteAllRecords)
+                saveAllRecords();
+            else
+                saveChangedRecords(changedRecords);
+        } catch (ManagerSaveException e) {
+            //незаписанные задачи остаются измененными и записываются при следующем сохранении
+            restoreChangedRecords(changedRecords);
+            throw e;
+        }
+        await(historySaved);
     }
 
     @Override
-    protected void loadFromStorage() {
-        kvTaskClient = new KVTaskClientImpl(this.path);
+    protected boolean tracksChangedRecords() {
+        return true;
+    }
+
+    private void saveChangedRecords(Map<Integer, Task> changedRecords) {
+        //записываются только измененные задачи, манифест - при добавлении или удалении ключей
         Gson gson = GsonConfig.getGson();
-        final int[] initialUniqueId = {0};
+        List<String> removedKeys = new ArrayList<>();
+        List<CompletableFuture<Void>> recordsSaved = new ArrayList<>();
+        //ключи задач меняются только после записи манифеста, значение null - ключ удален
+        Map<Integer, String> changedKeys = new HashMap<>();
+        for (Map.Entry<Integer, Task> changedRecord : changedRecords.entrySet()) {
+            int id = changedRecord.getKey();
+            Task task = changedRecord.getValue();
+            if (task == null) {
+                String key = recordKeys.get(id);
+                if (key != null) {
+                    removedKeys.add(key);
+                    changedKeys.put(id, null);
+                }
+            } else {
+                String key = getRecordKey(task);
+                recordsSaved.add(kvTaskClient.putAsync(key, toRecordJson(gson, task)));
+                if (!key.equals(recordKeys.get(id)))
+                    changedKeys.put(id, key);
+            }
+        }
+        manifestDirty |= !changedKeys.isEmpty();
+        //манифест пишется после задач, на которые ссылается,
+        //удаляемые ключи стираются после манифеста, иначе прерванная запись оставит ссылки на них
+        await(recordsSaved);
+        if (manifestDirty) {
+            SortedMap<Integer, String> newRecordKeys = new TreeMap<>(recordKeys);
+            changedKeys.forEach((id, key) -> {
+                if (key == null)
+                    newRecordKeys.remove(id);
+                else
+                    newRecordKeys.put(id, key);
+            });
+            await(kvTaskClient.putAsync(Keys.MANIFEST.name(), gson.toJson(newRecordKeys.values())));
+            recordKeys = newRecordKeys;
+            manifestDirty = false;
+        }
+        await(removedKeys.stream().map(kvTaskClient::deleteAsync).collect(Collectors.toList()));
+    }
 
-        List<Task> tasks;
-        List<Epic> epics;
-        List<Integer> historyIds;
+    private void saveAllRecords() {
+        Gson gson = GsonConfig.getGson();
+        List<CompletableFuture<Void>> recordsSaved = new ArrayList<>();
+        SortedMap<Integer, String> newRecordKeys = new TreeMap<>();
+        for (Task task : getAllTasksById().values()) {
+            String key = getRecordKey(task);
+            recordsSaved.add(kvTaskClient.putAsync(key, toRecordJson(gson, task)));
+            newRecordKeys.put(task.getId(), key);
+        }
+        await(recordsSaved);
+        await(kvTaskClient.putAsync(Keys.MANIFEST.name(), gson.toJson(newRecordKeys.values())));
+        recordKeys = newRecordKeys;
+        manifestDirty = false;
+        await(List.of(kvTaskClient.deleteAsync(Keys.TASKS.name()), kvTaskClient.deleteAsync(Keys.EPICS.name())));
+        rewriteAllRecords = false;
+    }
 
+    private static String toRecordJson(Gson gson, Task task) {
+        //подзадачи хранятся своими ключами, статус и время эпика вычисляются при загрузке
+        if (task instanceof Epic)
+            return gson.toJson(new Epic(task.getId(), task.getTitle(), task.getDescription()));
+        return gson.toJson(task);
+    }
+
+    private static String getRecordKey(Task task) {
+        return task.getTaskType().name() + "_" + task.getId();
+    }
+
+    private static void await(List<CompletableFuture<Void>> requests) {
+        await(CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])));
+    }
+
+    private static void await(CompletableFuture<Void> request) {
         try {
-            tasks = gson.fromJson(
-                    kvTaskClient.load(Keys.TASKS.name()), new TypeToken<List<Task>>() {
-                    }.getType()
+            request.join();
+        } catch (CompletionException e) {
+            throw new ManagerSaveException(e.getCause().getMessage());
+        }
+    }
+
+    @Override
+    protected CompletableFuture<Void> persistInBackground() {
+        return persistNow();
+    }
+
+    @Override
+    protected void saveHistory(Task viewedTask) {
+        //история сохраняется отдельным ключом с задержкой, все просмотры за интервал записываются одним запросом
+        if (loading)
+            return;
+        if (historyFlushScheduled.compareAndSet(false, true))
+            historyFlushExecutor.schedule(this::flushHistory, HISTORY_FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void flushHistory() {
+        historyFlushScheduled.set(false);
+        await(saveHistoryRecords());
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        historyFlushExecutor.shutdownNow();
+        flushHistory();
+        if (writeBehindClient != null)
+            writeBehindClient.close();
+    }
+
+    public KVWriteBehindStats getKVWriteBehindStats() {
+        return writeBehindClient != null ? writeBehindClient.getStats() : null;
+    }
+
+    public CompletableFuture<Void> flushKVWrites() {
+        return writeBehindClient != null ? writeBehindClient.flush() : CompletableFuture.completedFuture(null);
+    }
+
+    private synchronized CompletableFuture<Void> saveHistoryRecords() {
+        if (historyManager instanceof SessionHistoryManager)
+            return saveSessionsHistory((SessionHistoryManager) historyManager);
+        else
+            return kvTaskClient.putAsync(
+                    Keys.HISTORY.name(),
+                    GsonConfig.getGson().toJson(
+                            historyManager.getHistory().stream().map(Task::getId).collect(Collectors.toList())
+                    )
             );
-        } catch (RuntimeException e) {
-            e.printStackTrace();
-            throw new ManagerLoadException("Не удалось загрузить задачи");
+    }
+
+    private CompletableFuture<Void> saveSessionsHistory(SessionHistoryManager sessionHistoryManager) {
+        Gson gson = GsonConfig.getGson();
+        List<CompletableFuture<Void>> historySaved = new ArrayList<>();
+        sessionHistoryManager.drainChangedSessions().forEach((sessionId, historyIds) -> historySaved.add(
+                kvTaskClient.putAsync(getSessionHistoryKey(sessionId), gson.toJson(historyIds))
+        ));
+        Set<String> sessionIds = sessionHistoryManager.getSessionIds();
+        if (!sessionIds.equals(persistedSessionIds)) {
+            historySaved.add(kvTaskClient.putAsync(Keys.HISTORY_SESSIONS.name(), gson.toJson(sessionIds)));
+            //история вытесненных сессий больше не загружается, ее ключи удаляются
+            for (String sessionId : persistedSessionIds)
+                if (!sessionIds.contains(sessionId))
+                    historySaved.add(kvTaskClient.deleteAsync(getSessionHistoryKey(sessionId)));
+            persistedSessionIds = sessionIds;
         }
+        return CompletableFuture.allOf(historySaved.toArray(new CompletableFuture<?>[0]));
+    }
 
+    @Override
+    protected void loadFromStorage() {
+        compressingClient = new CompressingKVTaskClient(new KVTaskClientImpl(this.path), false);
+        kvTaskClient = compressingClient;
+        historyFlushScheduled = new AtomicBoolean();
+        recordKeys = new TreeMap<>();
+        historyFlushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "history-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        loading = true;
         try {
-            epics = gson.fromJson(
-                    kvTaskClient.load(Keys.EPICS.name()), new TypeToken<List<Epic>>() {
+            loadTasksAndHistory();
+        } finally {
+            loading = false;
+        }
+    }
+
+    private void loadTasksAndHistory() {
+        Gson gson = GsonConfig.getGson();
+        final int[] initialUniqueId = {0};
+
+        List<Task> tasks = new ArrayList<>();
+        List<Epic> epics = new ArrayList<>();
+        List<Integer> historyIds;
+
+        //история запрашивается одновременно с задачами
+        CompletableFuture<String> historyLoad = kvTaskClient.loadAsync(Keys.HISTORY.name());
+        List<String> manifest;
+        try {
+            manifest = gson.fromJson(
+                    kvTaskClient.load(Keys.MANIFEST.name()), new TypeToken<List<String>>() {
                     }.getType()
             );
         } catch (RuntimeException e) {
-            e.printStackTrace();
-            throw new ManagerLoadException("Не удалось загрузить эпики с подзадачами");
+            throw new ManagerLoadException("Не удалось загрузить манифест задач");
         }
+        if (manifest != null)
+            loadRecords(manifest, tasks, epics);
+        else
+            loadLegacyValues(tasks, epics);
 
         try {
             historyIds = gson.fromJson(
-                    kvTaskClient.load(Keys.HISTORY.name()), new TypeToken<List<Integer>>() {
+                    historyLoad.join(), new TypeToken<List<Integer>>() {
                     }.getType()
             );
         } catch (RuntimeException e) {
@@ -75,39 +295,145 @@ public class HttpTaskManager extends FileBackedTaskManagerImpl {
             throw new ManagerLoadException("Не удалось загрузить история просмотров");
         }
 
+        if (historyIds == null)
+            historyIds = new ArrayList<>();
+
         tasks.forEach(task -> {
-            createTask(task);
             if (initialUniqueId[0] < task.getId())
                 initialUniqueId[0] = task.getId();
         });
         epics.forEach(epic -> {
             if (initialUniqueId[0] < epic.getId())
                 initialUniqueId[0] = epic.getId();
-            List<Task> subtasks = epic.getAllRelatedTasks();
-            subtasks.forEach(s -> {
-                s.addRelatedTask(epic);
+            epic.getAllRelatedTasks().forEach(s -> {
                 if (initialUniqueId[0] < s.getId())
                     initialUniqueId[0] = s.getId();
             });
-            createEpic(epic);
         });
+        super.restoreTasks(tasks, epics);
 
         super.setInitialUniqueId(initialUniqueId[0]);
-        setHistory(historyIds);
+        Map<Integer, Task> tasksById = getAllTasksById();
+        restoreHistory(tasksById, historyIds);
+        if (historyManager instanceof SessionHistoryManager)
+            loadSessionsHistory((SessionHistoryManager) historyManager, tasksById);
+    }
+
+    private void loadRecords(List<String> manifest, List<Task> tasks, List<Epic> epics) {
+        Gson gson = GsonConfig.getGson();
+        Map<Integer, Epic> epicsById = new HashMap<>();
+        List<Subtask> subtasks = new ArrayList<>();
+        //все задачи запрашиваются сразу, ответы разбираются в порядке манифеста
+        List<CompletableFuture<String>> recordLoads = manifest.stream()
+                .map(kvTaskClient::loadAsync)
+                .collect(Collectors.toList());
+        for (int i = 0; i < manifest.size(); i++) {
+            String key = manifest.get(i);
+            try {
+                String json = recordLoads.get(i).join();
+                //манифест записывается только после задач, отсутствующая задача означает поврежденное хранилище
+                if (json == null)
+                    throw new ManagerLoadException("Задача " + key + " из манифеста не найдена");
+                switch (Keys.valueOf(key.substring(0, key.lastIndexOf('_')))) {
+                    case TASK:
+                        tasks.add(gson.fromJson(json, Task.class));
+                        break;
+                    case EPIC:
+                        Epic epic = gson.fromJson(json, Epic.class);
+                        epicsById.put(epic.getId(), new Epic(epic.getId(), epic.getTitle(), epic.getDescription()));
+                        break;
+                    case SUBTASK:
+                        subtasks.add(gson.fromJson(json, Subtask.class));
+                        break;
+                    default:
+                        throw new ManagerLoadException("Неизвестный ключ задачи " + key);
+                }
+            } catch (ManagerLoadException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                throw new ManagerLoadException("Не удалось загрузить задачу " + key);
+            }
+            recordKeys.put(Integer.parseInt(key.substring(key.lastIndexOf('_') + 1)), key);
+        }
+        for (Subtask subtask : subtasks) {
+            Epic epic = epicsById.get(subtask.getEpicId());
+            if (epic == null)
+                throw new ManagerLoadException("Эпик " + subtask.getEpicId() + " подзадачи "
+                        + subtask.getId() + " не найден");
+            subtask.addRelatedTask(epic);
+        }
+        epics.addAll(epicsById.values());
+    }
+
+    private void loadLegacyValues(List<Task> tasks, List<Epic> epics) {
+        //прежний формат: все задачи и все эпики с подзадачами в двух значениях
+        Gson gson = GsonConfig.getGson();
+        List<Task> loadedTasks;
+        List<Epic> loadedEpics;
+        CompletableFuture<String> tasksLoad = kvTaskClient.loadAsync(Keys.TASKS.name());
+        CompletableFuture<String> epicsLoad = kvTaskClient.loadAsync(Keys.EPICS.name());
+        try {
+            loadedTasks = gson.fromJson(
+                    tasksLoad.join(), new TypeToken<List<Task>>() {
+                    }.getType()
+            );
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            throw new ManagerLoadException("Не удалось загрузить задачи");
+        }
+
+        try {
+            loadedEpics = gson.fromJson(
+                    epicsLoad.join(), new TypeToken<List<Epic>>() {
+                    }.getType()
+            );
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            throw new ManagerLoadException("Не удалось загрузить эпики с подзадачами");
+        }
+
+        if (loadedTasks != null)
+            tasks.addAll(loadedTasks);
+        if (loadedEpics != null)
+            loadedEpics.forEach(epic -> {
+                epic.getAllRelatedTasks().forEach(s -> s.addRelatedTask(epic));
+                epics.add(epic);
+            });
+        rewriteAllRecords = !tasks.isEmpty() || !epics.isEmpty();
     }
 
-    private void setHistory(List<Integer> historyIds) {
-        List<Task> allTasks = super.getAllTasks();
-        List<Epic> allEpics = super.getAllEpics();
-        List<Subtask> allSubtasks = super.getAllSubtasks();
+    private void loadSessionsHistory(SessionHistoryManager sessionHistoryManager, Map<Integer, Task> tasksById) {
+        Gson gson = GsonConfig.getGson();
+        try {
+            persistedSessionIds = Objects.requireNonNullElse(gson.fromJson(
+                    kvTaskClient.load(Keys.HISTORY_SESSIONS.name()), new TypeToken<Set<String>>() {
+                    }.getType()
+            ), new HashSet<>());
+            Map<String, CompletableFuture<String>> historyLoads = new LinkedHashMap<>();
+            for (String sessionId : persistedSessionIds)
+                if (!SessionHistoryManager.DEFAULT_SESSION.equals(sessionId))
+                    historyLoads.put(sessionId, kvTaskClient.loadAsync(getSessionHistoryKey(sessionId)));
+            for (Map.Entry<String, CompletableFuture<String>> historyLoad : historyLoads.entrySet()) {
+                String sessionId = historyLoad.getKey();
+                List<Integer> historyIds = Objects.requireNonNullElse(gson.fromJson(
+                        historyLoad.getValue().join(), new TypeToken<List<Integer>>() {
+                        }.getType()
+                ), new ArrayList<>());
+                sessionHistoryManager.runInSession(sessionId, () -> restoreHistory(tasksById, historyIds));
+            }
+        } catch (RuntimeException e) {
+            throw new ManagerLoadException("Не удалось загрузить историю просмотров сессий");
+        }
+    }
 
-        Stream.of(allTasks, allEpics, allSubtasks)
-                .flatMap(Collection::stream)
-                .filter(task -> historyIds.contains(task.getId()))
-                .forEach(historyManager::add);
+    private static String getSessionHistoryKey(String sessionId) {
+        if (SessionHistoryManager.DEFAULT_SESSION.equals(sessionId))
+            return Keys.HISTORY.name();
+        else
+            return Keys.HISTORY.name() + SESSION_KEY_SEPARATOR + sessionId;
     }
 
     private enum Keys {
-        TASKS, EPICS, SUBTASKS, HISTORY
+        TASKS, EPICS, SUBTASKS, HISTORY, HISTORY_SESSIONS, MANIFEST, TASK, EPIC, SUBTASK
     }
 }
@@ -0,0 +1,33 @@
+package managers.taskmanager.infile;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+final class AtomicFiles {
+
+    private AtomicFiles() {
+    }
+
+    static void replace(Path source, Path target) throws IOException {
+        //при сбое на диске остается либо прежний, либо новый файл целиком
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static void syncDirectory(Path file) {
+        //переименование становится устойчивым после сброса каталога, не все системы это позволяют
+        try (FileChannel directory = FileChannel.open(file.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            //сброс каталога не поддерживается
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package managers.taskmanager.infile;
+
+import domain.exceptions.ManagerLoadException;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+final class ChecksummedRecords {
+    //запись: crc32 тела восемью строчными hex-символами, пробел, тело, перевод строки
+    private static final int CHECKSUM_LENGTH = 8;
+    private static final char CHECKSUM_SEPARATOR = ' ';
+    private static final char RECORD_SEPARATOR = '\n';
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private ChecksummedRecords() {
+    }
+
+    static String frame(String body) {
+        StringBuilder record = new StringBuilder(CHECKSUM_LENGTH + 2 + body.length());
+        long checksum = checksum(body);
+        for (int shift = (CHECKSUM_LENGTH - 1) * 4; shift >= 0; shift -= 4)
+            record.append(HEX_DIGITS[(int) (checksum >>> shift) & 0xF]);
+        return record.append(CHECKSUM_SEPARATOR).append(body).append(RECORD_SEPARATOR).toString();
+    }
+
+    static Recovered recover(Path path) {
+        if (!Files.exists(path))
+            return new Recovered(new ArrayList<>(), 0);
+        String content;
+        try {
+            content = Files.readString(path, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+        List<String> bodies = new ArrayList<>();
+        int start = 0;
+        //сегмент прежнего формата определяется по первой записи, после перехода на суммы записи без суммы
+        //считаются поврежденными, иначе испорченный заголовок принимался бы за запись прежнего формата
+        boolean legacy = false;
+        while (start < content.length()) {
+            int end = FileBackedTaskMapper.findRecordEnd(content, start);
+            //запись без перевода строки или с неверной суммой недописана при сбое
+            if (end == FileBackedTaskMapper.UNTERMINATED_RECORD || end == content.length())
+                break;
+            String record = content.substring(start, FileBackedTaskMapper.trimLineEnd(content, start, end));
+            boolean framed = isFramed(record);
+            if (start == 0)
+                legacy = !framed;
+            String body;
+            if (framed) {
+                body = unframe(record);
+                //в сегмент прежнего формата дописаны записи с суммами
+                legacy = false;
+            } else {
+                body = legacy ? record : null;
+            }
+            if (body == null)
+                break;
+            bodies.add(body);
+            start = end + 1;
+        }
+        long truncatedBytes = 0;
+        if (start < content.length()) {
+            long validBytes = content.substring(0, start).getBytes(StandardCharsets.UTF_8).length;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                truncatedBytes = channel.size() - validBytes;
+                channel.truncate(validBytes);
+            } catch (IOException e) {
+                throw new ManagerLoadException(e.getMessage());
+            }
+        }
+        return new Recovered(bodies, truncatedBytes);
+    }
+
+    private static String unframe(String record) {
+        String body = record.substring(CHECKSUM_LENGTH + 1);
+        return Long.parseLong(record.substring(0, CHECKSUM_LENGTH), 16) == checksum(body) ? body : null;
+    }
+
+    private static boolean isFramed(String record) {
+        if (record.length() <= CHECKSUM_LENGTH || record.charAt(CHECKSUM_LENGTH) != CHECKSUM_SEPARATOR)
+            return false;
+        for (int i = 0; i < CHECKSUM_LENGTH; i++) {
+            char c = record.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f'))
+                return false;
+        }
+        return true;
+    }
+
+    private static long checksum(String body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    static class Recovered {
+        private final List<String> records;
+        private final long truncatedBytes;
+
+        Recovered(List<String> records, long truncatedBytes) {
+            this.records = records;
+            this.truncatedBytes = truncatedBytes;
+        }
+
+        List<String> getRecords() {
+            return records;
+        }
+
+        long getTruncatedBytes() {
+            return truncatedBytes;
+        }
+    }
+}
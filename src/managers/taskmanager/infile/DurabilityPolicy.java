@@ -0,0 +1,10 @@
+package managers.taskmanager.infile;
+
+public enum DurabilityPolicy {
+    //каждое изменение сразу записывается и сбрасывается на диск
+    EVERY_OP_FSYNC,
+    //изменения за окно записываются одним сбросом на диск, вызывающий ждет записи своей группы
+    GROUP_COMMIT,
+    //изменения за окно записываются в фоне без ожидания и без сброса на диск
+    ASYNC
+}
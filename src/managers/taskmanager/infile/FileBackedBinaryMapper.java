@@ -0,0 +1,189 @@
+package managers.taskmanager.infile;
+
+import domain.*;
+import domain.exceptions.ManagerLoadException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+class FileBackedBinaryMapper {
+    static final int MAGIC = 0x4B42494E;
+    private static final int VERSION = 1;
+    private static final int END_OF_TASKS = 0xFF;
+
+    private FileBackedBinaryMapper() {
+    }
+
+    static boolean isBinary(byte[] head) {
+        return head.length >= Integer.BYTES && ByteBuffer.wrap(head).getInt() == MAGIC;
+    }
+
+    static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    static void writeTask(DataOutputStream out, Task task) throws IOException {
+        //тип, id, статус, название, описание, [начало, длительность], [id эпика]
+        TaskType taskType = task.getTaskType();
+        out.writeByte(taskType.ordinal());
+        writeVarLong(out, zigZag(task.getId()));
+        writeString(out, task.getTitle());
+        writeString(out, task.getDescription());
+        if (taskType == TaskType.EPIC)
+            return;
+        out.writeByte(task.getStatus().ordinal());
+        LocalDateTime startTime = task.getStartTime();
+        if (startTime != null) {
+            out.writeBoolean(true);
+            writeVarLong(out, zigZag(startTime.toEpochSecond(ZoneOffset.UTC)));
+            writeVarLong(out, startTime.getNano());
+        } else {
+            out.writeBoolean(false);
+        }
+        writeVarLong(out, zigZag(task.getDuration()));
+        if (taskType == TaskType.SUBTASK)
+            writeVarLong(out, zigZag(task.getAllRelatedTasks().get(0).getId()));
+    }
+
+    static void writeHistory(DataOutputStream out, List<Task> history) throws IOException {
+        out.writeByte(END_OF_TASKS);
+        writeVarLong(out, history.size());
+        for (Task task : history)
+            writeVarLong(out, zigZag(task.getId()));
+    }
+
+    static List<FileBackedTaskMapper.TaskWrapper> readTasks(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION)
+            throw new ManagerLoadException("Неизвестная версия двоичного формата файла");
+        List<FileBackedTaskMapper.TaskWrapper> taskWrappers = new ArrayList<>();
+        int typeOrdinal;
+        while ((typeOrdinal = in.readUnsignedByte()) != END_OF_TASKS)
+            taskWrappers.add(readTask(in, toTaskType(typeOrdinal)));
+        return taskWrappers;
+    }
+
+    static List<Integer> readHistory(DataInputStream in) throws IOException {
+        int size = (int) readVarLong(in);
+        List<Integer> historyIds = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            historyIds.add((int) unZigZag(readVarLong(in)));
+        return historyIds;
+    }
+
+    static FileBackedTaskMapper.TaskWrapper readTask(DataInputStream in) throws IOException {
+        return readTask(in, toTaskType(in.readUnsignedByte()));
+    }
+
+    static FileBackedTaskMapper.TaskWrapper readIndexEntry(DataInputStream in) throws IOException {
+        //у задачи читаются только поля расписания, эпики и подзадачи связаны и читаются целиком
+        TaskType taskType = toTaskType(in.readUnsignedByte());
+        if (taskType != TaskType.TASK)
+            return readTask(in, taskType);
+        int id = (int) unZigZag(readVarLong(in));
+        skipString(in);
+        skipString(in);
+        in.skipNBytes(1);
+        LocalDateTime startTime = in.readBoolean()
+                ? LocalDateTime.ofEpochSecond(unZigZag(readVarLong(in)), (int) readVarLong(in), ZoneOffset.UTC)
+                : null;
+        int duration = (int) unZigZag(readVarLong(in));
+        return new FileBackedTaskMapper.TaskWrapper(new LazyTaskStub(id, startTime, duration));
+    }
+
+    private static FileBackedTaskMapper.TaskWrapper readTask(DataInputStream in, TaskType taskType)
+            throws IOException {
+        int id = (int) unZigZag(readVarLong(in));
+        String title = readString(in);
+        String description = readString(in);
+        if (taskType == TaskType.EPIC)
+            return new FileBackedTaskMapper.TaskWrapper(new Epic(id, title, description));
+        TaskStatus status = toTaskStatus(in.readUnsignedByte());
+        LocalDateTime startTime = in.readBoolean()
+                ? LocalDateTime.ofEpochSecond(unZigZag(readVarLong(in)), (int) readVarLong(in), ZoneOffset.UTC)
+                : null;
+        int duration = (int) unZigZag(readVarLong(in));
+        FileBackedTaskMapper.TaskWrapper taskWrapper;
+        if (taskType == TaskType.SUBTASK)
+            taskWrapper = new FileBackedTaskMapper.TaskWrapper(
+                    new Subtask(id, title, description, startTime, duration), (int) unZigZag(readVarLong(in))
+            );
+        else
+            taskWrapper = new FileBackedTaskMapper.TaskWrapper(new Task(id, title, description, startTime, duration));
+        taskWrapper.getTask().setStatus(status);
+        return taskWrapper;
+    }
+
+    private static TaskType toTaskType(int ordinal) {
+        //поврежденный байт типа не должен выходить за пределы перечисления
+        if (ordinal >= TaskType.values().length)
+            throw new ManagerLoadException("Неизвестный тип задачи в двоичном файле: " + ordinal);
+        return TaskType.values()[ordinal];
+    }
+
+    private static TaskStatus toTaskStatus(int ordinal) {
+        if (ordinal >= TaskStatus.values().length)
+            throw new ManagerLoadException("Неизвестный статус задачи в двоичном файле: " + ordinal);
+        return TaskStatus.values()[ordinal];
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        //длина хранится со сдвигом на единицу, ноль означает null
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        long length = readVarLong(in) - 1;
+        if (length < 0)
+            return null;
+        if (length > Integer.MAX_VALUE - 8)
+            throw new ManagerLoadException("Некорректная длина строки в двоичном файле");
+        byte[] bytes = new byte[(int) length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void skipString(DataInputStream in) throws IOException {
+        int length = (int) readVarLong(in) - 1;
+        if (length > 0)
+            in.skipNBytes(length);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new ManagerLoadException("Некорректное число в двоичном файле");
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
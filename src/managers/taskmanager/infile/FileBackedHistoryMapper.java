@@ -1,6 +1,6 @@
 package managers.taskmanager.infile;
 
-import managers.historymanager.HistoryManager;
+import domain.Task;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -13,8 +13,8 @@ class FileBackedHistoryMapper {
     private FileBackedHistoryMapper() {
     }
 
-    static String historyToString(HistoryManager historyManager) {
-        return historyManager.getHistory().stream()
+    static String historyToString(List<Task> history) {
+        return history.stream()
                 .map(task -> String.valueOf(task.getId()))
                 .collect(Collectors.joining(String.valueOf(ARG_SEPARATOR)));
     }
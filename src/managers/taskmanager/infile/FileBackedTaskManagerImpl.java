@@ -8,232 +8,679 @@ import domain.exceptions.*;
 import managers.historymanager.HistoryManager;
 import managers.taskmanager.inmemory.InMemoryTaskManagerImpl;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 public class FileBackedTaskManagerImpl extends InMemoryTaskManagerImpl {
+    private static final int HISTORY_LOG_MAX_RECORDS = 1_000;
+    static final int COMPRESSION_BUFFER_SIZE = 64 * 1024;
+
     protected final String path;
     private final Path filePath;
+    private final Path historyLogPath;
+    private final boolean fsync;
+    private final SnapshotFormat snapshotFormat;
+    private final WriteBehindScheduler writeBehind;
+    //задачи файла из записей, загружаемые при первом обращении, null - загрузка целиком
+    private final LazyTaskStorage lazyTasks;
+    //измененные после последней записи задачи, null - задача удалена
+    private final Map<Integer, Task> dirtyRecords = new HashMap<>();
+    private PagedTaskFile pagedFile;
+    private BufferedWriter historyLogWriter;
+    private int historyLogRecords;
+    //счетчик просмотров не сбрасывается, по нему видно, были ли просмотры после снимка
+    private long historyViews;
+    private SnapshotPipeline snapshotPipeline;
+    private CompletableFuture<Void> lastSave = CompletableFuture.completedFuture(null);
 
     public FileBackedTaskManagerImpl(HistoryManager historyManager, String path) {
-        super(historyManager);
+        this(historyManager, path, null);
+    }
+
+    public FileBackedTaskManagerImpl(HistoryManager historyManager, String path,
+                                     WriteBehindSettings writeBehindSettings) {
+        this(historyManager, path, writeBehindSettings, SnapshotFormat.csv());
+    }
+
+    public FileBackedTaskManagerImpl(HistoryManager historyManager, String path,
+                                     WriteBehindSettings writeBehindSettings, SnapshotFormat snapshotFormat) {
+        this(historyManager, path, writeBehindSettings, snapshotFormat, snapshotFormat.createTaskStorage());
+    }
+
+    private FileBackedTaskManagerImpl(HistoryManager historyManager, String path,
+                                      WriteBehindSettings writeBehindSettings, SnapshotFormat snapshotFormat,
+                                      Map<Integer, Task> tasks) {
+        super(historyManager, tasks);
+        this.lazyTasks = tasks instanceof LazyTaskStorage ? (LazyTaskStorage) tasks : null;
         this.path = path;
         filePath = Path.of(path);
+        historyLogPath = Path.of(path + ".history");
+        fsync = writeBehindSettings != null && writeBehindSettings.getDurabilityPolicy() != DurabilityPolicy.ASYNC;
+        this.snapshotFormat = snapshotFormat;
         loadFromStorage();
+        //загруженное состояние уже сохранено, отложенная запись включается после загрузки
+        //при записи на каждую операцию снимок пишется синхронно, планировщик не нужен
+        writeBehind = writeBehindSettings != null
+                && writeBehindSettings.getDurabilityPolicy() != DurabilityPolicy.EVERY_OP_FSYNC
+                ? new WriteBehindScheduler(writeBehindSettings, this::persistInBackground) : null;
+    }
+
+    @Override
+    public synchronized List<Task> getAllTasks() {
+        return super.getAllTasks();
     }
 
     @Override
     public void removeAllTasks() {
-        super.removeAllTasks();
-        save();
+        mutate(() -> {
+            List<Task> removedTasks = getAllTasks();
+            super.removeAllTasks();
+            markRemoved(removedTasks);
+        });
     }
 
     @Override
-    public Task getTask(int id) throws TaskNotFoundException {
+    public synchronized Task getTask(int id) throws TaskNotFoundException {
         Task task = super.getTask(id);
-        save();
+        saveHistory(task);
         return task;
     }
 
     @Override
     public void createTask(Task task) throws CreateTaskException, OverlappingTaskTimeException {
-        super.createTask(task);
-        save();
+        mutate(() -> {
+            super.createTask(task);
+            markChanged(task);
+        });
     }
 
     @Override
     public void updateTask(Task task) throws TaskNotFoundException, OverlappingTaskTimeException {
-        super.updateTask(task);
-        save();
+        mutate(() -> {
+            super.updateTask(task);
+            markChanged(task);
+        });
     }
 
     @Override
     public void removeTask(int id) throws TaskNotFoundException {
-        super.removeTask(id);
-        save();
+        mutate(() -> {
+            super.removeTask(id);
+            markRemoved(id);
+        });
     }
 
     @Override
     public void removeAllEpics() {
-        super.removeAllEpics();
-        save();
+        mutate(() -> {
+            List<Epic> removedEpics = getAllEpics();
+            super.removeAllEpics();
+            removedEpics.forEach(this::markRemovedWithSubtasks);
+        });
     }
 
     @Override
-    public Epic getEpic(int id) throws TaskNotFoundException {
+    public synchronized Epic getEpic(int id) throws TaskNotFoundException {
         Epic epic = super.getEpic(id);
-        save();
+        saveHistory(epic);
         return epic;
     }
 
     @Override
     public void createEpic(Epic epic) throws CreateTaskException {
-        super.createEpic(epic);
-        save();
+        mutate(() -> {
+            super.createEpic(epic);
+            markChanged(epic);
+            epic.getAllRelatedTasks().forEach(this::markChanged);
+        });
     }
 
     @Override
     public void updateEpic(Epic epic) throws TaskNotFoundException {
-        super.updateEpic(epic);
-        save();
+        mutate(() -> {
+            super.updateEpic(epic);
+            markChanged(findEpic(epic.getId()));
+        });
     }
 
     @Override
     public void removeEpic(int id) throws TaskNotFoundException {
-        super.removeEpic(id);
-        save();
+        mutate(() -> {
+            Epic epic = findEpic(id);
+            super.removeEpic(id);
+            markRemovedWithSubtasks(epic);
+        });
     }
 
     @Override
     public void removeAllSubtasks() {
-        super.removeAllSubtasks();
-        save();
+        mutate(() -> {
+            List<Subtask> removedSubtasks = getAllSubtasks();
+            super.removeAllSubtasks();
+            markRemoved(removedSubtasks);
+        });
     }
 
     @Override
-    public Subtask getSubtask(int id) throws TaskNotFoundException {
+    public synchronized Subtask getSubtask(int id) throws TaskNotFoundException {
         Subtask subtask = super.getSubtask(id);
-        save();
+        saveHistory(subtask);
         return subtask;
     }
 
     @Override
     public void createSubtask(Subtask subtask) throws CreateTaskException, OverlappingTaskTimeException {
-        super.createSubtask(subtask);
-        save();
+        mutate(() -> {
+            super.createSubtask(subtask);
+            markChanged(subtask);
+        });
     }
 
     @Override
     public void updateSubtask(Subtask subtask) throws TaskNotFoundException, OverlappingTaskTimeException {
-        super.updateSubtask(subtask);
-        save();
+        mutate(() -> {
+            super.updateSubtask(subtask);
+            markChanged(subtask);
+        });
     }
 
     @Override
     public void removeSubtask(int id) throws TaskNotFoundException {
-        super.removeSubtask(id);
-        save();
+        mutate(() -> {
+            super.removeSubtask(id);
+            markRemoved(id);
+        });
+    }
+
+    @Override
+    public synchronized List<Task> getPrioritizedTasks() {
+        List<Task> prioritizedTasks = super.getPrioritizedTasks();
+        if (lazyTasks != null)
+            prioritizedTasks.replaceAll(task -> task instanceof LazyTaskStub ? lazyTasks.get(task.getId()) : task);
+        return prioritizedTasks;
+    }
+
+    public WriteBehindStats getWriteBehindStats() {
+        return writeBehind != null ? writeBehind.getStats() : null;
+    }
+
+    public CompletableFuture<Void> flush() {
+        return writeBehind != null ? writeBehind.flush() : CompletableFuture.completedFuture(null);
+    }
+
+    public void close() {
+        if (writeBehind != null)
+            writeBehind.close();
+        SnapshotPipeline pipeline;
+        synchronized (this) {
+            pipeline = snapshotPipeline;
+            snapshotPipeline = null;
+        }
+        //запись последнего снимка завершает колбэк под блокировкой менеджера
+        if (pipeline != null)
+            pipeline.close();
+        synchronized (this) {
+            closeHistoryLog();
+            if (pagedFile != null) {
+                pagedFile.close();
+                pagedFile = null;
+            }
+        }
     }
 
     protected void save() {
-        File currentFile = filePath.toFile();
-        File tmpFile;
+        if (writeBehind == null)
+            persist();
+        else
+            lastSave = writeBehind.submit();
+    }
+
+    protected CompletableFuture<Void> persistInBackground() {
+        return snapshotFormat.persistInBackground(this);
+    }
+
+    CompletableFuture<Void> persistSnapshotInBackground() {
+        SnapshotState state;
+        long viewsInSnapshot;
+        SnapshotPipeline pipeline;
+        synchronized (this) {
+            state = captureSnapshot();
+            viewsInSnapshot = historyViews;
+            if (snapshotPipeline == null)
+                snapshotPipeline = new SnapshotPipeline(bytes -> writeSnapshotFile(out -> out.write(bytes)));
+            pipeline = snapshotPipeline;
+        }
+        //копия кодируется без блокировки менеджера
+        byte[] snapshot = serializeSnapshot(state);
+        //файл пишет поток ввода-вывода, блокировка менеджера на время записи свободна
+        return pipeline.submit(snapshot).thenRun(() -> {
+            synchronized (this) {
+                //просмотры после снимка в него не попали и остаются в журнале
+                if (historyViews == viewsInSnapshot)
+                    truncateHistoryLog();
+                else
+                    compactHistoryLog();
+            }
+        });
+    }
 
+    protected final CompletableFuture<Void> persistNow() {
+        synchronized (this) {
+            persist();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    protected void persist() {
+        snapshotFormat.persist(this);
+    }
+
+    void persistSnapshot() {
+        writeSnapshotFile(this::writeSnapshotTo);
+        truncateHistoryLog();
+    }
+
+    private byte[] serializeSnapshot(SnapshotState state) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
         try {
-            tmpFile = Files.createTempFile(filePath.getParent(), null, ".tmp").toFile();
+            writeSnapshotTo(state, out);
         } catch (IOException e) {
             throw new ManagerSaveException(e.getMessage());
         }
+        return out.toByteArray();
+    }
 
-        try (BufferedWriter fileWriter = new BufferedWriter(new FileWriter(tmpFile))) {
-            List<Task> tasks = getAllTasks();
-            List<Epic> epics = getAllEpics();
+    void writeSnapshotTo(OutputStream out) throws IOException {
+        writeSnapshotTo(new SnapshotState(getAllRecords(false), historyManager.getHistory()), out);
+    }
 
-            fileWriter.write(FileBackedTaskMapper.HEADER_OF_FILE);
-            fileWriter.newLine();
+    SnapshotState captureSnapshot() {
+        //копия задач снимается под блокировкой, кодирование и запись идут без нее
+        return new SnapshotState(getAllRecords(true), historyManager.getHistory());
+    }
 
-            for (Task task : tasks) {
-                fileWriter.write(FileBackedTaskMapper.toString(task));
-                fileWriter.newLine();
-            }
-            for (Epic epic : epics) {
-                fileWriter.write(FileBackedTaskMapper.toString(epic));
-                fileWriter.newLine();
-                for (Task subtask : epic.getAllRelatedTasks()) {
-                    fileWriter.write(FileBackedTaskMapper.toString((Subtask) subtask));
-                    fileWriter.newLine();
+    void writeSnapshotTo(SnapshotState state, OutputStream out) throws IOException {
+        snapshotFormat.writeImage(state, out);
+    }
+
+    private List<Task> getAllRecords(boolean copy) {
+        //порядок записей снимка: задачи, затем каждый эпик со своими подзадачами
+        List<Task> records = new ArrayList<>();
+        for (Task task : getAllTasks())
+            records.add(copy ? copyOf(task) : task);
+        for (Epic epic : getAllEpics()) {
+            Epic epicRecord = copy ? new Epic(epic.getId(), epic.getTitle(), epic.getDescription()) : epic;
+            records.add(epicRecord);
+            for (Task subtask : epic.getAllRelatedTasks()) {
+                if (copy) {
+                    //статус и сроки копии эпика пересчитываются по копиям подзадач
+                    Task subtaskRecord = new Subtask(subtask.getId(), subtask.getTitle(), subtask.getDescription(),
+                            subtask.getStartTime(), subtask.getDuration(), epicRecord);
+                    subtaskRecord.setStatus(subtask.getStatus());
+                    epicRecord.addRelatedTask(subtaskRecord);
+                    records.add(subtaskRecord);
+                } else {
+                    records.add(subtask);
                 }
             }
+        }
+        return records;
+    }
 
-            fileWriter.newLine();
-            String historyString = FileBackedHistoryMapper.historyToString(historyManager);
-            if (!historyString.isBlank())
-                fileWriter.write(historyString);
-            else
-                fileWriter.newLine();
+    private static Task copyOf(Task task) {
+        Task copy = new Task(task.getId(), task.getTitle(), task.getDescription(),
+                task.getStartTime(), task.getDuration());
+        copy.setStatus(task.getStatus());
+        return copy;
+    }
+
+    void writeSnapshotFile(SnapshotWriter snapshotWriter) {
+        Path tmpFile;
+        try {
+            tmpFile = Files.createTempFile(filePath.toAbsolutePath().getParent(), null, ".tmp");
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+
+        try {
+            try (FileOutputStream out = new FileOutputStream(tmpFile.toFile())) {
+                snapshotWriter.writeTo(out);
+                if (fsync)
+                    out.getFD().sync();
+            }
+            AtomicFiles.replace(tmpFile, filePath);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tmpFile);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new ManagerSaveException(
+                    "Не удалось обновить файл " + filePath.getFileName() + ": " + e.getMessage()
+            );
+        }
+        if (fsync)
+            AtomicFiles.syncDirectory(filePath);
+    }
+
+    void persistChangedRecords() {
+        if (pagedFile == null) {
+            //файл другого формата переписывается целиком один раз, дальше меняются только записи
+            writeSnapshotFile(this::writeSnapshotTo);
+            pagedFile = new PagedTaskFile(filePath, fsync);
+            pagedFile.load();
+            compactHistoryLog();
+        } else {
+            dirtyRecords.forEach((id, task) -> {
+                if (task != null)
+                    pagedFile.put(task);
+                else
+                    pagedFile.remove(id);
+            });
+            pagedFile.commit();
+        }
+        dirtyRecords.clear();
+    }
+
+    protected boolean tracksChangedRecords() {
+        return snapshotFormat.isPaged();
+    }
+
+    protected final Map<Integer, Task> drainChangedRecords() {
+        //значение null - задача удалена
+        Map<Integer, Task> changedRecords = new HashMap<>(dirtyRecords);
+        dirtyRecords.clear();
+        return changedRecords;
+    }
+
+    protected final void restoreChangedRecords(Map<Integer, Task> changedRecords) {
+        //изменения, сделанные после выборки, новее возвращаемых
+        changedRecords.forEach(dirtyRecords::putIfAbsent);
+    }
+
+    private void markChanged(Task task) {
+        if (tracksChangedRecords())
+            dirtyRecords.put(task.getId(), task);
+    }
+
+    private void markRemoved(int id) {
+        if (tracksChangedRecords())
+            dirtyRecords.put(id, null);
+    }
+
+    private void markRemoved(List<? extends Task> tasks) {
+        tasks.forEach(task -> markRemoved(task.getId()));
+    }
+
+    private void markRemovedWithSubtasks(Epic epic) {
+        markRemoved(epic.getId());
+        markRemoved(epic.getAllRelatedTasks());
+    }
+
+    protected void saveHistory(Task viewedTask) {
+        //просмотр дописывается в журнал истории, файл с задачами целиком не перезаписывается
+        try {
+            if (historyLogWriter == null)
+                historyLogWriter = Files.newBufferedWriter(
+                        historyLogPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND
+                );
+            historyLogWriter.write(ChecksummedRecords.frame(String.valueOf(viewedTask.getId())));
+            historyLogWriter.flush();
+            historyViews++;
         } catch (IOException e) {
             throw new ManagerSaveException(e.getMessage());
         }
-        if (!currentFile.delete() || !tmpFile.renameTo(currentFile))
-            throw new ManagerSaveException("Не удалось обновить файл " + currentFile.getName());
+        //журнал сжимается до текущей истории, снимок задач при просмотре не переписывается
+        if (++historyLogRecords >= HISTORY_LOG_MAX_RECORDS)
+            compactHistoryLog();
+    }
+
+    protected final void mutate(Runnable mutation) {
+        CompletableFuture<Void> flush;
+        synchronized (this) {
+            mutation.run();
+            save();
+            flush = lastSave;
+        }
+        //ожидание записи группы не должно блокировать других писателей
+        if (writeBehind != null)
+            writeBehind.await(flush);
+    }
+
+    private void closeHistoryLog() {
+        if (historyLogWriter == null)
+            return;
+        try {
+            historyLogWriter.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+        historyLogWriter = null;
+    }
+
+    private void truncateHistoryLog() {
+        closeHistoryLog();
+        try {
+            Files.deleteIfExists(historyLogPath);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+        historyLogRecords = 0;
+    }
+
+    private void compactHistoryLog() {
+        closeHistoryLog();
+        StringBuilder historyLog = new StringBuilder();
+        for (Task task : historyManager.getHistory())
+            historyLog.append(ChecksummedRecords.frame(String.valueOf(task.getId())));
+        try {
+            Path tmpFile = Files.createTempFile(historyLogPath.toAbsolutePath().getParent(), null, ".tmp");
+            Files.writeString(tmpFile, historyLog, StandardCharsets.UTF_8);
+            AtomicFiles.replace(tmpFile, historyLogPath);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+        historyLogRecords = 0;
     }
 
     protected void loadFromStorage() {
         if (!Files.exists(filePath))
             try {
-                Files.createFile(filePath);
-                try (FileWriter fileWriter = new FileWriter(filePath.toFile())) {
-                    fileWriter.write(FileBackedTaskMapper.HEADER_OF_FILE + "\n\n\n");
-                }
+                Files.writeString(filePath, FileBackedTaskMapper.HEADER_OF_FILE + "\n\n\n", StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
             } catch (IOException e) {
-                e.printStackTrace();
+                throw new ManagerLoadException("Не удалось создать файл " + filePath.getFileName() + ": "
+                        + e.getMessage());
             }
-        List<String> lines;
+
+        List<FileBackedTaskMapper.TaskWrapper> allTaskWrappers = new ArrayList<>();
+        List<Integer> historyIds;
         try {
-            lines = Files.readAllLines(filePath);
+            if (PagedTaskFile.isPaged(readFileHead()))
+                historyIds = readPagedFile(allTaskWrappers);
+            else
+                try (InputStream in = openSnapshot()) {
+                    in.mark(Integer.BYTES);
+                    byte[] head = in.readNBytes(Integer.BYTES);
+                    in.reset();
+                    historyIds = FileBackedBinaryMapper.isBinary(head)
+                            ? readBinarySnapshot(in, allTaskWrappers) : readCsvSnapshot(in, allTaskWrappers);
+                }
         } catch (IOException e) {
             throw new ManagerLoadException(e.getMessage());
         }
 
-        List<FileBackedTaskMapper.TaskWrapper> allTaskWrappers = new ArrayList<>(lines.size());
         int initialUniqueId = 0;
-        for (int i = 1; i < lines.size(); i++) {
-            if (lines.get(i).isBlank())
-                break;
-            FileBackedTaskMapper.TaskWrapper taskWrapper = FileBackedTaskMapper.fromString(lines.get(i));
+        for (FileBackedTaskMapper.TaskWrapper taskWrapper : allTaskWrappers)
             if (taskWrapper.getTask().getId() > initialUniqueId)
                 initialUniqueId = taskWrapper.getTask().getId();
-            allTaskWrappers.add(taskWrapper);
-        }
         super.setInitialUniqueId(initialUniqueId);
 
-        allTaskWrappers.stream()
-                .map(FileBackedTaskMapper.TaskWrapper::getTask)
-                .filter(task -> task.getTaskType() == TaskType.TASK)
-                .forEach(super::createTask);
-
-        Map<Integer, Epic> epics = allTaskWrappers.stream()
-                .filter(taskWrapper -> taskWrapper.getTask().getTaskType() == TaskType.EPIC)
-                .map(taskWrapper -> (Epic) taskWrapper.getTask())
-                .collect(Collectors.toMap(Epic::getId, Function.identity()));
-        allTaskWrappers.stream()
-                .filter(taskWrapper -> taskWrapper.getTask().getTaskType() == TaskType.SUBTASK)
-                .forEach(taskWrapper -> {
-                    Subtask subtask = (Subtask) taskWrapper.getTask();
-                    subtask.addRelatedTask(epics.get(taskWrapper.getRelatedTaskId().get()));
-                });
-
-        epics.values().forEach(super::createEpic);
-        loadHistoryFromFile();
-    }
-
-    private void loadHistoryFromFile() {
-        List<Task> allTasks = super.getAllTasks();
-        List<Epic> allEpics = super.getAllEpics();
-        List<Subtask> allSubtasks = super.getAllSubtasks();
-        int skipLinesCount = allTasks.size() + allEpics.size() + allSubtasks.size() + 2; //2 is header line plus delimiter
-
-        try (Stream<String> lines = Files.lines(filePath)) {
-            String line = lines.skip(skipLinesCount).findFirst().get();
-            List<Integer> taskIds = FileBackedHistoryMapper.historyFromString(line);
-            Stream.of(allTasks, allEpics, allSubtasks)
-                    .flatMap(Collection::stream)
-                    .filter(task -> taskIds.contains(task.getId()))
-                    .forEach(historyManager::add);
-        } catch (IOException e) {
-            throw new ManagerLoadException(e.getMessage());
+        List<Task> tasks = new ArrayList<>();
+        Map<Integer, Epic> epics = new HashMap<>();
+        for (FileBackedTaskMapper.TaskWrapper taskWrapper : allTaskWrappers) {
+            Task task = taskWrapper.getTask();
+            if (task.getTaskType() == TaskType.TASK)
+                tasks.add(task);
+            else if (task.getTaskType() == TaskType.EPIC)
+                epics.put(task.getId(), (Epic) task);
         }
+        for (FileBackedTaskMapper.TaskWrapper taskWrapper : allTaskWrappers)
+            if (taskWrapper.getTask().getTaskType() == TaskType.SUBTASK)
+                taskWrapper.getTask().addRelatedTask(epics.get(taskWrapper.getRelatedTaskId()));
+
+        super.restoreTasks(tasks, epics.values());
+        loadHistory(historyIds);
+    }
 
+    private byte[] readFileHead() throws IOException {
+        try (InputStream in = Files.newInputStream(filePath)) {
+            return in.readNBytes(Integer.BYTES);
+        }
+    }
+
+    private InputStream openSnapshot() throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(filePath), COMPRESSION_BUFFER_SIZE);
+        in.mark(2);
+        int magic = in.read() | in.read() << 8;
+        in.reset();
+        return magic == GZIPInputStream.GZIP_MAGIC
+                ? new BufferedInputStream(new GZIPInputStream(in, COMPRESSION_BUFFER_SIZE), COMPRESSION_BUFFER_SIZE)
+                : in;
+    }
+
+    private List<Integer> readPagedFile(List<FileBackedTaskMapper.TaskWrapper> taskWrappers) {
+        PagedTaskFile file = new PagedTaskFile(filePath, fsync);
+        if (lazyTasks != null) {
+            //читается индекс задач, сами задачи декодируются из своих записей при первом обращении
+            taskWrappers.addAll(file.loadIndex());
+            lazyTasks.setLoader(id -> file.read(id).getTask(), this::replacePrioritizedTask);
+        } else {
+            taskWrappers.addAll(file.load());
+        }
+        if (snapshotFormat.isPaged())
+            pagedFile = file;
+        else
+            file.close();
+        //история файла из записей хранится только в журнале просмотров
+        return new ArrayList<>();
+    }
+
+    private List<Integer> readCsvSnapshot(InputStream in, List<FileBackedTaskMapper.TaskWrapper> taskWrappers)
+            throws IOException {
+        //записи разбираются прямо в прочитанном тексте без разбиения на строки
+        String content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        int[] recordStarts = new int[64];
+        int[] recordEnds = new int[64];
+        int recordsCount = 0;
+        List<Integer> historyIds = new ArrayList<>();
+        int start = FileBackedTaskMapper.findRecordEnd(content, 0) + 1;
+        while (start > 0 && start < content.length()) {
+            int end = FileBackedTaskMapper.findRecordEnd(content, start);
+            if (end == FileBackedTaskMapper.UNTERMINATED_RECORD)
+                throw new ManagerLoadException("Незавершенная запись в файле " + filePath.getFileName());
+            int lineEnd = FileBackedTaskMapper.trimLineEnd(content, start, end);
+            if (FileBackedTaskMapper.isBlank(content, start, lineEnd)) {
+                //после пустой строки-разделителя идет строка истории
+                int historyEnd = content.indexOf('\n', end + 1);
+                String history = end + 1 < content.length()
+                        ? content.substring(end + 1, historyEnd < 0 ? content.length() : historyEnd) : "";
+                historyIds = FileBackedHistoryMapper.historyFromString(history.strip());
+                break;
+            }
+            if (recordsCount == recordStarts.length) {
+                recordStarts = Arrays.copyOf(recordStarts, recordsCount * 2);
+                recordEnds = Arrays.copyOf(recordEnds, recordsCount * 2);
+            }
+            recordStarts[recordsCount] = start;
+            recordEnds[recordsCount++] = lineEnd;
+            start = end + 1;
+        }
+        taskWrappers.addAll(FileBackedTaskMapper.fromRecords(content, recordStarts, recordEnds, recordsCount));
+        return historyIds;
+    }
+
+    private List<Integer> readBinarySnapshot(InputStream in, List<FileBackedTaskMapper.TaskWrapper> taskWrappers)
+            throws IOException {
+        DataInputStream dataIn = new DataInputStream(in);
+        taskWrappers.addAll(FileBackedBinaryMapper.readTasks(dataIn));
+        return FileBackedBinaryMapper.readHistory(dataIn);
+    }
+
+    private void loadHistory(List<Integer> historyIds) {
+        Map<Integer, Task> tasksById = getAllTasksById();
+        restoreHistory(tasksById, historyIds);
+        loadHistoryLog(tasksById);
+    }
+
+    protected Map<Integer, Task> getAllTasksById() {
+        Map<Integer, Task> tasksById = new HashMap<>();
+        //незагруженные задачи находятся по id в хранилище, см. findTask
+        List<Task> tasks = lazyTasks == null ? super.getAllTasks() : List.of();
+        Stream.of(tasks, super.getAllEpics(), super.getAllSubtasks())
+                .flatMap(Collection::stream)
+                .forEach(task -> tasksById.put(task.getId(), task));
+        return tasksById;
+    }
+
+    protected void restoreHistory(Map<Integer, Task> tasksById, List<Integer> historyIds) {
+        //просмотры добавляются в записанном порядке, удаленные задачи пропускаются
+        for (int id : historyIds) {
+            Task task = findTask(tasksById, id);
+            if (task != null)
+                historyManager.restore(task);
+        }
+    }
+
+    private void loadHistoryLog(Map<Integer, Task> tasksById) {
+        //журнал ограничен HISTORY_LOG_MAX_RECORDS записями, недописанный хвост отрезается
+        List<String> records = ChecksummedRecords.recover(historyLogPath).getRecords();
+        for (String record : records) {
+            Task task;
+            try {
+                task = findTask(tasksById, Integer.parseInt(record));
+            } catch (NumberFormatException e) {
+                //запись прежнего формата, недописанная при сбое
+                break;
+            }
+            if (task != null)
+                historyManager.restore(task);
+        }
+        historyLogRecords = records.size();
+    }
+
+    private Task findTask(Map<Integer, Task> tasksById, int id) {
+        Task task = tasksById.get(id);
+        return task == null && lazyTasks != null ? lazyTasks.get(id) : task;
+    }
+
+    int getNotLoadedTasksCount() {
+        return lazyTasks != null ? lazyTasks.getNotLoadedCount() : 0;
+    }
+
+    interface SnapshotWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    static final class SnapshotState {
+        final List<Task> records;
+        final List<Task> history;
+
+        private SnapshotState(List<Task> records, List<Task> history) {
+            this.records = records;
+            this.history = history;
+        }
     }
-}
\ No newline at end of file
+}
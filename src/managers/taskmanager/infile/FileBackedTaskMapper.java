@@ -3,11 +3,14 @@ package managers.taskmanager.infile;
 import domain.*;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Optional;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 class FileBackedTaskMapper {
     static final String HEADER_OF_FILE = "id,type,name,status,description,epic,startTime,duration,endTime";
+    private static final int NO_RELATED_TASK_ID = Integer.MIN_VALUE;
+    static final int UNTERMINATED_RECORD = -1;
     private static final int ID_COL_INDEX = 0;
     private static final int TASK_TYPE_COL_INDEX = 1;
     private static final int NAME_COL_INDEX = 2;
@@ -16,93 +19,289 @@ class FileBackedTaskMapper {
     private static final int EPIC_ID_COL_INDEX = 5;
     private static final int START_TIME_COL_INDEX = 6;
     private static final int DURATION_COL_INDEX = 7;
-    private static final int END_TIME_COL_INDEX = 8;
+    private static final int COLUMNS_COUNT = 9;
+    //меньшие снимки быстрее разобрать в одном потоке
+    private static final int PARALLEL_PARSE_THRESHOLD = 10_000;
     private static final char ARG_SEPARATOR = ',';
-    private static final String DATE_TIME_FORMAT = "dd.MM.yyyy HH:mm:ss";
-    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern(DATE_TIME_FORMAT);
+    private static final char QUOTE = '"';
+    //формат даты dd.MM.yyyy HH:mm:ss
+    private static final int DATE_TIME_LENGTH = 19;
+    private static final TaskType[] TASK_TYPES = TaskType.values();
+    private static final TaskStatus[] TASK_STATUSES = TaskStatus.values();
 
     private FileBackedTaskMapper() {
     }
 
     static <T extends Task> String toString(T task) {
+        StringBuilder out = new StringBuilder(64);
+        appendTo(out, task);
+        return out.toString();
+    }
+
+    static void appendTo(StringBuilder out, Task task) {
         //id,type,name,status,description,epic,startTime,duration,endTime
-        if (task instanceof Subtask) {
-            return String.format(
-                    "%d,%s,%s,%s,%s,%s,%s,%d,%s",
-                    task.getId(), task.getTaskType(), task.getTitle(), task.getStatus(), task.getDescription(),
-                    task.getAllRelatedTasks().get(0).getId(),
-                    task.getStartTime() != null ? task.getStartTime().format(formatter) : "", task.getDuration(),
-                    task.getEndTime() != null ? task.getEndTime().format(formatter) : ""
-            );
-        } else
-            return String.format(
-                    "%d,%s,%s,%s,%s,,%s,%d,%s",
-                    task.getId(), task.getTaskType(), task.getTitle(), task.getStatus(), task.getDescription(),
-                    task.getStartTime() != null ? task.getStartTime().format(formatter) : "", task.getDuration(),
-                    task.getEndTime() != null ? task.getEndTime().format(formatter) : ""
-            );
-    }
-
-    static TaskWrapper fromString(String line) {
-        String[] args = line.split(String.valueOf(ARG_SEPARATOR));
-        TaskType taskType = TaskType.valueOf(args[TASK_TYPE_COL_INDEX]);
+        out.append(task.getId()).append(ARG_SEPARATOR).append(task.getTaskType().name()).append(ARG_SEPARATOR);
+        appendText(out, task.getTitle());
+        out.append(ARG_SEPARATOR).append(task.getStatus().name()).append(ARG_SEPARATOR);
+        appendText(out, task.getDescription());
+        out.append(ARG_SEPARATOR);
+        if (task instanceof Subtask)
+            out.append(task.getAllRelatedTasks().get(0).getId());
+        out.append(ARG_SEPARATOR);
+        appendDateTime(out, task.getStartTime());
+        out.append(ARG_SEPARATOR).append(task.getDuration()).append(ARG_SEPARATOR);
+        appendDateTime(out, task.getEndTime());
+    }
+
+    static TaskWrapper fromString(CharSequence line) {
+        return fromString(line, 0, line.length());
+    }
+
+    static TaskWrapper fromString(CharSequence text, int start, int end) {
+        //границы полей записи: начало поля i - fieldStarts[i], конец - fieldEnds[i]
+        int[] fieldStarts = new int[COLUMNS_COUNT];
+        int[] fieldEnds = new int[COLUMNS_COUNT];
+        int column = 0;
+        int position = start;
+        while (column < COLUMNS_COUNT) {
+            fieldStarts[column] = position;
+            if (position < end && text.charAt(position) == QUOTE)
+                position = skipQuoted(text, position, end);
+            //значение прежнего формата, начинающееся с кавычки, читается как есть до разделителя
+            if (position < end && text.charAt(position) != ARG_SEPARATOR) {
+                position = fieldStarts[column];
+                while (position < end && text.charAt(position) != ARG_SEPARATOR)
+                    position++;
+            }
+            fieldEnds[column++] = position;
+            if (position >= end)
+                break;
+            position++;
+        }
+        if (column <= DURATION_COL_INDEX)
+            throw new IllegalArgumentException("Некорректная строка задачи");
+
+        int id = parseInt(text, fieldStarts[ID_COL_INDEX], fieldEnds[ID_COL_INDEX]);
+        TaskType taskType = parseEnum(
+                TASK_TYPES, text, fieldStarts[TASK_TYPE_COL_INDEX], fieldEnds[TASK_TYPE_COL_INDEX]
+        );
+        String title = parseText(text, fieldStarts[NAME_COL_INDEX], fieldEnds[NAME_COL_INDEX]);
+        String description = parseText(text, fieldStarts[DESCRIPTION_COL_INDEX], fieldEnds[DESCRIPTION_COL_INDEX]);
         TaskWrapper taskWrapper;
         switch (taskType) {
             case TASK:
-                LocalDateTime taskStartTime = !args[START_TIME_COL_INDEX].isBlank() ?
-                        LocalDateTime.parse(args[START_TIME_COL_INDEX], formatter) : null;
-                taskWrapper = new TaskWrapper(
-                        new Task(
-                                Integer.parseInt(args[ID_COL_INDEX]), args[NAME_COL_INDEX], args[DESCRIPTION_COL_INDEX],
-                                taskStartTime, Integer.parseInt(args[DURATION_COL_INDEX])
-                        )
-                );
-                taskWrapper.getTask().setStatus(TaskStatus.valueOf(args[STATUS_COL_INDEX]));
+                taskWrapper = new TaskWrapper(new Task(
+                        id, title, description,
+                        parseDateTime(text, fieldStarts[START_TIME_COL_INDEX], fieldEnds[START_TIME_COL_INDEX]),
+                        parseInt(text, fieldStarts[DURATION_COL_INDEX], fieldEnds[DURATION_COL_INDEX])
+                ));
                 break;
             case EPIC:
-                taskWrapper = new TaskWrapper(
-                        new Epic(
-                                Integer.parseInt(args[ID_COL_INDEX]), args[NAME_COL_INDEX], args[DESCRIPTION_COL_INDEX]
-                        )
-                );
-                break;
+                return new TaskWrapper(new Epic(id, title, description));
             case SUBTASK:
-                LocalDateTime subtaskStartTime = !args[START_TIME_COL_INDEX].isBlank() ?
-                        LocalDateTime.parse(args[START_TIME_COL_INDEX], formatter) : null;
                 taskWrapper = new TaskWrapper(
                         new Subtask(
-                                Integer.parseInt(args[ID_COL_INDEX]), args[NAME_COL_INDEX], args[DESCRIPTION_COL_INDEX],
-                                subtaskStartTime, Integer.parseInt(args[DURATION_COL_INDEX])
+                                id, title, description,
+                                parseDateTime(text, fieldStarts[START_TIME_COL_INDEX], fieldEnds[START_TIME_COL_INDEX]),
+                                parseInt(text, fieldStarts[DURATION_COL_INDEX], fieldEnds[DURATION_COL_INDEX])
                         ),
-                        Integer.parseInt(args[EPIC_ID_COL_INDEX])
+                        parseInt(text, fieldStarts[EPIC_ID_COL_INDEX], fieldEnds[EPIC_ID_COL_INDEX])
                 );
-                taskWrapper.getTask().setStatus(TaskStatus.valueOf(args[STATUS_COL_INDEX]));
                 break;
             default:
                 throw new RuntimeException("Неизвестный тип задачи");
         }
+        taskWrapper.getTask().setStatus(
+                parseEnum(TASK_STATUSES, text, fieldStarts[STATUS_COL_INDEX], fieldEnds[STATUS_COL_INDEX])
+        );
         return taskWrapper;
     }
 
+    static List<TaskWrapper> fromRecords(CharSequence text, int[] recordStarts, int[] recordEnds, int recordsCount) {
+        IntStream records = IntStream.range(0, recordsCount);
+        if (recordsCount >= PARALLEL_PARSE_THRESHOLD)
+            records = records.parallel();
+        return records
+                .mapToObj(i -> fromString(text, recordStarts[i], recordEnds[i]))
+                .collect(Collectors.toList());
+    }
+
+    static int findRecordEnd(CharSequence text, int start) {
+        //перевод строки внутри кавычек является частью значения, кавычки открывают значение только в начале поля:
+        //файлы прежнего формата хранят текст без экранирования и могут содержать одиночные кавычки
+        boolean quoted = false;
+        boolean fieldStart = true;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == QUOTE) {
+                    if (i + 1 < text.length() && text.charAt(i + 1) == QUOTE)
+                        i++;
+                    else
+                        quoted = false;
+                }
+            } else if (c == QUOTE && fieldStart) {
+                quoted = true;
+            } else if (c == '\n') {
+                return i;
+            }
+            fieldStart = !quoted && c == ARG_SEPARATOR;
+        }
+        return quoted ? UNTERMINATED_RECORD : text.length();
+    }
+
+    static int trimLineEnd(CharSequence text, int start, int end) {
+        return end > start && text.charAt(end - 1) == '\r' ? end - 1 : end;
+    }
+
+    static boolean isBlank(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++)
+            if (!Character.isWhitespace(text.charAt(i)))
+                return false;
+        return true;
+    }
+
+    private static void appendText(StringBuilder out, String value) {
+        if (value == null) {
+            out.append(value);
+            return;
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ARG_SEPARATOR || c == QUOTE || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            out.append(value);
+            return;
+        }
+        out.append(QUOTE);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == QUOTE)
+                out.append(QUOTE);
+            out.append(c);
+        }
+        out.append(QUOTE);
+    }
+
+    private static void appendDateTime(StringBuilder out, LocalDateTime dateTime) {
+        if (dateTime == null)
+            return;
+        appendTwoDigits(out, dateTime.getDayOfMonth()).append('.');
+        appendTwoDigits(out, dateTime.getMonthValue()).append('.');
+        int year = dateTime.getYear();
+        if (year >= 0 && year < 1000)
+            out.append(year < 10 ? "000" : year < 100 ? "00" : "0");
+        out.append(year).append(' ');
+        appendTwoDigits(out, dateTime.getHour()).append(':');
+        appendTwoDigits(out, dateTime.getMinute()).append(':');
+        appendTwoDigits(out, dateTime.getSecond());
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder out, int value) {
+        return out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private static int skipQuoted(CharSequence text, int position, int end) {
+        position++;
+        while (position < end) {
+            if (text.charAt(position) == QUOTE) {
+                if (position + 1 < end && text.charAt(position + 1) == QUOTE)
+                    position += 2;
+                else
+                    return position + 1;
+            } else {
+                position++;
+            }
+        }
+        return position;
+    }
+
+    private static String parseText(CharSequence text, int start, int end) {
+        if (end - start < 2 || text.charAt(start) != QUOTE || text.charAt(end - 1) != QUOTE)
+            return text.subSequence(start, end).toString();
+        StringBuilder value = new StringBuilder(end - start);
+        for (int i = start + 1; i < end - 1; i++) {
+            char c = text.charAt(i);
+            value.append(c);
+            if (c == QUOTE)
+                i++;
+        }
+        return value.toString();
+    }
+
+    private static int parseInt(CharSequence text, int start, int end) {
+        if (start == end)
+            throw new NumberFormatException("Пустое числовое поле");
+        boolean negative = text.charAt(start) == '-';
+        int position = negative ? start + 1 : start;
+        if (position == end)
+            throw new NumberFormatException(text.subSequence(start, end).toString());
+        long value = 0;
+        for (; position < end; position++) {
+            int digit = text.charAt(position) - '0';
+            if (digit < 0 || digit > 9)
+                throw new NumberFormatException(text.subSequence(start, end).toString());
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1)
+                throw new NumberFormatException(text.subSequence(start, end).toString());
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE)
+            throw new NumberFormatException(text.subSequence(start, end).toString());
+        return (int) value;
+    }
+
+    private static <E extends Enum<E>> E parseEnum(E[] values, CharSequence text, int start, int end) {
+        for (E value : values) {
+            String name = value.name();
+            if (name.length() != end - start)
+                continue;
+            int i = 0;
+            while (i < name.length() && name.charAt(i) == text.charAt(start + i))
+                i++;
+            if (i == name.length())
+                return value;
+        }
+        throw new IllegalArgumentException("Неизвестное значение " + text.subSequence(start, end));
+    }
+
+    private static LocalDateTime parseDateTime(CharSequence text, int start, int end) {
+        if (start == end)
+            return null;
+        if (end - start < DATE_TIME_LENGTH)
+            throw new IllegalArgumentException("Некорректная дата " + text.subSequence(start, end));
+        //год может быть длиннее четырех цифр, остальные поля фиксированной ширины
+        int yearEnd = end - 9;
+        return LocalDateTime.of(
+                parseInt(text, start + 6, yearEnd),
+                parseInt(text, start + 3, start + 5),
+                parseInt(text, start, start + 2),
+                parseInt(text, yearEnd + 1, yearEnd + 3),
+                parseInt(text, yearEnd + 4, yearEnd + 6),
+                parseInt(text, yearEnd + 7, yearEnd + 9)
+        );
+    }
+
     static class TaskWrapper {
         private final Task task;
-        private final Optional<Integer> relatedTaskId;
+        private final int relatedTaskId;
 
         public TaskWrapper(Task task) {
-            this.task = task;
-            relatedTaskId = Optional.empty();
+            this(task, NO_RELATED_TASK_ID);
         }
 
         public TaskWrapper(Task task, int relatedTaskId) {
             this.task = task;
-            this.relatedTaskId = Optional.of(relatedTaskId);
+            this.relatedTaskId = relatedTaskId;
         }
 
         public Task getTask() {
             return task;
         }
 
-        public Optional<Integer> getRelatedTaskId() {
+        public int getRelatedTaskId() {
             return relatedTaskId;
         }
     }
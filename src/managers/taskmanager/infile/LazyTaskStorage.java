@@ -0,0 +1,89 @@
+package managers.taskmanager.infile;
+
+import domain.Task;
+import managers.taskmanager.inmemory.LoadingTaskMap;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+final class LazyTaskStorage extends LoadingTaskMap {
+    private final Map<Integer, Task> loadedTasks = new HashMap<>();
+    //задачи из индекса файла: известны только id и поля расписания
+    private final Map<Integer, LazyTaskStub> notLoadedTasks = new HashMap<>();
+    private IntFunction<Task> loader = id -> {
+        throw new IllegalStateException("Задачи не загружены из файла");
+    };
+    private Consumer<Task> loadListener = task -> {
+    };
+
+    void setLoader(IntFunction<Task> loader, Consumer<Task> loadListener) {
+        this.loader = loader;
+        this.loadListener = loadListener;
+    }
+
+    int getNotLoadedCount() {
+        return notLoadedTasks.size();
+    }
+
+    @Override
+    protected Task findLoaded(int id) {
+        return loadedTasks.get(id);
+    }
+
+    @Override
+    protected Task load(int id) {
+        return notLoadedTasks.containsKey(id) ? loader.apply(id) : null;
+    }
+
+    @Override
+    protected void loaded(int id, Task task) {
+        notLoadedTasks.remove(id);
+        loadedTasks.put(id, task);
+        loadListener.accept(task);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return loadedTasks.containsKey(key) || notLoadedTasks.containsKey(key);
+    }
+
+    @Override
+    public Task put(Integer id, Task task) {
+        Task previous = remove(id);
+        if (task instanceof LazyTaskStub)
+            notLoadedTasks.put(id, (LazyTaskStub) task);
+        else
+            loadedTasks.put(id, task);
+        return previous;
+    }
+
+    @Override
+    public Task remove(Object key) {
+        //удаляемая задача не загружается, вместо нее возвращается заглушка
+        Task task = loadedTasks.remove(key);
+        return task != null ? task : notLoadedTasks.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        loadedTasks.clear();
+        notLoadedTasks.clear();
+    }
+
+    @Override
+    public int size() {
+        return loadedTasks.size() + notLoadedTasks.size();
+    }
+
+    @Override
+    protected int[] ids() {
+        int[] ids = new int[size()];
+        int i = 0;
+        for (int id : loadedTasks.keySet())
+            ids[i++] = id;
+        for (int id : notLoadedTasks.keySet())
+            ids[i++] = id;
+        return ids;
+    }
+}
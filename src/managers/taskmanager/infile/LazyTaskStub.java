@@ -0,0 +1,11 @@
+package managers.taskmanager.infile;
+
+import domain.Task;
+
+import java.time.LocalDateTime;
+
+final class LazyTaskStub extends Task {
+    LazyTaskStub(int id, LocalDateTime startTime, int duration) {
+        super(id, "", "", startTime, duration);
+    }
+}
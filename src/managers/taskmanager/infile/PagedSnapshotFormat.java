@@ -0,0 +1,46 @@
+package managers.taskmanager.infile;
+
+import domain.Task;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+final class PagedSnapshotFormat extends SnapshotFormat {
+    static final PagedSnapshotFormat EAGER = new PagedSnapshotFormat(false);
+    static final PagedSnapshotFormat LAZY = new PagedSnapshotFormat(true);
+
+    private final boolean lazyLoading;
+
+    private PagedSnapshotFormat(boolean lazyLoading) {
+        this.lazyLoading = lazyLoading;
+    }
+
+    @Override
+    Map<Integer, Task> createTaskStorage() {
+        return lazyLoading ? new LazyTaskStorage() : new HashMap<>();
+    }
+
+    @Override
+    boolean isPaged() {
+        return true;
+    }
+
+    @Override
+    void writeImage(FileBackedTaskManagerImpl.SnapshotState state, OutputStream out) throws IOException {
+        PagedTaskFile.writeImage(out, state.records);
+    }
+
+    @Override
+    void persist(FileBackedTaskManagerImpl taskManager) {
+        taskManager.persistChangedRecords();
+    }
+
+    @Override
+    CompletableFuture<Void> persistInBackground(FileBackedTaskManagerImpl taskManager) {
+        //файл из записей обновляется на месте и пишется под блокировкой
+        return taskManager.persistNow();
+    }
+}
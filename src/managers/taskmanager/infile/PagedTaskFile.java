@@ -0,0 +1,258 @@
+package managers.taskmanager.infile;
+
+import domain.Task;
+import domain.exceptions.ManagerLoadException;
+import domain.exceptions.ManagerSaveException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+final class PagedTaskFile {
+    static final int MAGIC = 0x4B504147;
+    private static final int VERSION = 1;
+    //заголовок файла: magic, version, recordSize, recordsCount, freeHead
+    static final int HEADER_SIZE = 32;
+    private static final int RECORDS_COUNT_OFFSET = 12;
+    //запись: state, next, length, данные задачи в двоичном формате
+    static final int RECORD_SIZE = 256;
+    private static final int RECORD_HEADER_SIZE = 7;
+    private static final int RECORD_PAYLOAD_SIZE = RECORD_SIZE - RECORD_HEADER_SIZE;
+    private static final byte RECORD_FREE = 0;
+    private static final byte RECORD_HEAD = 1;
+    private static final byte RECORD_CONTINUATION = 2;
+    private static final int NO_RECORD = -1;
+
+    private final FileChannel channel;
+    private final boolean fsync;
+    private final Map<Integer, int[]> chainsById = new HashMap<>();
+    //свободные записи в порядке списка на диске, вершина - freeHead
+    private final Deque<Integer> freeRecords = new ArrayDeque<>();
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_SIZE);
+    private int recordsCount;
+
+    PagedTaskFile(Path path, boolean fsync) {
+        this.fsync = fsync;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+    }
+
+    static boolean isPaged(byte[] head) {
+        return head.length >= Integer.BYTES && ByteBuffer.wrap(head).getInt() == MAGIC;
+    }
+
+    static void writeImage(OutputStream out, Collection<? extends Task> tasks) throws IOException {
+        //полный образ файла: задачи записываются цепочками подряд, свободных записей нет
+        List<byte[]> payloads = new ArrayList<>(tasks.size());
+        int recordsCount = 0;
+        for (Task task : tasks) {
+            byte[] payload = encode(task);
+            payloads.add(payload);
+            recordsCount += recordsNeeded(payload);
+        }
+        DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out));
+        dataOut.write(header(recordsCount, NO_RECORD).array());
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        int recordIndex = 0;
+        for (byte[] payload : payloads) {
+            int needed = recordsNeeded(payload);
+            for (int i = 0; i < needed; i++, recordIndex++) {
+                fillRecord(record, i == 0 ? RECORD_HEAD : RECORD_CONTINUATION,
+                        i + 1 < needed ? recordIndex + 1 : NO_RECORD, payload, i);
+                dataOut.write(record.array());
+            }
+        }
+        dataOut.flush();
+    }
+
+    List<FileBackedTaskMapper.TaskWrapper> load() {
+        return load(FileBackedBinaryMapper::readTask);
+    }
+
+    List<FileBackedTaskMapper.TaskWrapper> loadIndex() {
+        return load(FileBackedBinaryMapper::readIndexEntry);
+    }
+
+    FileBackedTaskMapper.TaskWrapper read(int id) {
+        int[] chain = chainsById.get(id);
+        if (chain == null)
+            return null;
+        //буфер записей занят при записи, для чтения выделяется свой
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(RECORD_PAYLOAD_SIZE * chain.length);
+        try {
+            for (int next : chain) {
+                record.clear();
+                while (record.hasRemaining())
+                    if (channel.read(record, recordPosition(next) + record.position()) < 0)
+                        throw new ManagerLoadException("Файл задач поврежден");
+                payload.write(record.array(), RECORD_HEADER_SIZE, record.getShort(1 + Integer.BYTES));
+            }
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+        return decode(payload.toByteArray(), FileBackedBinaryMapper::readTask);
+    }
+
+    private List<FileBackedTaskMapper.TaskWrapper> load(TaskDecoder decoder) {
+        ByteBuffer content;
+        try {
+            content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+        if (content.limit() < HEADER_SIZE || content.getInt(0) != MAGIC || content.getInt(Integer.BYTES) != VERSION
+                || content.getInt(2 * Integer.BYTES) != RECORD_SIZE)
+            throw new ManagerLoadException("Неизвестный формат файла задач");
+        recordsCount = content.getInt(RECORDS_COUNT_OFFSET);
+        if ((long) HEADER_SIZE + (long) recordsCount * RECORD_SIZE > content.limit())
+            throw new ManagerLoadException("Файл задач поврежден");
+
+        List<FileBackedTaskMapper.TaskWrapper> taskWrappers = new ArrayList<>();
+        for (int record = 0; record < recordsCount; record++) {
+            if (content.get((int) recordPosition(record)) != RECORD_HEAD)
+                continue;
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(RECORD_PAYLOAD_SIZE);
+            List<Integer> chain = new ArrayList<>();
+            for (int next = record; next != NO_RECORD; next = content.getInt((int) recordPosition(next) + 1)) {
+                if (next < 0 || next >= recordsCount || chain.size() > recordsCount)
+                    throw new ManagerLoadException("Файл задач поврежден");
+                int position = (int) recordPosition(next);
+                byte[] bytes = new byte[content.getShort(position + 1 + Integer.BYTES)];
+                content.duplicate().position(position + RECORD_HEADER_SIZE).get(bytes);
+                payload.writeBytes(bytes);
+                chain.add(next);
+            }
+            FileBackedTaskMapper.TaskWrapper taskWrapper = decode(payload.toByteArray(), decoder);
+            chainsById.put(taskWrapper.getTask().getId(), chain.stream().mapToInt(Integer::intValue).toArray());
+            taskWrappers.add(taskWrapper);
+        }
+
+        List<Integer> freeList = new ArrayList<>();
+        int next = content.getInt(RECORDS_COUNT_OFFSET + Integer.BYTES);
+        while (next != NO_RECORD) {
+            if (next < 0 || next >= recordsCount || freeList.size() >= recordsCount)
+                throw new ManagerLoadException("Файл задач поврежден");
+            freeList.add(next);
+            next = content.getInt((int) recordPosition(next) + 1);
+        }
+        for (int i = freeList.size() - 1; i >= 0; i--)
+            freeRecords.push(freeList.get(i));
+        return taskWrappers;
+    }
+
+    void put(Task task) {
+        byte[] payload = encode(task);
+        int needed = recordsNeeded(payload);
+        //прежние записи задачи используются повторно, лишние уходят в список свободных
+        int[] oldChain = chainsById.getOrDefault(task.getId(), new int[0]);
+        int[] chain = new int[needed];
+        for (int i = 0; i < needed; i++)
+            chain[i] = i < oldChain.length ? oldChain[i] : allocateRecord();
+        for (int i = needed; i < oldChain.length; i++)
+            freeRecord(oldChain[i]);
+        for (int i = 0; i < needed; i++) {
+            fillRecord(recordBuffer, i == 0 ? RECORD_HEAD : RECORD_CONTINUATION,
+                    i + 1 < needed ? chain[i + 1] : NO_RECORD, payload, i);
+            writeRecord(chain[i]);
+        }
+        chainsById.put(task.getId(), chain);
+    }
+
+    void remove(int id) {
+        int[] chain = chainsById.remove(id);
+        if (chain == null)
+            return;
+        for (int record : chain)
+            freeRecord(record);
+    }
+
+    void commit() {
+        try {
+            channel.write(header(recordsCount, freeRecords.isEmpty() ? NO_RECORD : freeRecords.peek()), 0);
+            if (fsync)
+                channel.force(false);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    private int allocateRecord() {
+        return freeRecords.isEmpty() ? recordsCount++ : freeRecords.pop();
+    }
+
+    private void freeRecord(int record) {
+        fillRecord(recordBuffer, RECORD_FREE, freeRecords.isEmpty() ? NO_RECORD : freeRecords.peek(), new byte[0], 0);
+        writeRecord(record);
+        freeRecords.push(record);
+    }
+
+    private void writeRecord(int record) {
+        try {
+            channel.write(recordBuffer, recordPosition(record));
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    private static void fillRecord(ByteBuffer record, byte state, int next, byte[] payload, int chunk) {
+        int offset = chunk * RECORD_PAYLOAD_SIZE;
+        int length = Math.min(RECORD_PAYLOAD_SIZE, payload.length - offset);
+        record.clear();
+        record.put(state).putInt(next).putShort((short) length).put(payload, offset, length);
+        while (record.hasRemaining())
+            record.put((byte) 0);
+        record.flip();
+    }
+
+    private static ByteBuffer header(int recordsCount, int freeHead) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(recordsCount).putInt(freeHead);
+        header.clear();
+        return header;
+    }
+
+    private static int recordsNeeded(byte[] payload) {
+        return Math.max(1, (payload.length + RECORD_PAYLOAD_SIZE - 1) / RECORD_PAYLOAD_SIZE);
+    }
+
+    private static long recordPosition(int record) {
+        return HEADER_SIZE + (long) record * RECORD_SIZE;
+    }
+
+    private static byte[] encode(Task task) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(RECORD_PAYLOAD_SIZE);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            FileBackedBinaryMapper.writeTask(out, task);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static FileBackedTaskMapper.TaskWrapper decode(byte[] payload, TaskDecoder decoder) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            return decoder.decode(in);
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+    }
+
+    private interface TaskDecoder {
+        FileBackedTaskMapper.TaskWrapper decode(DataInputStream in) throws IOException;
+    }
+}
@@ -0,0 +1,50 @@
+package managers.taskmanager.infile;
+
+import domain.Task;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+//способ хранения задач в файле, сочетания режимов задаются только доступными здесь форматами:
+//сжимается только снимок, переписываемый целиком, загрузка при обращении есть только у файла из записей
+public abstract class SnapshotFormat {
+
+    SnapshotFormat() {
+    }
+
+    public static WholeFileSnapshotFormat csv() {
+        return WholeFileSnapshotFormat.CSV;
+    }
+
+    public static WholeFileSnapshotFormat binary() {
+        return WholeFileSnapshotFormat.BINARY;
+    }
+
+    //файл из записей фиксированного размера, перезаписываются только измененные задачи
+    public static SnapshotFormat paged() {
+        return PagedSnapshotFormat.EAGER;
+    }
+
+    //файл из записей, задачи которого декодируются при первом обращении
+    public static SnapshotFormat lazyPaged() {
+        return PagedSnapshotFormat.LAZY;
+    }
+
+    Map<Integer, Task> createTaskStorage() {
+        return new HashMap<>();
+    }
+
+    //файл обновляется по измененным задачам, а не переписывается целиком
+    boolean isPaged() {
+        return false;
+    }
+
+    abstract void writeImage(FileBackedTaskManagerImpl.SnapshotState state, OutputStream out) throws IOException;
+
+    abstract void persist(FileBackedTaskManagerImpl taskManager);
+
+    abstract CompletableFuture<Void> persistInBackground(FileBackedTaskManagerImpl taskManager);
+}
@@ -0,0 +1,84 @@
+package managers.taskmanager.infile;
+
+import domain.exceptions.ManagerSaveException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+final class SnapshotPipeline {
+    //при заполненной очереди поток, отдающий снимок, ждет записи предыдущих
+    private static final int QUEUE_CAPACITY = 4;
+    private static final PendingSnapshot CLOSE = new PendingSnapshot(null);
+
+    private final BlockingQueue<PendingSnapshot> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Consumer<byte[]> writer;
+    private final Thread ioThread;
+
+    SnapshotPipeline(Consumer<byte[]> writer) {
+        this.writer = writer;
+        ioThread = new Thread(this::run, "snapshot-io");
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    CompletableFuture<Void> submit(byte[] snapshot) {
+        PendingSnapshot pending = new PendingSnapshot(snapshot);
+        enqueue(pending);
+        return pending.written;
+    }
+
+    void close() {
+        enqueue(CLOSE);
+        try {
+            ioThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(PendingSnapshot pending) {
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Запись снимка прервана");
+        }
+    }
+
+    private void run() {
+        List<PendingSnapshot> batch = new ArrayList<>();
+        boolean closed = false;
+        while (!closed) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+            closed = batch.remove(CLOSE);
+            if (batch.isEmpty())
+                continue;
+            //каждый снимок полный, поэтому из накопившихся записывается только последний
+            try {
+                writer.accept(batch.get(batch.size() - 1).snapshot);
+                batch.forEach(pending -> pending.written.complete(null));
+            } catch (RuntimeException e) {
+                batch.forEach(pending -> pending.written.completeExceptionally(e));
+            }
+            batch.clear();
+        }
+    }
+
+    private static class PendingSnapshot {
+        final byte[] snapshot;
+        final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        PendingSnapshot(byte[] snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
+}
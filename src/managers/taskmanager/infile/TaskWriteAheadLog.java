@@ -0,0 +1,146 @@
+package managers.taskmanager.infile;
+
+import domain.exceptions.ManagerLoadException;
+import domain.exceptions.ManagerSaveException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+class TaskWriteAheadLog {
+    private static final char ARG_SEPARATOR = ',';
+
+    private final Path logPath;
+    private final Path rotatedLogPath;
+    private BufferedWriter writer;
+    private long truncatedBytes;
+
+    TaskWriteAheadLog(Path logPath) {
+        this.logPath = logPath;
+        this.rotatedLogPath = Path.of(logPath + ".old");
+    }
+
+    List<Record> readAll() {
+        //сегмент, отложенный незавершенным снимком, старше текущего журнала
+        List<Record> records = read(rotatedLogPath);
+        records.addAll(read(logPath));
+        return records;
+    }
+
+    long getTruncatedBytes() {
+        return truncatedBytes;
+    }
+
+    boolean hasRotatedSegment() {
+        return Files.exists(rotatedLogPath);
+    }
+
+    long sizeBytes() {
+        try {
+            long size = 0;
+            if (Files.exists(logPath))
+                size += Files.size(logPath);
+            if (Files.exists(rotatedLogPath))
+                size += Files.size(rotatedLogPath);
+            return size;
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+    }
+
+    void append(Operation operation, String payload) {
+        try {
+            if (writer == null)
+                writer = Files.newBufferedWriter(
+                        logPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND
+                );
+            writer.write(ChecksummedRecords.frame(operation.name() + ARG_SEPARATOR + payload));
+            writer.flush();
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    void rotate() {
+        try {
+            close();
+            if (!Files.exists(logPath))
+                return;
+            if (Files.exists(rotatedLogPath)) {
+                //предыдущий снимок не записан, его сегмент еще нужен, текущий журнал дописывается в конец
+                try (OutputStream out = Files.newOutputStream(rotatedLogPath, StandardOpenOption.APPEND)) {
+                    Files.copy(logPath, out);
+                }
+                Files.delete(logPath);
+            } else {
+                AtomicFiles.replace(logPath, rotatedLogPath);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    void dropRotatedSegment() {
+        try {
+            Files.deleteIfExists(rotatedLogPath);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private List<Record> read(Path path) {
+        //недописанный при сбое хвост сегмента отрезается, чтобы новые записи не шли после него
+        ChecksummedRecords.Recovered recovered = ChecksummedRecords.recover(path);
+        truncatedBytes += recovered.getTruncatedBytes();
+        List<Record> records = new ArrayList<>(recovered.getRecords().size());
+        for (String line : recovered.getRecords()) {
+            int separatorIndex = line.indexOf(ARG_SEPARATOR);
+            if (separatorIndex < 0)
+                break;
+            try {
+                records.add(new Record(
+                        Operation.valueOf(line.substring(0, separatorIndex)), line.substring(separatorIndex + 1)
+                ));
+            } catch (IllegalArgumentException e) {
+                //запись прежнего формата, недописанная при сбое
+                break;
+            }
+        }
+        return records;
+    }
+
+    enum Operation {
+        CREATE, UPDATE, DELETE, CLEAR, VIEW
+    }
+
+    static class Record {
+        private final Operation operation;
+        private final String payload;
+
+        Record(Operation operation, String payload) {
+            this.operation = operation;
+            this.payload = payload;
+        }
+
+        Operation getOperation() {
+            return operation;
+        }
+
+        String getPayload() {
+            return payload;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package managers.taskmanager.infile;
+
+import domain.Epic;
+import domain.Subtask;
+import domain.Task;
+import domain.TaskType;
+import domain.exceptions.*;
+import managers.historymanager.HistoryManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class WalFileBackedTaskManagerImpl extends FileBackedTaskManagerImpl {
+    private static final char ARG_SEPARATOR = ',';
+
+    private final TaskWriteAheadLog writeAheadLog;
+    private final int snapshotEveryRecords;
+    private final Object snapshotLock = new Object();
+    private final WalStats stats = new WalStats();
+    private final ScheduledExecutorService snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "wal-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int recordsSinceSnapshot;
+    private boolean snapshotScheduled;
+    private boolean replaying;
+
+    public WalFileBackedTaskManagerImpl(HistoryManager historyManager, String path, int snapshotEveryRecords) {
+        this(historyManager, path, snapshotEveryRecords, null);
+    }
+
+    public WalFileBackedTaskManagerImpl(HistoryManager historyManager, String path,
+                                        int snapshotEveryRecords, Duration snapshotInterval) {
+        this(historyManager, path, snapshotEveryRecords, snapshotInterval, System.nanoTime());
+    }
+
+    private WalFileBackedTaskManagerImpl(HistoryManager historyManager, String path, int snapshotEveryRecords,
+                                         Duration snapshotInterval, long recoveryStartedNanos) {
+        super(historyManager, path);
+        if (snapshotEveryRecords < 1)
+            throw new IllegalArgumentException("Интервал снимков должен быть больше нуля");
+        this.snapshotEveryRecords = snapshotEveryRecords;
+        this.writeAheadLog = new TaskWriteAheadLog(Path.of(path + ".wal"));
+        int recoveredRecords = replayLog();
+        //снимок прервался до удаления старого сегмента журнала
+        if (writeAheadLog.hasRotatedSegment())
+            snapshot();
+        stats.recordRecovery(
+                recoveredRecords, writeAheadLog.getTruncatedBytes(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - recoveryStartedNanos)
+        );
+        if (recordsSinceSnapshot >= snapshotEveryRecords) {
+            snapshotScheduled = true;
+            snapshotExecutor.execute(this::snapshotInBackground);
+        }
+        if (snapshotInterval != null)
+            snapshotExecutor.scheduleWithFixedDelay(
+                    this::snapshotInBackground,
+                    snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS
+            );
+    }
+
+    @Override
+    public void removeAllTasks() {
+        mutate(() -> {
+            super.removeAllTasks();
+            log(TaskWriteAheadLog.Operation.CLEAR, TaskType.TASK.name());
+        });
+    }
+
+    @Override
+    public void createTask(Task task) throws CreateTaskException, OverlappingTaskTimeException {
+        mutate(() -> {
+            super.createTask(task);
+            log(TaskWriteAheadLog.Operation.CREATE, FileBackedTaskMapper.toString(task));
+        });
+    }
+
+    @Override
+    public void updateTask(Task task) throws TaskNotFoundException, OverlappingTaskTimeException {
+        mutate(() -> {
+            super.updateTask(task);
+            log(TaskWriteAheadLog.Operation.UPDATE, FileBackedTaskMapper.toString(task));
+        });
+    }
+
+    @Override
+    public void removeTask(int id) throws TaskNotFoundException {
+        mutate(() -> {
+            super.removeTask(id);
+            logDelete(TaskType.TASK, id);
+        });
+    }
+
+    @Override
+    public void removeAllEpics() {
+        mutate(() -> {
+            super.removeAllEpics();
+            log(TaskWriteAheadLog.Operation.CLEAR, TaskType.EPIC.name());
+        });
+    }
+
+    @Override
+    public void createEpic(Epic epic) throws CreateTaskException {
+        mutate(() -> {
+            super.createEpic(epic);
+            log(TaskWriteAheadLog.Operation.CREATE, FileBackedTaskMapper.toString(epic));
+            for (Task subtask : epic.getAllRelatedTasks())
+                log(TaskWriteAheadLog.Operation.CREATE, FileBackedTaskMapper.toString((Subtask) subtask));
+        });
+    }
+
+    @Override
+    public void updateEpic(Epic epic) throws TaskNotFoundException {
+        mutate(() -> {
+            super.updateEpic(epic);
+            log(TaskWriteAheadLog.Operation.UPDATE, FileBackedTaskMapper.toString(epic));
+        });
+    }
+
+    @Override
+    public void removeEpic(int id) throws TaskNotFoundException {
+        mutate(() -> {
+            super.removeEpic(id);
+            logDelete(TaskType.EPIC, id);
+        });
+    }
+
+    @Override
+    public void removeAllSubtasks() {
+        mutate(() -> {
+            super.removeAllSubtasks();
+            log(TaskWriteAheadLog.Operation.CLEAR, TaskType.SUBTASK.name());
+        });
+    }
+
+    @Override
+    public void createSubtask(Subtask subtask) throws CreateTaskException, OverlappingTaskTimeException {
+        mutate(() -> {
+            super.createSubtask(subtask);
+            log(TaskWriteAheadLog.Operation.CREATE, FileBackedTaskMapper.toString(subtask));
+        });
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) throws TaskNotFoundException, OverlappingTaskTimeException {
+        mutate(() -> {
+            super.updateSubtask(subtask);
+            log(TaskWriteAheadLog.Operation.UPDATE, FileBackedTaskMapper.toString(subtask));
+        });
+    }
+
+    @Override
+    public void removeSubtask(int id) throws TaskNotFoundException {
+        mutate(() -> {
+            super.removeSubtask(id);
+            logDelete(TaskType.SUBTASK, id);
+        });
+    }
+
+    @Override
+    protected void save() {
+        //изменения пишутся в журнал, полный снимок сохраняется в snapshot()
+    }
+
+    @Override
+    protected void saveHistory(Task viewedTask) {
+        //просмотр пишется в журнал операций записью VIEW под той же блокировкой, что и чтение задачи
+        logView(viewedTask);
+    }
+
+    public void snapshot() {
+        synchronized (snapshotLock) {
+            long startedNanos = System.nanoTime();
+            SnapshotState state;
+            int rotatedRecords;
+            //под блокировкой снимается только копия задач, кодирование и запись файла не задерживают изменения
+            synchronized (this) {
+                state = captureSnapshot();
+                writeAheadLog.rotate();
+                rotatedRecords = recordsSinceSnapshot;
+                recordsSinceSnapshot = 0;
+                snapshotScheduled = false;
+            }
+            try {
+                writeSnapshotFile(out -> writeSnapshotTo(state, out));
+            } catch (ManagerSaveException e) {
+                //отложенный сегмент журнала остается на диске и войдет в следующий снимок
+                synchronized (this) {
+                    recordsSinceSnapshot += rotatedRecords;
+                }
+                stats.recordSnapshotFailure(e.getMessage());
+                throw e;
+            }
+            writeAheadLog.dropRotatedSegment();
+            stats.recordSnapshot(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos));
+        }
+    }
+
+    public synchronized WalStats getWalStats() {
+        stats.updateLogSize(recordsSinceSnapshot, writeAheadLog.sizeBytes());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        snapshotExecutor.shutdown();
+        try {
+            snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                writeAheadLog.close();
+            } catch (IOException e) {
+                throw new ManagerSaveException(e.getMessage());
+            }
+        }
+        super.close();
+    }
+
+    private void logView(Task task) {
+        log(TaskWriteAheadLog.Operation.VIEW, task.getTaskType().name() + ARG_SEPARATOR + task.getId());
+    }
+
+    private void logDelete(TaskType taskType, int id) {
+        log(TaskWriteAheadLog.Operation.DELETE, taskType.name() + ARG_SEPARATOR + id);
+    }
+
+    private synchronized void log(TaskWriteAheadLog.Operation operation, String payload) {
+        //во время восстановления из журнала и внутри конструктора суперкласса журнал еще не ведется
+        if (replaying || writeAheadLog == null)
+            return;
+        writeAheadLog.append(operation, payload);
+        stats.recordAppend();
+        if (++recordsSinceSnapshot >= snapshotEveryRecords && !snapshotScheduled) {
+            snapshotScheduled = true;
+            snapshotExecutor.execute(this::snapshotInBackground);
+        }
+    }
+
+    private void snapshotInBackground() {
+        synchronized (this) {
+            if (recordsSinceSnapshot == 0)
+                return;
+        }
+        try {
+            snapshot();
+        } catch (ManagerSaveException e) {
+            //ошибка учтена в статистике, снимок повторится после следующей записи журнала
+        }
+    }
+
+    private int replayLog() {
+        List<TaskWriteAheadLog.Record> records = writeAheadLog.readAll();
+        int maxId = 0;
+        replaying = true;
+        try {
+            for (TaskWriteAheadLog.Record record : records) {
+                try {
+                    maxId = Math.max(maxId, apply(record));
+                } catch (TaskNotFoundException | RelatedTaskException e) {
+                    //запись уже учтена в снимке, сохраненном перед сбоем
+                }
+            }
+        } finally {
+            replaying = false;
+        }
+        for (Task task : getAllTasks())
+            maxId = Math.max(maxId, task.getId());
+        for (Epic epic : getAllEpics())
+            maxId = Math.max(maxId, epic.getId());
+        for (Subtask subtask : getAllSubtasks())
+            maxId = Math.max(maxId, subtask.getId());
+        setInitialUniqueId(maxId);
+        recordsSinceSnapshot = records.size();
+        return records.size();
+    }
+
+    private int apply(TaskWriteAheadLog.Record record) {
+        String payload = record.getPayload();
+        switch (record.getOperation()) {
+            case CREATE:
+            case UPDATE:
+                //запись могла уже попасть в снимок, поэтому создание и изменение применяются как замена
+                Task task = toTask(FileBackedTaskMapper.fromString(payload));
+                restoreTask(task);
+                return task.getId();
+            case DELETE:
+            case VIEW:
+                String[] args = payload.split(String.valueOf(ARG_SEPARATOR));
+                TaskType taskType = TaskType.valueOf(args[0]);
+                int id = Integer.parseInt(args[1]);
+                if (record.getOperation() == TaskWriteAheadLog.Operation.DELETE)
+                    deleteFromLog(taskType, id);
+                else
+                    viewFromLog(taskType, id);
+                return id;
+            case CLEAR:
+                clearFromLog(TaskType.valueOf(payload));
+                return 0;
+            default:
+                throw new ManagerLoadException("Неизвестная операция журнала " + record.getOperation());
+        }
+    }
+
+    private Task toTask(FileBackedTaskMapper.TaskWrapper taskWrapper) {
+        Task task = taskWrapper.getTask();
+        if (task.getTaskType() != TaskType.SUBTASK)
+            return task;
+        Epic epic = findEpic(taskWrapper.getRelatedTaskId());
+        if (epic == null)
+            throw new TaskNotFoundException(taskWrapper.getRelatedTaskId());
+        Subtask subtask = new Subtask(
+                task.getId(), task.getTitle(), task.getDescription(), task.getStartTime(), task.getDuration(), epic
+        );
+        subtask.setStatus(task.getStatus());
+        return subtask;
+    }
+
+    private void deleteFromLog(TaskType taskType, int id) {
+        switch (taskType) {
+            case TASK:
+                removeTask(id);
+                break;
+            case EPIC:
+                removeEpic(id);
+                break;
+            case SUBTASK:
+                removeSubtask(id);
+                break;
+        }
+    }
+
+    private void viewFromLog(TaskType taskType, int id) {
+        Task task = findTaskById(taskType, id);
+        if (task == null)
+            throw new TaskNotFoundException(id);
+        historyManager.restore(task);
+    }
+
+    private void clearFromLog(TaskType taskType) {
+        switch (taskType) {
+            case TASK:
+                removeAllTasks();
+                break;
+            case EPIC:
+                removeAllEpics();
+                break;
+            case SUBTASK:
+                removeAllSubtasks();
+                break;
+        }
+    }
+}
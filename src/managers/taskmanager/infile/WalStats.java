@@ -0,0 +1,97 @@
+package managers.taskmanager.infile;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class WalStats {
+    private final AtomicLong appendedRecords = new AtomicLong();
+    private final AtomicLong snapshots = new AtomicLong();
+    private final AtomicLong failedSnapshots = new AtomicLong();
+    private volatile String lastSnapshotError;
+    private volatile long lastSnapshotMillis;
+    private volatile long recoveredRecords;
+    private volatile long recoveryMillis;
+    private volatile long truncatedBytes;
+    private volatile long logRecords;
+    private volatile long logBytes;
+
+    void recordAppend() {
+        appendedRecords.incrementAndGet();
+    }
+
+    void recordSnapshot(long durationMillis) {
+        snapshots.incrementAndGet();
+        lastSnapshotMillis = durationMillis;
+    }
+
+    void recordSnapshotFailure(String error) {
+        failedSnapshots.incrementAndGet();
+        lastSnapshotError = error;
+    }
+
+    void recordRecovery(long recoveredRecords, long truncatedBytes, long durationMillis) {
+        this.recoveredRecords = recoveredRecords;
+        this.truncatedBytes = truncatedBytes;
+        this.recoveryMillis = durationMillis;
+    }
+
+    void updateLogSize(long logRecords, long logBytes) {
+        this.logRecords = logRecords;
+        this.logBytes = logBytes;
+    }
+
+    public long getAppendedRecords() {
+        return appendedRecords.get();
+    }
+
+    public long getSnapshots() {
+        return snapshots.get();
+    }
+
+    public long getFailedSnapshots() {
+        return failedSnapshots.get();
+    }
+
+    public String getLastSnapshotError() {
+        return lastSnapshotError;
+    }
+
+    public long getLastSnapshotMillis() {
+        return lastSnapshotMillis;
+    }
+
+    public long getRecoveredRecords() {
+        return recoveredRecords;
+    }
+
+    public long getRecoveryMillis() {
+        return recoveryMillis;
+    }
+
+    public long getTruncatedBytes() {
+        return truncatedBytes;
+    }
+
+    public long getLogRecords() {
+        return logRecords;
+    }
+
+    public long getLogBytes() {
+        return logBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "WalStats{" +
+                "appendedRecords=" + getAppendedRecords() +
+                ", snapshots=" + getSnapshots() +
+                ", failedSnapshots=" + getFailedSnapshots() +
+                ", lastSnapshotError='" + lastSnapshotError + '\'' +
+                ", lastSnapshotMillis=" + lastSnapshotMillis +
+                ", recoveredRecords=" + recoveredRecords +
+                ", recoveryMillis=" + recoveryMillis +
+                ", truncatedBytes=" + truncatedBytes +
+                ", logRecords=" + logRecords +
+                ", logBytes=" + logBytes +
+                '}';
+    }
+}
@@ -0,0 +1,91 @@
+package managers.taskmanager.infile;
+
+import domain.Task;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+//снимок, который при каждом сохранении переписывается целиком
+public final class WholeFileSnapshotFormat extends SnapshotFormat {
+    static final WholeFileSnapshotFormat CSV = new WholeFileSnapshotFormat(WholeFileSnapshotFormat::writeCsv, false);
+    static final WholeFileSnapshotFormat BINARY =
+            new WholeFileSnapshotFormat(WholeFileSnapshotFormat::writeBinary, false);
+
+    private final ImageWriter imageWriter;
+    private final boolean compressed;
+
+    private WholeFileSnapshotFormat(ImageWriter imageWriter, boolean compressed) {
+        this.imageWriter = imageWriter;
+        this.compressed = compressed;
+    }
+
+    public SnapshotFormat compressed() {
+        return compressed ? this : new WholeFileSnapshotFormat(imageWriter, true);
+    }
+
+    @Override
+    void writeImage(FileBackedTaskManagerImpl.SnapshotState state, OutputStream out) throws IOException {
+        if (!compressed) {
+            imageWriter.write(state, out);
+            return;
+        }
+        //признак сжатия - заголовок gzip, по нему формат определяется при загрузке
+        GZIPOutputStream compressedOut = new GZIPOutputStream(out, FileBackedTaskManagerImpl.COMPRESSION_BUFFER_SIZE) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        };
+        imageWriter.write(state, compressedOut);
+        compressedOut.finish();
+    }
+
+    @Override
+    void persist(FileBackedTaskManagerImpl taskManager) {
+        taskManager.persistSnapshot();
+    }
+
+    @Override
+    CompletableFuture<Void> persistInBackground(FileBackedTaskManagerImpl taskManager) {
+        return taskManager.persistSnapshotInBackground();
+    }
+
+    private static void writeCsv(FileBackedTaskManagerImpl.SnapshotState state, OutputStream out)
+            throws IOException {
+        BufferedWriter fileWriter = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        fileWriter.write(FileBackedTaskMapper.HEADER_OF_FILE);
+        fileWriter.newLine();
+        //один буфер строки на весь снимок
+        StringBuilder line = new StringBuilder(128);
+        for (Task task : state.records) {
+            line.setLength(0);
+            FileBackedTaskMapper.appendTo(line, task);
+            fileWriter.append(line);
+            fileWriter.newLine();
+        }
+
+        fileWriter.newLine();
+        String historyString = FileBackedHistoryMapper.historyToString(state.history);
+        if (!historyString.isBlank())
+            fileWriter.write(historyString);
+        else
+            fileWriter.newLine();
+        fileWriter.flush();
+    }
+
+    private static void writeBinary(FileBackedTaskManagerImpl.SnapshotState state, OutputStream out)
+            throws IOException {
+        DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out));
+        FileBackedBinaryMapper.writeHeader(dataOut);
+        for (Task task : state.records)
+            FileBackedBinaryMapper.writeTask(dataOut, task);
+        FileBackedBinaryMapper.writeHistory(dataOut, state.history);
+        dataOut.flush();
+    }
+
+    private interface ImageWriter {
+        void write(FileBackedTaskManagerImpl.SnapshotState state, OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,99 @@
+package managers.taskmanager.infile;
+
+import domain.exceptions.ManagerSaveException;
+
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+final class WriteBehindScheduler {
+    private final WriteBehindSettings settings;
+    //действие возвращает будущее окончания записи, сама запись может идти в другом потоке
+    private final Supplier<CompletableFuture<Void>> flushAction;
+    private final WriteBehindStats stats = new WriteBehindStats();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private CompletableFuture<Void> pendingFlush;
+    private CompletableFuture<Void> lastFlush = CompletableFuture.completedFuture(null);
+    private int pendingOps;
+
+    WriteBehindScheduler(WriteBehindSettings settings, Supplier<CompletableFuture<Void>> flushAction) {
+        this.settings = settings;
+        this.flushAction = flushAction;
+    }
+
+    synchronized CompletableFuture<Void> submit() {
+        if (pendingFlush == null) {
+            pendingFlush = new CompletableFuture<>();
+            executor.schedule(this::flushPending, settings.getFlushWindow().toMillis(), TimeUnit.MILLISECONDS);
+        }
+        CompletableFuture<Void> flush = pendingFlush;
+        if (++pendingOps == settings.getMaxOpsPerFlush())
+            executor.execute(this::flushPending);
+        return flush;
+    }
+
+    synchronized CompletableFuture<Void> flush() {
+        //группа могла уже уйти на запись, тогда ждем ее завершения
+        if (pendingFlush == null)
+            return lastFlush;
+        executor.execute(this::flushPending);
+        return pendingFlush;
+    }
+
+    WriteBehindStats getStats() {
+        return stats;
+    }
+
+    void await(CompletableFuture<Void> flush) {
+        if (settings.getDurabilityPolicy() != DurabilityPolicy.GROUP_COMMIT)
+            return;
+        try {
+            flush.join();
+        } catch (CompletionException e) {
+            throw new ManagerSaveException(e.getCause().getMessage());
+        }
+    }
+
+    void close() {
+        try {
+            flush().join();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void flushPending() {
+        CompletableFuture<Void> flush;
+        synchronized (this) {
+            flush = pendingFlush;
+            //группа уже записана по достижении лимита операций или принудительным сбросом
+            if (flush == null)
+                return;
+            pendingFlush = null;
+            pendingOps = 0;
+            lastFlush = flush;
+        }
+        CompletableFuture<Void> written;
+        try {
+            written = flushAction.get();
+        } catch (RuntimeException e) {
+            stats.recordFailedFlush(e.getMessage());
+            flush.completeExceptionally(e);
+            return;
+        }
+        //при ASYNC результат записи никто не ждет, ошибка видна только в статистике
+        written.whenComplete((ignored, e) -> {
+            if (e == null) {
+                stats.recordFlush();
+                flush.complete(null);
+            } else {
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                stats.recordFailedFlush(cause.getMessage());
+                flush.completeExceptionally(cause);
+            }
+        });
+    }
+}
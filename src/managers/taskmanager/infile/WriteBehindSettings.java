@@ -0,0 +1,29 @@
+package managers.taskmanager.infile;
+
+import java.time.Duration;
+
+public class WriteBehindSettings {
+    private final DurabilityPolicy durabilityPolicy;
+    private final Duration flushWindow;
+    private final int maxOpsPerFlush;
+
+    public WriteBehindSettings(DurabilityPolicy durabilityPolicy, Duration flushWindow, int maxOpsPerFlush) {
+        if (flushWindow.isNegative() || maxOpsPerFlush < 1)
+            throw new IllegalArgumentException("Некорректные параметры отложенной записи");
+        this.durabilityPolicy = durabilityPolicy;
+        this.flushWindow = flushWindow;
+        this.maxOpsPerFlush = maxOpsPerFlush;
+    }
+
+    public DurabilityPolicy getDurabilityPolicy() {
+        return durabilityPolicy;
+    }
+
+    public Duration getFlushWindow() {
+        return flushWindow;
+    }
+
+    public int getMaxOpsPerFlush() {
+        return maxOpsPerFlush;
+    }
+}
@@ -0,0 +1,39 @@
+package managers.taskmanager.infile;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class WriteBehindStats {
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private volatile String lastFlushError;
+
+    void recordFlush() {
+        flushes.incrementAndGet();
+    }
+
+    void recordFailedFlush(String error) {
+        failedFlushes.incrementAndGet();
+        lastFlushError = error;
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    public long getFailedFlushes() {
+        return failedFlushes.get();
+    }
+
+    public String getLastFlushError() {
+        return lastFlushError;
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBehindStats{" +
+                "flushes=" + getFlushes() +
+                ", failedFlushes=" + getFailedFlushes() +
+                ", lastFlushError='" + lastFlushError + '\'' +
+                '}';
+    }
+}
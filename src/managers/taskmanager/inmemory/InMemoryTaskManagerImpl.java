@@ -3,6 +3,7 @@ package managers.taskmanager.inmemory;
 import domain.Epic;
 import domain.Subtask;
 import domain.Task;
+import domain.TaskType;
 import domain.exceptions.CreateTaskException;
 import domain.exceptions.OverlappingTaskTimeException;
 import domain.exceptions.TaskNotFoundException;
@@ -17,25 +18,24 @@ public class InMemoryTaskManagerImpl implements TaskManager {
 
     private final AtomicInteger taskId = new AtomicInteger(0);
 
-    private final Map<Integer, Task> tasks = new HashMap<>();
+    private final Map<Integer, Task> tasks;
 
     private final Map<Integer, Epic> epics = new HashMap<>();
 
     private final Set<Task> prioritizedTasks = new TreeSet<Task>(
-            (task1, task2) -> {
-                LocalDateTime startTime1 = task1.getStartTime();
-                LocalDateTime startTime2 = task2.getStartTime();
-                if (startTime1 == null || startTime2 == null)
-                    return 1;
-                else
-                    return startTime1.compareTo(startTime2);
-            }
+            Comparator.comparing(Task::getStartTime, Comparator.nullsLast(Comparator.<LocalDateTime>naturalOrder()))
+                    .thenComparingInt(Task::getId)
     );
 
     protected final HistoryManager historyManager;
 
     public InMemoryTaskManagerImpl(HistoryManager historyManager) {
+        this(historyManager, new HashMap<>());
+    }
+
+    protected InMemoryTaskManagerImpl(HistoryManager historyManager, Map<Integer, Task> tasksStorage) {
         this.historyManager = historyManager;
+        this.tasks = tasksStorage;
     }
 
     @Override
@@ -47,7 +47,7 @@ public class InMemoryTaskManagerImpl implements TaskManager {
     public void removeAllTasks() {
         for (Map.Entry<Integer, Task> taskEntry : tasks.entrySet()) {
             historyManager.remove(taskEntry.getKey());
-            prioritizedTasks.removeIf(t -> t.getId() == taskEntry.getKey());
+            removePrioritizedTask(taskEntry.getKey());
         }
         tasks.clear();
     }
@@ -69,7 +69,7 @@ public class InMemoryTaskManagerImpl implements TaskManager {
             if (isOverlappingTaskTime(task))
                 throw new OverlappingTaskTimeException(task.getId());
             tasks.put(task.getId(), task);
-            prioritizedTasks.add(task);
+            addPrioritizedTask(task);
         } else
             throw new CreateTaskException(task.getId());
     }
@@ -80,13 +80,13 @@ public class InMemoryTaskManagerImpl implements TaskManager {
             if (isOverlappingTaskTime(task))
                 throw new OverlappingTaskTimeException(task.getId());
             Task currentTask = tasks.get(task.getId());
-            prioritizedTasks.removeIf(t -> t.getId() == currentTask.getId());
+            removePrioritizedTask(currentTask.getId());
             currentTask.setTitle(task.getTitle());
             currentTask.setDescription(task.getDescription());
             currentTask.setStatus(task.getStatus());
             currentTask.setStartTime(task.getStartTime());
             currentTask.setDuration(task.getDuration());
-            prioritizedTasks.add(currentTask);
+            addPrioritizedTask(currentTask);
         } else {
             throw new TaskNotFoundException(task.getId());
         }
@@ -95,7 +95,7 @@ public class InMemoryTaskManagerImpl implements TaskManager {
     @Override
     public void removeTask(int id) throws TaskNotFoundException {
         if (tasks.containsKey(id)) {
-            prioritizedTasks.removeIf(t -> t.getId() == id);
+            removePrioritizedTask(id);
             tasks.remove(id);
             historyManager.remove(id);
         } else
@@ -117,7 +117,7 @@ public class InMemoryTaskManagerImpl implements TaskManager {
     public void removeAllEpics() {
         for (int epicId : epics.keySet()) {
             epics.get(epicId).getAllRelatedTasks().forEach(subtask -> {
-                prioritizedTasks.removeIf(t -> t.getId() == subtask.getId());
+                removePrioritizedTask(subtask.getId());
                 historyManager.remove(subtask.getId());
             });
             historyManager.remove(epicId);
@@ -159,7 +159,7 @@ public class InMemoryTaskManagerImpl implements TaskManager {
     public void removeEpic(int id) throws TaskNotFoundException {
         if (epics.containsKey(id)) {
             epics.get(id).getAllRelatedTasks().forEach(subtask -> {
-                prioritizedTasks.removeIf(t -> t.getId() == subtask.getId());
+                removePrioritizedTask(subtask.getId());
                 historyManager.remove(subtask.getId());
             });
             historyManager.remove(id);
@@ -202,7 +202,7 @@ public class InMemoryTaskManagerImpl implements TaskManager {
     public void removeAllSubtasks() {
         for (Epic epic : epics.values()) {
             for (Task subtask : epic.getAllRelatedTasks()) {
-                prioritizedTasks.removeIf(t -> t.getId() == subtask.getId());
+                removePrioritizedTask(subtask.getId());
                 historyManager.remove(subtask.getId());
             }
             epic.removeAllRelatedTasks();
@@ -231,7 +231,7 @@ public class InMemoryTaskManagerImpl implements TaskManager {
                 throw new OverlappingTaskTimeException(subtask.getId());
             Epic epic = epics.get(epicOfNewSubtask.getId());
             epic.addRelatedTask(subtask);
-            prioritizedTasks.add(subtask);
+            addPrioritizedTask(subtask);
         } else {
             throw new CreateTaskException(subtask.getId());
         }
@@ -244,13 +244,13 @@ public class InMemoryTaskManagerImpl implements TaskManager {
             if (isOverlappingTaskTime(subtask))
                 throw new OverlappingTaskTimeException(subtask.getId());
             Subtask currentSubtask = getSubtask(subtask.getId());
-            prioritizedTasks.removeIf(t -> t.getId() == currentSubtask.getId());
+            removePrioritizedTask(currentSubtask.getId());
             currentSubtask.setTitle(subtask.getTitle());
             currentSubtask.setDescription(subtask.getDescription());
             currentSubtask.setStatus(subtask.getStatus());
             currentSubtask.setStartTime(subtask.getStartTime());
             currentSubtask.setDuration(subtask.getDuration());
-            prioritizedTasks.add(currentSubtask);
+            addPrioritizedTask(currentSubtask);
         } else {
             throw new TaskNotFoundException(subtask.getId());
         }
@@ -261,7 +261,7 @@ public class InMemoryTaskManagerImpl implements TaskManager {
         Subtask subtask = getSubtask(id);
         Epic epic = epics.get(subtask.getAllRelatedTasks().get(0).getId());
         epic.removeRelatedTask(subtask.getId());
-        prioritizedTasks.removeIf(t -> t.getId() == subtask.getId());
+        removePrioritizedTask(subtask.getId());
         historyManager.remove(subtask.getId());
     }
 
@@ -279,6 +279,101 @@ public class InMemoryTaskManagerImpl implements TaskManager {
         taskId.set(id);
     }
 
+    protected Epic findEpic(int id) {
+        return epics.get(id);
+    }
+
+    protected Task findTaskById(TaskType taskType, int id) {
+        //поиск без записи в историю просмотров
+        switch (taskType) {
+            case TASK:
+                return tasks.get(id);
+            case EPIC:
+                return epics.get(id);
+            case SUBTASK:
+                for (Epic epic : epics.values())
+                    for (Task subtask : epic.getAllRelatedTasks())
+                        if (subtask.getId() == id)
+                            return subtask;
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    protected void restoreTasks(Collection<Task> restoredTasks, Collection<Epic> restoredEpics) {
+        //задачи из собственного снимка уже прошли проверки при создании, индексы строятся одним проходом
+        List<Task> scheduledTasks = new ArrayList<>(restoredTasks);
+        for (Task task : restoredTasks)
+            tasks.put(task.getId(), task);
+        for (Epic epic : restoredEpics) {
+            epics.put(epic.getId(), epic);
+            scheduledTasks.addAll(epic.getAllRelatedTasks());
+        }
+        scheduledTasks.forEach(this::addPrioritizedTask);
+    }
+
+    protected void restoreTask(Task task) throws TaskNotFoundException {
+        //повторное применение записи журнала дает тот же результат, проверки пройдены при исходном изменении
+        switch (task.getTaskType()) {
+            case TASK:
+                Task currentTask = tasks.get(task.getId());
+                if (currentTask == null) {
+                    tasks.put(task.getId(), task);
+                    addPrioritizedTask(task);
+                } else
+                    restoreFields(currentTask, task);
+                break;
+            case EPIC:
+                Epic currentEpic = epics.get(task.getId());
+                if (currentEpic == null)
+                    epics.put(task.getId(), (Epic) task);
+                else {
+                    currentEpic.setTitle(task.getTitle());
+                    currentEpic.setDescription(task.getDescription());
+                }
+                break;
+            case SUBTASK:
+                Epic epic = epics.get(((Subtask) task).getEpicId());
+                if (epic == null)
+                    throw new TaskNotFoundException(((Subtask) task).getEpicId());
+                Optional<Task> currentSubtask = epic.getAllRelatedTasks().stream()
+                        .filter(subtask -> subtask.getId() == task.getId()).findFirst();
+                if (currentSubtask.isPresent())
+                    restoreFields(currentSubtask.get(), task);
+                else {
+                    epic.addRelatedTask(task);
+                    addPrioritizedTask(task);
+                }
+                break;
+        }
+    }
+
+    protected void addPrioritizedTask(Task task) {
+        prioritizedTasks.add(task);
+    }
+
+    protected void removePrioritizedTask(int id) {
+        prioritizedTasks.removeIf(t -> t.getId() == id);
+    }
+
+    protected void replacePrioritizedTask(Task task) {
+        //запись с тем же id и началом находится по порядку множества, иначе перебором
+        if (!prioritizedTasks.remove(task))
+            prioritizedTasks.removeIf(t -> t.getId() == task.getId());
+        prioritizedTasks.add(task);
+    }
+
+    private void restoreFields(Task currentTask, Task task) {
+        removePrioritizedTask(currentTask.getId());
+        currentTask.setTitle(task.getTitle());
+        currentTask.setDescription(task.getDescription());
+        currentTask.setStatus(task.getStatus());
+        currentTask.setStartTime(task.getStartTime());
+        currentTask.setDuration(task.getDuration());
+        addPrioritizedTask(currentTask);
+    }
+
     private boolean isSubTaskExist(Subtask subtask) {
         try {
             this.getSubtask(subtask.getId());
@@ -288,7 +383,7 @@ public class InMemoryTaskManagerImpl implements TaskManager {
         }
     }
 
-    private boolean isOverlappingTaskTime(Task task) {
+    protected boolean isOverlappingTaskTime(Task task) {
         if (prioritizedTasks.isEmpty() || task.getStartTime() == null)
             return false;
         else {
@@ -0,0 +1,173 @@
+package managers.taskmanager.inmemory;
+
+import domain.Task;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+//хранилище задач, часть которых держится вне памяти и загружается при обращении
+public abstract class LoadingTaskMap extends AbstractMap<Integer, Task> {
+    //вытесненные экземпляры, на которые еще ссылаются снаружи (например, история просмотров):
+    //при загрузке возвращается тот же экземпляр, а не вторая копия задачи
+    private final Map<Integer, EvictedTaskRef> evictedInstances = new HashMap<>();
+    private final ReferenceQueue<Task> collectedInstances = new ReferenceQueue<>();
+
+    //задача, уже находящаяся в памяти, иначе null
+    protected abstract Task findLoaded(int id);
+
+    //чтение задачи вне памяти, null - задачи нет
+    protected abstract Task load(int id);
+
+    //загруженная через get задача переносится в память
+    protected abstract void loaded(int id, Task task);
+
+    //снимок id всех задач в любом порядке
+    protected abstract int[] ids();
+
+    //значение при обходе: по умолчанию задача загружается, как при get
+    protected Task peek(int id) {
+        return get(id);
+    }
+
+    @Override
+    public Task get(Object key) {
+        if (!(key instanceof Integer))
+            return null;
+        int id = (Integer) key;
+        Task task = findLoaded(id);
+        if (task != null)
+            return task;
+        task = load(id);
+        if (task != null)
+            loaded(id, task);
+        return task;
+    }
+
+    @Override
+    public Set<Entry<Integer, Task>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Integer, Task>> iterator() {
+                //задача читается при обращении к значению, ключи копируются до обхода
+                int[] ids = ids();
+                Arrays.sort(ids);
+                return new Iterator<>() {
+                    private int position;
+
+                    @Override
+                    public boolean hasNext() {
+                        return position < ids.length;
+                    }
+
+                    @Override
+                    public Entry<Integer, Task> next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        return new LazyEntry(ids[position++]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return LoadingTaskMap.this.size();
+            }
+        };
+    }
+
+    //заглушки в списке заменяются задачами только при обращении к элементу,
+    //вызывающий, которому нужно начало списка, не читает остальные задачи
+    public List<Task> resolvingList(List<Task> tasks, Class<? extends Task> stubType) {
+        return new ResolvingList(tasks.toArray(new Task[0]), stubType);
+    }
+
+    protected void evicted(Task task) {
+        expungeCollectedInstances();
+        evictedInstances.put(task.getId(), new EvictedTaskRef(task, collectedInstances));
+    }
+
+    protected Task findEvictedInstance(int id) {
+        expungeCollectedInstances();
+        EvictedTaskRef ref = evictedInstances.get(id);
+        return ref != null ? ref.get() : null;
+    }
+
+    protected void forgetEvictedInstance(int id) {
+        evictedInstances.remove(id);
+    }
+
+    protected void forgetEvictedInstances() {
+        evictedInstances.clear();
+    }
+
+    private void expungeCollectedInstances() {
+        EvictedTaskRef ref;
+        while ((ref = (EvictedTaskRef) collectedInstances.poll()) != null)
+            evictedInstances.remove(ref.id, ref);
+    }
+
+    private static class EvictedTaskRef extends WeakReference<Task> {
+        final int id;
+
+        EvictedTaskRef(Task task, ReferenceQueue<Task> queue) {
+            super(task, queue);
+            this.id = task.getId();
+        }
+    }
+
+    private class ResolvingList extends AbstractList<Task> implements RandomAccess {
+        private final Task[] tasks;
+        private final Class<? extends Task> stubType;
+
+        ResolvingList(Task[] tasks, Class<? extends Task> stubType) {
+            this.tasks = tasks;
+            this.stubType = stubType;
+        }
+
+        @Override
+        public Task get(int index) {
+            Task task = tasks[index];
+            if (stubType.isInstance(task)) {
+                task = peek(task.getId());
+                tasks[index] = task;
+            }
+            return task;
+        }
+
+        @Override
+        public Task set(int index, Task task) {
+            Task previous = get(index);
+            tasks[index] = task;
+            return previous;
+        }
+
+        @Override
+        public int size() {
+            return tasks.length;
+        }
+    }
+
+    private class LazyEntry implements Entry<Integer, Task> {
+        private final int id;
+
+        LazyEntry(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public Integer getKey() {
+            return id;
+        }
+
+        @Override
+        public Task getValue() {
+            return peek(id);
+        }
+
+        @Override
+        public Task setValue(Task value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
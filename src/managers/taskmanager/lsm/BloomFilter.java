@@ -0,0 +1,66 @@
+package managers.taskmanager.lsm;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+final class BloomFilter {
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASHES_COUNT = 7;
+
+    private final long[] bits;
+
+    private BloomFilter(long[] bits) {
+        this.bits = bits;
+    }
+
+    static BloomFilter create(int expectedKeys) {
+        long bitsCount = Math.max(Long.SIZE, (long) expectedKeys * BITS_PER_KEY);
+        return new BloomFilter(new long[(int) ((bitsCount + Long.SIZE - 1) / Long.SIZE)]);
+    }
+
+    static BloomFilter read(DataInputStream in) throws IOException {
+        long[] bits = new long[in.readInt()];
+        for (int i = 0; i < bits.length; i++)
+            bits[i] = in.readLong();
+        return new BloomFilter(bits);
+    }
+
+    void add(int key) {
+        //двойное хеширование: i-й бит - h1 + i * h2
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bitsCount = (long) bits.length * Long.SIZE;
+        for (int i = 0; i < HASHES_COUNT; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitsCount);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(int key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bitsCount = (long) bits.length * Long.SIZE;
+        for (int i = 0; i < HASHES_COUNT; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitsCount);
+            if ((bits[(int) (bit >>> 6)] & 1L << bit) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(bits.length);
+        for (long word : bits)
+            out.writeLong(word);
+    }
+
+    private static long mix(int key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 31;
+        hash *= 0xBF58476D1CE4E5B9L;
+        return hash ^ hash >>> 29;
+    }
+}
@@ -0,0 +1,17 @@
+package managers.taskmanager.lsm;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+interface LsmCursor extends Closeable {
+    //записи идут по возрастанию id, удаленная запись - LsmTree.TOMBSTONE
+    boolean next() throws IOException;
+
+    int id();
+
+    byte[] value();
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,164 @@
+package managers.taskmanager.lsm;
+
+import domain.exceptions.ManagerLoadException;
+import domain.exceptions.ManagerSaveException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+final class LsmScheduleIndex {
+    //задачи с временем начала лежат в корзинах по дням, значение корзины - записи id, начало, длительность
+    private static final int ENTRY_SIZE = Integer.BYTES + Long.BYTES + 2 * Integer.BYTES;
+    //задачи без длительности пересекаются по другим правилам и хранятся в отдельном диапазоне ключей
+    private static final int ZERO_DURATION_OFFSET = 1 << 30;
+    private static final long MAX_DAY = ZERO_DURATION_OFFSET - 1;
+    private static final String CLEAN_CLOSE_MARKER = "closed";
+    static final Comparator<ScheduledTask> ORDER = Comparator.comparing((ScheduledTask task) -> task.startTime)
+            .thenComparingInt(task -> task.id);
+
+    private final LsmTree tree;
+    private final Path cleanCloseMarker;
+    private final boolean closedCleanly;
+
+    LsmScheduleIndex(Path directory, long memtableMaxBytes, int compactionThreshold, boolean fsync) {
+        this.tree = new LsmTree(directory, memtableMaxBytes, compactionThreshold, fsync);
+        //индекс пишется отдельно от задач, после сбоя между записями его нужно перестроить
+        this.cleanCloseMarker = directory.resolve(CLEAN_CLOSE_MARKER);
+        try {
+            this.closedCleanly = Files.deleteIfExists(cleanCloseMarker);
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+    }
+
+    boolean wasClosedCleanly() {
+        return closedCleanly;
+    }
+
+    void add(int id, LocalDateTime startTime, int duration) {
+        if (startTime == null)
+            return;
+        int key = bucketOf(startTime, duration == 0);
+        List<ScheduledTask> bucket = read(key);
+        bucket.removeIf(task -> task.id == id);
+        ScheduledTask scheduledTask = new ScheduledTask(id, startTime, duration);
+        int position = 0;
+        while (position < bucket.size() && ORDER.compare(bucket.get(position), scheduledTask) < 0)
+            position++;
+        bucket.add(position, scheduledTask);
+        write(key, bucket);
+    }
+
+    void remove(int id, LocalDateTime startTime, int duration) {
+        if (startTime == null)
+            return;
+        int key = bucketOf(startTime, duration == 0);
+        List<ScheduledTask> bucket = read(key);
+        if (bucket.removeIf(task -> task.id == id))
+            write(key, bucket);
+    }
+
+    boolean anyMatch(boolean zeroDuration, LocalDateTime from, LocalDateTime to, Predicate<ScheduledTask> predicate) {
+        //корзины читаются по возрастанию времени начала, границы null - без ограничения
+        int fromKey = from != null ? bucketOf(from, zeroDuration) : bucketOf(LocalDateTime.MIN, zeroDuration);
+        int toKey = to != null ? bucketOf(to, zeroDuration) : bucketOf(LocalDateTime.MAX, zeroDuration);
+        boolean[] matched = {false};
+        tree.scan(fromKey, toKey, (key, value) -> {
+            for (ScheduledTask task : decode(value))
+                if (predicate.test(task)) {
+                    matched[0] = true;
+                    return false;
+                }
+            return true;
+        });
+        return matched[0];
+    }
+
+    void forEach(boolean zeroDuration, Consumer<ScheduledTask> action) {
+        anyMatch(zeroDuration, null, null, task -> {
+            action.accept(task);
+            return false;
+        });
+    }
+
+    void clear() {
+        List<Integer> keys = new ArrayList<>();
+        tree.scan((key, value) -> keys.add(key));
+        keys.forEach(tree::delete);
+    }
+
+    void flush() {
+        tree.flush();
+    }
+
+    void close() {
+        tree.close();
+        try {
+            //повторное закрытие не должно падать на уже созданном маркере
+            Files.write(cleanCloseMarker, new byte[0],
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    private List<ScheduledTask> read(int key) {
+        byte[] value = tree.get(key);
+        return value != null ? decode(value) : new ArrayList<>();
+    }
+
+    private void write(int key, List<ScheduledTask> bucket) {
+        if (bucket.isEmpty()) {
+            tree.delete(key);
+            return;
+        }
+        ByteBuffer value = ByteBuffer.allocate(bucket.size() * ENTRY_SIZE);
+        for (ScheduledTask task : bucket) {
+            value.putInt(task.id);
+            value.putLong(task.startTime.toEpochSecond(ZoneOffset.UTC));
+            value.putInt(task.startTime.getNano());
+            value.putInt(task.duration);
+        }
+        tree.put(key, value.array());
+    }
+
+    private static List<ScheduledTask> decode(byte[] value) {
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        List<ScheduledTask> bucket = new ArrayList<>(value.length / ENTRY_SIZE);
+        while (buffer.hasRemaining())
+            bucket.add(new ScheduledTask(
+                    buffer.getInt(),
+                    LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC),
+                    buffer.getInt()
+            ));
+        return bucket;
+    }
+
+    private static int bucketOf(LocalDateTime startTime, boolean zeroDuration) {
+        //дни за пределами диапазона попадают в крайние корзины, порядок корзин при этом сохраняется
+        long day = Math.max(-MAX_DAY, Math.min(MAX_DAY, startTime.toLocalDate().toEpochDay()));
+        return (int) (zeroDuration ? day + ZERO_DURATION_OFFSET : day - ZERO_DURATION_OFFSET);
+    }
+
+    static final class ScheduledTask {
+        final int id;
+        final LocalDateTime startTime;
+        final int duration;
+
+        ScheduledTask(int id, LocalDateTime startTime, int duration) {
+            this.id = id;
+            this.startTime = startTime;
+            this.duration = duration;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package managers.taskmanager.lsm;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LsmStats {
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong failedCompactions = new AtomicLong();
+    private final AtomicLong bloomFilterSkips = new AtomicLong();
+    private volatile String lastCompactionError;
+    private volatile int tablesCount;
+    private volatile int memtableEntries;
+    private volatile long recoveredRecords;
+    private volatile long truncatedBytes;
+
+    void recordFlush() {
+        flushes.incrementAndGet();
+    }
+
+    void recordCompaction() {
+        compactions.incrementAndGet();
+    }
+
+    void recordCompactionFailure(String error) {
+        failedCompactions.incrementAndGet();
+        lastCompactionError = error;
+    }
+
+    void recordBloomFilterSkip() {
+        bloomFilterSkips.incrementAndGet();
+    }
+
+    void recordRecovery(long recoveredRecords, long truncatedBytes) {
+        this.recoveredRecords = recoveredRecords;
+        this.truncatedBytes = truncatedBytes;
+    }
+
+    void updateSizes(int tablesCount, int memtableEntries) {
+        this.tablesCount = tablesCount;
+        this.memtableEntries = memtableEntries;
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    public long getCompactions() {
+        return compactions.get();
+    }
+
+    public long getFailedCompactions() {
+        return failedCompactions.get();
+    }
+
+    public String getLastCompactionError() {
+        return lastCompactionError;
+    }
+
+    public long getBloomFilterSkips() {
+        return bloomFilterSkips.get();
+    }
+
+    public int getTablesCount() {
+        return tablesCount;
+    }
+
+    public int getMemtableEntries() {
+        return memtableEntries;
+    }
+
+    public long getRecoveredRecords() {
+        return recoveredRecords;
+    }
+
+    public long getTruncatedBytes() {
+        return truncatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "LsmStats{" +
+                "flushes=" + getFlushes() +
+                ", compactions=" + getCompactions() +
+                ", failedCompactions=" + getFailedCompactions() +
+                ", lastCompactionError='" + lastCompactionError + '\'' +
+                ", bloomFilterSkips=" + getBloomFilterSkips() +
+                ", tablesCount=" + tablesCount +
+                ", memtableEntries=" + memtableEntries +
+                ", recoveredRecords=" + recoveredRecords +
+                ", truncatedBytes=" + truncatedBytes +
+                '}';
+    }
+}
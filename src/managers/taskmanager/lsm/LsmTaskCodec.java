@@ -0,0 +1,115 @@
+package managers.taskmanager.lsm;
+
+import domain.*;
+import domain.exceptions.ManagerLoadException;
+import domain.exceptions.ManagerSaveException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+final class LsmTaskCodec {
+    private static final int NO_EPIC_ID = -1;
+    private static final int NULL_LENGTH = -1;
+
+    private LsmTaskCodec() {
+    }
+
+    static byte[] encode(Task task) {
+        //поля расписания идут первыми, чтобы индекс при загрузке не читал строки
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            TaskType taskType = task.getTaskType();
+            out.writeByte(taskType.ordinal());
+            out.writeInt(task.getId());
+            out.writeByte(task.getStatus().ordinal());
+            out.writeInt(taskType != TaskType.EPIC ? task.getDuration() : 0);
+            LocalDateTime startTime = taskType != TaskType.EPIC ? task.getStartTime() : null;
+            out.writeBoolean(startTime != null);
+            if (startTime != null) {
+                out.writeLong(startTime.toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(startTime.getNano());
+            }
+            out.writeInt(task instanceof Subtask ? ((Subtask) task).getEpicId() : NO_EPIC_ID);
+            writeString(out, task.getTitle());
+            writeString(out, task.getDescription());
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+        return bytes.toByteArray();
+    }
+
+    static TaskType readType(byte[] record) {
+        return toTaskType(record[0]);
+    }
+
+    static Task decode(byte[] record) {
+        return decode(record, false);
+    }
+
+    static Task decodeSchedule(byte[] record) {
+        return decode(record, true);
+    }
+
+    private static Task decode(byte[] record, boolean scheduleOnly) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            TaskType taskType = toTaskType(in.readByte());
+            int id = in.readInt();
+            int statusOrdinal = in.readByte();
+            if (statusOrdinal < 0 || statusOrdinal >= TaskStatus.values().length)
+                throw new ManagerLoadException("Неизвестный статус задачи в записи: " + statusOrdinal);
+            TaskStatus status = TaskStatus.values()[statusOrdinal];
+            int duration = in.readInt();
+            LocalDateTime startTime = in.readBoolean()
+                    ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC) : null;
+            int epicId = in.readInt();
+            if (scheduleOnly && taskType == TaskType.TASK)
+                return new LsmTaskStub(id, startTime, duration);
+            String title = readString(in);
+            String description = readString(in);
+            switch (taskType) {
+                case TASK:
+                    Task task = new Task(id, title, description, startTime, duration);
+                    task.setStatus(status);
+                    return task;
+                case EPIC:
+                    return new Epic(id, title, description);
+                case SUBTASK:
+                    Subtask subtask = new Subtask(id, title, description, startTime, duration);
+                    subtask.epicId = epicId;
+                    subtask.setStatus(status);
+                    return subtask;
+                default:
+                    throw new ManagerLoadException("Неизвестный тип задачи");
+            }
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+    }
+
+    private static TaskType toTaskType(int ordinal) {
+        if (ordinal < 0 || ordinal >= TaskType.values().length)
+            throw new ManagerLoadException("Неизвестный тип задачи в записи: " + ordinal);
+        return TaskType.values()[ordinal];
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL_LENGTH)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
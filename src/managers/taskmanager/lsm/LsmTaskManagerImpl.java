@@ -0,0 +1,242 @@
+package managers.taskmanager.lsm;
+
+import domain.Epic;
+import domain.Subtask;
+import domain.Task;
+import domain.TaskType;
+import domain.exceptions.*;
+import managers.historymanager.HistoryManager;
+import managers.taskmanager.inmemory.InMemoryTaskManagerImpl;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+
+public class LsmTaskManagerImpl extends InMemoryTaskManagerImpl {
+    private static final long DEFAULT_MEMTABLE_MAX_BYTES = 4 * 1024 * 1024;
+    private static final int DEFAULT_MAX_CACHED_TASKS = 10_000;
+    private static final int COMPACTION_THRESHOLD = 4;
+
+    private final LsmTree tree;
+    private final LsmTaskStorage storage;
+    private final LsmScheduleIndex scheduleIndex;
+    //наибольшая длительность задач ограничивает окно поиска пересечений по индексу расписания
+    private long maxDuration;
+    private boolean restoring;
+
+    public LsmTaskManagerImpl(HistoryManager historyManager, Path directory) {
+        this(historyManager, directory, DEFAULT_MEMTABLE_MAX_BYTES, DEFAULT_MAX_CACHED_TASKS, false);
+    }
+
+    public LsmTaskManagerImpl(HistoryManager historyManager, Path directory, long memtableMaxBytes,
+                              int maxCachedTasks, boolean fsync) {
+        this(
+                historyManager, new LsmTree(directory, memtableMaxBytes, COMPACTION_THRESHOLD, fsync),
+                new LsmScheduleIndex(directory.resolve("schedule"), memtableMaxBytes, COMPACTION_THRESHOLD, fsync),
+                maxCachedTasks
+        );
+    }
+
+    private LsmTaskManagerImpl(HistoryManager historyManager, LsmTree tree, LsmScheduleIndex scheduleIndex,
+                               int maxCachedTasks) {
+        this(historyManager, tree, scheduleIndex, new LsmTaskStorage(tree, maxCachedTasks));
+    }
+
+    private LsmTaskManagerImpl(HistoryManager historyManager, LsmTree tree, LsmScheduleIndex scheduleIndex,
+                               LsmTaskStorage storage) {
+        super(historyManager, storage);
+        this.tree = tree;
+        this.storage = storage;
+        this.scheduleIndex = scheduleIndex;
+        loadFromTree();
+    }
+
+    @Override
+    public void updateTask(Task task) throws TaskNotFoundException, OverlappingTaskTimeException {
+        super.updateTask(task);
+        storage.write(task);
+    }
+
+    @Override
+    public void removeAllEpics() {
+        List<Epic> epics = getAllEpics();
+        super.removeAllEpics();
+        epics.forEach(this::deleteEpic);
+    }
+
+    @Override
+    public void createEpic(Epic epic) throws CreateTaskException {
+        super.createEpic(epic);
+        storage.write(epic);
+        epic.getAllRelatedTasks().forEach(storage::write);
+    }
+
+    @Override
+    public void updateEpic(Epic epic) throws TaskNotFoundException {
+        super.updateEpic(epic);
+        storage.write(findEpic(epic.getId()));
+    }
+
+    @Override
+    public void removeEpic(int id) throws TaskNotFoundException {
+        Epic epic = findEpic(id);
+        super.removeEpic(id);
+        deleteEpic(epic);
+    }
+
+    @Override
+    public void removeAllSubtasks() {
+        List<Subtask> subtasks = getAllSubtasks();
+        super.removeAllSubtasks();
+        subtasks.forEach(subtask -> storage.delete(subtask.getId()));
+    }
+
+    @Override
+    public void createSubtask(Subtask subtask) throws CreateTaskException, OverlappingTaskTimeException {
+        super.createSubtask(subtask);
+        storage.write(subtask);
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) throws TaskNotFoundException, OverlappingTaskTimeException {
+        super.updateSubtask(subtask);
+        storage.write(subtask);
+    }
+
+    @Override
+    public void removeSubtask(int id) throws TaskNotFoundException {
+        super.removeSubtask(id);
+        storage.delete(id);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        //порядок задач с временем начала читается из индекса расписания, задачи без него идут последними по id
+        List<LsmScheduleIndex.ScheduledTask> scheduledTasks = new ArrayList<>();
+        scheduleIndex.forEach(false, scheduledTasks::add);
+        List<LsmScheduleIndex.ScheduledTask> zeroDurationTasks = new ArrayList<>();
+        scheduleIndex.forEach(true, zeroDurationTasks::add);
+        Map<Integer, Subtask> subtasks = new HashMap<>();
+        getAllSubtasks().forEach(subtask -> subtasks.put(subtask.getId(), subtask));
+
+        List<Task> prioritizedTasks = new ArrayList<>(scheduledTasks.size() + zeroDurationTasks.size());
+        int i = 0;
+        int j = 0;
+        while (i < scheduledTasks.size() || j < zeroDurationTasks.size()) {
+            LsmScheduleIndex.ScheduledTask scheduledTask = j == zeroDurationTasks.size() || i < scheduledTasks.size()
+                    && LsmScheduleIndex.ORDER.compare(scheduledTasks.get(i), zeroDurationTasks.get(j)) < 0
+                    ? scheduledTasks.get(i++) : zeroDurationTasks.get(j++);
+            Task task = subtasks.containsKey(scheduledTask.id)
+                    ? subtasks.get(scheduledTask.id) : storage.peek(scheduledTask.id);
+            //запись индекса, не совпадающая с задачей, осталась от изменения, прерванного сбоем
+            if (task != null && scheduledTask.startTime.equals(task.getStartTime()))
+                prioritizedTasks.add(task);
+        }
+        tree.scan((id, record) -> {
+            TaskType taskType = LsmTaskCodec.readType(record);
+            if (taskType == TaskType.EPIC || LsmTaskCodec.decodeSchedule(record).getStartTime() != null)
+                return;
+            Task task = taskType == TaskType.SUBTASK ? subtasks.get(id) : storage.peek(id);
+            if (task != null)
+                prioritizedTasks.add(task);
+        });
+        return prioritizedTasks;
+    }
+
+    @Override
+    protected void addPrioritizedTask(Task task) {
+        maxDuration = Math.max(maxDuration, task.getDuration());
+        //при загрузке индекс уже содержит задачи или перестраивается отдельно
+        if (!restoring)
+            scheduleIndex.add(task.getId(), task.getStartTime(), task.getDuration());
+    }
+
+    @Override
+    protected void removePrioritizedTask(int id) {
+        //запись задачи в дереве еще не изменена, по ней находится корзина индекса
+        byte[] record = tree.get(id);
+        if (record == null)
+            return;
+        Task task = LsmTaskCodec.decodeSchedule(record);
+        scheduleIndex.remove(id, task.getStartTime(), task.getDuration());
+    }
+
+    @Override
+    protected boolean isOverlappingTaskTime(Task task) {
+        //правила пересечения совпадают с базовым менеджером: задача без длительности не имеет конца
+        LocalDateTime startTime = task.getStartTime();
+        if (startTime == null)
+            return false;
+        LocalDateTime endTime = task.getEndTime();
+        if (scheduleIndex.anyMatch(true, null, endTime, other -> other.id != task.getId()
+                && (endTime == null || other.startTime.isBefore(endTime))))
+            return true;
+        return scheduleIndex.anyMatch(false, startTime.minusMinutes(maxDuration), endTime, other ->
+                other.id != task.getId() && startTime.isBefore(other.startTime.plusMinutes(other.duration))
+                        && (endTime == null || other.startTime.isBefore(endTime)));
+    }
+
+    public LsmStats getStorageStats() {
+        return tree.getStats();
+    }
+
+    public void flush() {
+        tree.flush();
+        scheduleIndex.flush();
+    }
+
+    public void close() {
+        tree.close();
+        scheduleIndex.close();
+    }
+
+    private void deleteEpic(Epic epic) {
+        epic.getAllRelatedTasks().forEach(subtask -> storage.delete(subtask.getId()));
+        storage.delete(epic.getId());
+    }
+
+    private void loadFromTree() {
+        //в памяти остаются эпики с подзадачами, задачи читаются из дерева по запросу,
+        //порядок по времени начала хранится в индексе расписания на диске
+        Map<Integer, Epic> epics = new HashMap<>();
+        List<Subtask> subtasks = new ArrayList<>();
+        boolean rebuildIndex = !scheduleIndex.wasClosedCleanly();
+        if (rebuildIndex)
+            scheduleIndex.clear();
+        int[] tasksCount = {0};
+        int[] initialUniqueId = {0};
+        tree.scan((id, record) -> {
+            initialUniqueId[0] = Math.max(initialUniqueId[0], id);
+            TaskType taskType = LsmTaskCodec.readType(record);
+            if (taskType == TaskType.EPIC) {
+                epics.put(id, (Epic) LsmTaskCodec.decode(record));
+                return;
+            }
+            Task task;
+            if (taskType == TaskType.SUBTASK) {
+                task = LsmTaskCodec.decode(record);
+                subtasks.add((Subtask) task);
+            } else {
+                task = LsmTaskCodec.decodeSchedule(record);
+                tasksCount[0]++;
+            }
+            maxDuration = Math.max(maxDuration, task.getDuration());
+            if (rebuildIndex)
+                scheduleIndex.add(id, task.getStartTime(), task.getDuration());
+        });
+        setInitialUniqueId(initialUniqueId[0]);
+        storage.restoreCount(tasksCount[0]);
+
+        for (Subtask subtask : subtasks) {
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic != null)
+                subtask.addRelatedTask(epic);
+        }
+        restoring = true;
+        try {
+            restoreTasks(List.of(), epics.values());
+        } finally {
+            restoring = false;
+        }
+    }
+}
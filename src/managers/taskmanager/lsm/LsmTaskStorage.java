@@ -0,0 +1,145 @@
+package managers.taskmanager.lsm;
+
+import domain.Task;
+import domain.TaskType;
+import managers.taskmanager.inmemory.LoadingTaskMap;
+
+import java.util.*;
+
+final class LsmTaskStorage extends LoadingTaskMap {
+    private final LsmTree tree;
+    //в памяти держатся только недавно прочитанные задачи, остальные читаются из дерева
+    private final LinkedHashMap<Integer, Task> cachedTasks;
+    private int tasksCount;
+
+    LsmTaskStorage(LsmTree tree, int maxCachedTasks) {
+        if (maxCachedTasks < 1)
+            throw new IllegalArgumentException("Размер кеша задач должен быть больше нуля");
+        this.tree = tree;
+        this.cachedTasks = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Task> eldest) {
+                if (size() <= maxCachedTasks)
+                    return false;
+                evicted(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    void restoreCount(int tasksCount) {
+        this.tasksCount = tasksCount;
+    }
+
+    void write(Task task) {
+        tree.put(task.getId(), LsmTaskCodec.encode(task));
+    }
+
+    void delete(int id) {
+        tree.delete(id);
+    }
+
+    @Override
+    protected Task peek(int id) {
+        //чтение без помещения в кеш, для обхода всех задач
+        Task task = cachedTasks.get(id);
+        if (task == null)
+            task = findEvictedInstance(id);
+        if (task == null) {
+            task = read(id);
+            if (task != null)
+                evicted(task);
+        }
+        return task;
+    }
+
+    @Override
+    protected Task findLoaded(int id) {
+        return cachedTasks.get(id);
+    }
+
+    @Override
+    protected Task load(int id) {
+        Task task = findEvictedInstance(id);
+        return task != null ? task : read(id);
+    }
+
+    @Override
+    protected void loaded(int id, Task task) {
+        forgetEvictedInstance(id);
+        cachedTasks.put(id, task);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof Integer))
+            return false;
+        if (cachedTasks.containsKey(key))
+            return true;
+        byte[] record = tree.get((Integer) key);
+        return record != null && LsmTaskCodec.readType(record) == TaskType.TASK;
+    }
+
+    @Override
+    public Task put(Integer id, Task task) {
+        Task previous = cachedTasks.remove(id);
+        if (previous == null)
+            previous = findEvictedInstance(id);
+        if (previous == null && !containsKey(id))
+            tasksCount++;
+        write(task);
+        forgetEvictedInstance(id);
+        cachedTasks.put(id, task);
+        return previous;
+    }
+
+    @Override
+    public Task remove(Object key) {
+        if (!containsKey(key))
+            return null;
+        //удаляемая задача не читается из дерева
+        Task task = cachedTasks.remove(key);
+        if (task == null)
+            task = findEvictedInstance((Integer) key);
+        delete((Integer) key);
+        forgetEvictedInstance((Integer) key);
+        tasksCount--;
+        return task;
+    }
+
+    @Override
+    public void clear() {
+        int[] ids = ids();
+        for (int id : ids)
+            delete(id);
+        cachedTasks.clear();
+        forgetEvictedInstances();
+        tasksCount = 0;
+    }
+
+    @Override
+    public int size() {
+        return tasksCount;
+    }
+
+    @Override
+    protected int[] ids() {
+        int[][] ids = {new int[Math.max(tasksCount, 16)]};
+        int[] count = {0};
+        tree.scan((id, record) -> {
+            if (LsmTaskCodec.readType(record) != TaskType.TASK)
+                return;
+            if (count[0] == ids[0].length)
+                ids[0] = Arrays.copyOf(ids[0], count[0] * 2);
+            ids[0][count[0]++] = id;
+        });
+        return Arrays.copyOf(ids[0], count[0]);
+    }
+
+    private Task read(int id) {
+        byte[] record = tree.get(id);
+        if (record == null || LsmTaskCodec.readType(record) != TaskType.TASK)
+            return null;
+        return LsmTaskCodec.decode(record);
+    }
+}
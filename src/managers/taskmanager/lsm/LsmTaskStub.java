@@ -0,0 +1,11 @@
+package managers.taskmanager.lsm;
+
+import domain.Task;
+
+import java.time.LocalDateTime;
+
+final class LsmTaskStub extends Task {
+    LsmTaskStub(int id, LocalDateTime startTime, int duration) {
+        super(id, "", "", startTime, duration);
+    }
+}
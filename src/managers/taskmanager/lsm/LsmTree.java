@@ -0,0 +1,254 @@
+package managers.taskmanager.lsm;
+
+import domain.exceptions.ManagerLoadException;
+import domain.exceptions.ManagerSaveException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.stream.Stream;
+
+final class LsmTree {
+    //метка удаления, сравнивается по ссылке
+    static final byte[] TOMBSTONE = new byte[0];
+    //id, длина и ссылка на массив в памяти memtable
+    private static final int MEMTABLE_ENTRY_OVERHEAD = 64;
+
+    private final Path directory;
+    private final long memtableMaxBytes;
+    private final int compactionThreshold;
+    private final boolean fsync;
+    private final LsmWriteAheadLog writeAheadLog;
+    private final LsmStats stats = new LsmStats();
+    private final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "lsm-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private TreeMap<Integer, byte[]> memtable = new TreeMap<>();
+    private long memtableBytes;
+    //от новых таблиц к старым
+    private final List<SsTable> tables = new ArrayList<>();
+    private long nextSeq;
+    private boolean compactionScheduled;
+
+    LsmTree(Path directory, long memtableMaxBytes, int compactionThreshold, boolean fsync) {
+        if (memtableMaxBytes < 1 || compactionThreshold < 2)
+            throw new IllegalArgumentException("Некорректные параметры хранилища");
+        this.directory = directory;
+        this.memtableMaxBytes = memtableMaxBytes;
+        this.compactionThreshold = compactionThreshold;
+        this.fsync = fsync;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+        openTables();
+        writeAheadLog = new LsmWriteAheadLog(directory.resolve("wal.log"), fsync);
+        long[] recoveredRecords = {0};
+        writeAheadLog.replay((id, value) -> {
+            putToMemtable(id, value);
+            recoveredRecords[0]++;
+        });
+        stats.recordRecovery(recoveredRecords[0], writeAheadLog.getTruncatedBytes());
+        if (memtableBytes >= memtableMaxBytes)
+            flushMemtable();
+        else
+            scheduleCompactionIfNeeded();
+    }
+
+    synchronized byte[] get(int id) {
+        byte[] value = memtable.get(id);
+        if (value == null)
+            for (SsTable table : tables) {
+                if (!table.mightContain(id)) {
+                    stats.recordBloomFilterSkip();
+                    continue;
+                }
+                value = table.get(id);
+                if (value != null)
+                    break;
+            }
+        return value == TOMBSTONE ? null : value;
+    }
+
+    synchronized void put(int id, byte[] value) {
+        writeAheadLog.append(id, value);
+        putToMemtable(id, value);
+        if (memtableBytes >= memtableMaxBytes)
+            flushMemtable();
+    }
+
+    void delete(int id) {
+        put(id, TOMBSTONE);
+    }
+
+    void scan(BiConsumer<Integer, byte[]> action) {
+        scan(Integer.MIN_VALUE, Integer.MAX_VALUE, (id, value) -> {
+            action.accept(id, value);
+            return true;
+        });
+    }
+
+    synchronized void scan(int fromId, int toId, BiPredicate<Integer, byte[]> action) {
+        //под блокировкой сжатие не подменит читаемые таблицы, обход прекращается, когда action вернет false
+        try (LsmCursor cursor = cursor(fromId)) {
+            while (cursor.next()) {
+                //таблицы читаются с начала блока разреженного индекса
+                if (cursor.id() < fromId)
+                    continue;
+                if (cursor.id() > toId || !action.test(cursor.id(), cursor.value()))
+                    return;
+            }
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+    }
+
+    synchronized void flush() {
+        if (!memtable.isEmpty())
+            flushMemtable();
+    }
+
+    synchronized LsmStats getStats() {
+        stats.updateSizes(tables.size(), memtable.size());
+        return stats;
+    }
+
+    void close() {
+        compactionExecutor.shutdown();
+        try {
+            compactionExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            flush();
+            writeAheadLog.close();
+            tables.forEach(SsTable::close);
+            tables.clear();
+        }
+    }
+
+    private LsmCursor cursor(int fromId) throws IOException {
+        List<LsmCursor> sources = new ArrayList<>(tables.size() + 1);
+        sources.add(memtableCursor(memtable.tailMap(fromId, true)));
+        for (SsTable table : tables)
+            sources.add(table.cursor(fromId));
+        return new MergingCursor(sources, true);
+    }
+
+    private void putToMemtable(int id, byte[] value) {
+        byte[] previous = memtable.put(id, value);
+        memtableBytes += value.length + MEMTABLE_ENTRY_OVERHEAD;
+        if (previous != null)
+            memtableBytes -= previous.length + MEMTABLE_ENTRY_OVERHEAD;
+    }
+
+    private void flushMemtable() {
+        //таблица сначала становится видимой, затем журнал очищается; при сбое между ними записи повторятся
+        tables.add(0, SsTable.write(directory, nextSeq, nextSeq, memtableCursor(memtable), memtable.size(),
+                false, fsync));
+        nextSeq++;
+        memtable = new TreeMap<>();
+        memtableBytes = 0;
+        writeAheadLog.reset();
+        stats.recordFlush();
+        scheduleCompactionIfNeeded();
+    }
+
+    private void scheduleCompactionIfNeeded() {
+        if (compactionScheduled || tables.size() < compactionThreshold || compactionExecutor.isShutdown())
+            return;
+        compactionScheduled = true;
+        compactionExecutor.execute(this::compact);
+    }
+
+    private void compact() {
+        List<SsTable> inputs;
+        synchronized (this) {
+            inputs = new ArrayList<>(tables);
+        }
+        //сливаются все таблицы вместе с самой старой, поэтому метки удаления больше не нужны
+        SsTable compacted = null;
+        try {
+            List<LsmCursor> sources = new ArrayList<>(inputs.size());
+            int entriesCount = 0;
+            for (SsTable table : inputs) {
+                sources.add(table.cursor(Integer.MIN_VALUE));
+                entriesCount += table.getEntriesCount();
+            }
+            compacted = SsTable.write(directory, inputs.get(inputs.size() - 1).getMinSeq(), inputs.get(0).getMaxSeq(),
+                    new MergingCursor(sources, true), entriesCount, true, fsync);
+        } catch (IOException | ManagerSaveException | ManagerLoadException e) {
+            //таблицы остаются прежними, сжатие повторится после следующего сброса
+            stats.recordCompactionFailure(e.getMessage());
+        }
+        synchronized (this) {
+            if (compacted != null) {
+                tables.removeAll(inputs);
+                tables.add(compacted);
+                inputs.forEach(SsTable::delete);
+                stats.recordCompaction();
+            }
+            compactionScheduled = false;
+            if (compacted != null)
+                scheduleCompactionIfNeeded();
+        }
+    }
+
+    private void openTables() {
+        List<SsTable> opened = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().endsWith(".tmp"))
+                    Files.delete(file);
+                else if (SsTable.isTableFile(file))
+                    opened.add(SsTable.open(file));
+            }
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+        //входы сжатия, прерванного до удаления, покрыты диапазоном сжатой таблицы
+        for (SsTable table : opened) {
+            if (opened.stream().anyMatch(other -> other.covers(table)))
+                table.delete();
+            else
+                tables.add(table);
+        }
+        tables.sort(Comparator.comparingLong(SsTable::getMaxSeq).reversed());
+        nextSeq = tables.isEmpty() ? 0 : tables.get(0).getMaxSeq() + 1;
+    }
+
+    private static LsmCursor memtableCursor(SortedMap<Integer, byte[]> memtable) {
+        Iterator<Map.Entry<Integer, byte[]>> iterator = memtable.entrySet().iterator();
+        return new LsmCursor() {
+            private Map.Entry<Integer, byte[]> entry;
+
+            @Override
+            public boolean next() {
+                if (!iterator.hasNext())
+                    return false;
+                entry = iterator.next();
+                return true;
+            }
+
+            @Override
+            public int id() {
+                return entry.getKey();
+            }
+
+            @Override
+            public byte[] value() {
+                return entry.getValue();
+            }
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package managers.taskmanager.lsm;
+
+import domain.exceptions.ManagerLoadException;
+import domain.exceptions.ManagerSaveException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+final class LsmWriteAheadLog {
+    //запись: length, crc32, id, длина значения (-1 - удаление), значение
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int TOMBSTONE_LENGTH = -1;
+
+    private final FileChannel channel;
+    private final boolean fsync;
+    private long truncatedBytes;
+
+    LsmWriteAheadLog(Path path, boolean fsync) {
+        this.fsync = fsync;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+    }
+
+    void replay(BiConsumer<Integer, byte[]> action) {
+        //записи читаются до первой недописанной или с неверной суммой, хвост отрезается
+        try {
+            ByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            long validBytes = 0;
+            while (content.remaining() >= RECORD_HEADER_SIZE) {
+                int length = content.getInt();
+                int checksum = content.getInt();
+                if (length < 2 * Integer.BYTES || length > content.remaining())
+                    break;
+                byte[] body = new byte[length];
+                content.get(body);
+                if (checksum(body) != checksum)
+                    break;
+                ByteBuffer record = ByteBuffer.wrap(body);
+                int id = record.getInt();
+                int valueLength = record.getInt();
+                byte[] value = LsmTree.TOMBSTONE;
+                if (valueLength != TOMBSTONE_LENGTH) {
+                    value = new byte[valueLength];
+                    record.get(value);
+                }
+                action.accept(id, value);
+                validBytes = content.position();
+            }
+            truncatedBytes = channel.size() - validBytes;
+            if (truncatedBytes > 0)
+                channel.truncate(validBytes);
+            channel.position(validBytes);
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+    }
+
+    void append(int id, byte[] value) {
+        int valueLength = value == LsmTree.TOMBSTONE ? 0 : value.length;
+        ByteBuffer body = ByteBuffer.allocate(2 * Integer.BYTES + valueLength);
+        body.putInt(id).putInt(value == LsmTree.TOMBSTONE ? TOMBSTONE_LENGTH : valueLength).put(value);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + body.capacity());
+        record.putInt(body.capacity()).putInt(checksum(body.array())).put(body.array()).flip();
+        try {
+            while (record.hasRemaining())
+                channel.write(record);
+            if (fsync)
+                channel.force(false);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    void reset() {
+        try {
+            channel.truncate(0);
+            if (fsync)
+                channel.force(false);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    long getTruncatedBytes() {
+        return truncatedBytes;
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    private static int checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+}
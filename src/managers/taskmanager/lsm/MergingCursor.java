@@ -0,0 +1,67 @@
+package managers.taskmanager.lsm;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.PriorityQueue;
+
+final class MergingCursor implements LsmCursor {
+    private final List<LsmCursor> sources;
+    //источник с меньшим номером новее и побеждает при равных id
+    private final PriorityQueue<int[]> heads = new PriorityQueue<>(
+            (a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1])
+    );
+    private final boolean skipTombstones;
+    private int id;
+    private byte[] value;
+
+    MergingCursor(List<LsmCursor> newestFirst, boolean skipTombstones) throws IOException {
+        this.sources = newestFirst;
+        this.skipTombstones = skipTombstones;
+        for (int i = 0; i < newestFirst.size(); i++)
+            advance(i);
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            id = head[0];
+            value = sources.get(head[1]).value();
+            advance(head[1]);
+            //более старые версии той же записи пропускаются
+            while (!heads.isEmpty() && heads.peek()[0] == id)
+                advance(heads.poll()[1]);
+            if (!skipTombstones || value != LsmTree.TOMBSTONE)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public byte[] value() {
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (LsmCursor source : sources)
+            try {
+                source.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        if (failure != null)
+            throw failure;
+    }
+
+    private void advance(int source) throws IOException {
+        if (sources.get(source).next())
+            heads.add(new int[]{sources.get(source).id(), source});
+    }
+}
@@ -0,0 +1,282 @@
+package managers.taskmanager.lsm;
+
+import domain.exceptions.ManagerLoadException;
+import domain.exceptions.ManagerSaveException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+final class SsTable {
+    private static final int MAGIC = 0x4B535354;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = Integer.BYTES + 1;
+    //подвал: entriesCount, indexOffset, bloomOffset, magic
+    private static final int FOOTER_SIZE = Integer.BYTES + 2 * Long.BYTES + Integer.BYTES;
+    //в памяти держится смещение каждой INDEX_INTERVAL-й записи
+    private static final int INDEX_INTERVAL = 16;
+    private static final int TOMBSTONE_LENGTH = -1;
+    private static final String SUFFIX = ".sst";
+    private static final Pattern FILE_NAME = Pattern.compile("(\\d+)-(\\d+)\\" + SUFFIX);
+
+    private final Path path;
+    private final long minSeq;
+    private final long maxSeq;
+    private final FileChannel channel;
+    private final int entriesCount;
+    private final long dataEnd;
+    private final int[] indexIds;
+    private final long[] indexOffsets;
+    private final BloomFilter bloomFilter;
+
+    private SsTable(Path path, long minSeq, long maxSeq) {
+        this.path = path;
+        this.minSeq = minSeq;
+        this.maxSeq = maxSeq;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+            readFully(footer, channel.size() - FOOTER_SIZE);
+            footer.flip();
+            entriesCount = footer.getInt();
+            dataEnd = footer.getLong();
+            long bloomOffset = footer.getLong();
+            if (footer.getInt() != MAGIC)
+                throw new ManagerLoadException("Файл " + path.getFileName() + " поврежден");
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                in.skipNBytes(dataEnd);
+                int indexSize = in.readInt();
+                indexIds = new int[indexSize];
+                indexOffsets = new long[indexSize];
+                for (int i = 0; i < indexSize; i++) {
+                    indexIds[i] = in.readInt();
+                    indexOffsets[i] = in.readLong();
+                }
+                in.skipNBytes(bloomOffset - dataEnd - Integer.BYTES - (long) indexSize * (Integer.BYTES + Long.BYTES));
+                bloomFilter = BloomFilter.read(in);
+            }
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+    }
+
+    static SsTable open(Path path) {
+        Matcher matcher = FILE_NAME.matcher(path.getFileName().toString());
+        if (!matcher.matches())
+            throw new ManagerLoadException("Неизвестный файл " + path.getFileName());
+        return new SsTable(path, Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)));
+    }
+
+    static boolean isTableFile(Path path) {
+        return FILE_NAME.matcher(path.getFileName().toString()).matches();
+    }
+
+    static SsTable write(Path directory, long minSeq, long maxSeq, LsmCursor source, int expectedKeys,
+                         boolean dropTombstones, boolean fsync) {
+        Path path = directory.resolve(String.format("%016d-%016d%s", minSeq, maxSeq, SUFFIX));
+        Path tmpFile = directory.resolve(path.getFileName() + ".tmp");
+        BloomFilter bloomFilter = BloomFilter.create(expectedKeys);
+        int[] indexIds = new int[16];
+        long[] indexOffsets = new long[16];
+        int indexSize = 0;
+        int entriesCount = 0;
+        try (FileOutputStream fileOut = new FileOutputStream(tmpFile.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            while (source.next()) {
+                byte[] value = source.value();
+                if (dropTombstones && value == LsmTree.TOMBSTONE)
+                    continue;
+                if (entriesCount % INDEX_INTERVAL == 0) {
+                    if (indexSize == indexIds.length) {
+                        indexIds = Arrays.copyOf(indexIds, indexSize * 2);
+                        indexOffsets = Arrays.copyOf(indexOffsets, indexSize * 2);
+                    }
+                    indexIds[indexSize] = source.id();
+                    indexOffsets[indexSize++] = out.size();
+                }
+                out.writeInt(source.id());
+                if (value == LsmTree.TOMBSTONE) {
+                    out.writeInt(TOMBSTONE_LENGTH);
+                } else {
+                    out.writeInt(value.length);
+                    out.write(value);
+                }
+                bloomFilter.add(source.id());
+                entriesCount++;
+            }
+            //размер файла таблицы ограничен 2 ГБ счетчиком DataOutputStream
+            long dataEnd = out.size();
+            out.writeInt(indexSize);
+            for (int i = 0; i < indexSize; i++) {
+                out.writeInt(indexIds[i]);
+                out.writeLong(indexOffsets[i]);
+            }
+            long bloomOffset = out.size();
+            bloomFilter.write(out);
+            out.writeInt(entriesCount);
+            out.writeLong(dataEnd);
+            out.writeLong(bloomOffset);
+            out.writeInt(MAGIC);
+            out.flush();
+            if (fsync)
+                fileOut.getFD().sync();
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tmpFile);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new ManagerSaveException(e.getMessage());
+        } finally {
+            try {
+                source.close();
+            } catch (IOException e) {
+                throw new ManagerSaveException(e.getMessage());
+            }
+        }
+        try {
+            Files.move(tmpFile, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+        return new SsTable(path, minSeq, maxSeq);
+    }
+
+    long getMinSeq() {
+        return minSeq;
+    }
+
+    long getMaxSeq() {
+        return maxSeq;
+    }
+
+    int getEntriesCount() {
+        return entriesCount;
+    }
+
+    boolean covers(SsTable table) {
+        return this != table && minSeq <= table.minSeq && table.maxSeq <= maxSeq;
+    }
+
+    boolean mightContain(int id) {
+        return bloomFilter.mightContain(id);
+    }
+
+    byte[] get(int id) {
+        //блок между соседними точками разреженного индекса читается целиком
+        int block = Arrays.binarySearch(indexIds, id);
+        if (block < 0)
+            block = -block - 2;
+        if (block < 0)
+            return null;
+        long start = indexOffsets[block];
+        long end = block + 1 < indexOffsets.length ? indexOffsets[block + 1] : dataEnd;
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        readFully(buffer, start);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            int recordId = buffer.getInt();
+            int length = buffer.getInt();
+            if (recordId == id) {
+                if (length == TOMBSTONE_LENGTH)
+                    return LsmTree.TOMBSTONE;
+                byte[] value = new byte[length];
+                buffer.get(value);
+                return value;
+            }
+            if (recordId > id)
+                return null;
+            if (length != TOMBSTONE_LENGTH)
+                buffer.position(buffer.position() + length);
+        }
+        return null;
+    }
+
+    LsmCursor cursor(int fromId) {
+        //чтение начинается с блока разреженного индекса, в котором может лежать fromId
+        int block = Arrays.binarySearch(indexIds, fromId);
+        if (block < 0)
+            block = -block - 2;
+        long startPosition = block >= 0 ? indexOffsets[block] : HEADER_SIZE;
+        DataInputStream in;
+        try {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64 * 1024));
+            in.skipNBytes(startPosition);
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+        return new LsmCursor() {
+            private long position = startPosition;
+            private int id;
+            private byte[] value;
+
+            @Override
+            public boolean next() throws IOException {
+                if (position >= dataEnd)
+                    return false;
+                id = in.readInt();
+                int length = in.readInt();
+                if (length == TOMBSTONE_LENGTH) {
+                    value = LsmTree.TOMBSTONE;
+                    position += 2 * Integer.BYTES;
+                } else {
+                    value = new byte[length];
+                    in.readFully(value);
+                    position += 2 * Integer.BYTES + length;
+                }
+                return true;
+            }
+
+            @Override
+            public int id() {
+                return id;
+            }
+
+            @Override
+            public byte[] value() {
+                return value;
+            }
+
+            @Override
+            public void close() throws IOException {
+                in.close();
+            }
+        };
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    void delete() {
+        close();
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) {
+        try {
+            while (buffer.hasRemaining())
+                if (channel.read(buffer, position + buffer.position()) < 0)
+                    throw new ManagerLoadException("Файл " + path.getFileName() + " поврежден");
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package managers.taskmanager.mapped;
+
+import domain.Epic;
+import domain.Subtask;
+import domain.Task;
+import domain.TaskType;
+import domain.exceptions.*;
+import managers.historymanager.HistoryManager;
+import managers.taskmanager.inmemory.InMemoryTaskManagerImpl;
+
+import java.nio.file.Path;
+import java.util.*;
+
+public class MappedTaskManagerImpl extends InMemoryTaskManagerImpl {
+    private final MappedTaskStore store;
+    private final MappedTaskStorage storage;
+    private final boolean forceOnEveryWrite;
+
+    public MappedTaskManagerImpl(HistoryManager historyManager, Path path, boolean forceOnEveryWrite) {
+        this(historyManager, new MappedTaskStore(path), forceOnEveryWrite);
+    }
+
+    private MappedTaskManagerImpl(HistoryManager historyManager, MappedTaskStore store, boolean forceOnEveryWrite) {
+        this(historyManager, store, new MappedTaskStorage(store), forceOnEveryWrite);
+    }
+
+    private MappedTaskManagerImpl(HistoryManager historyManager, MappedTaskStore store, MappedTaskStorage storage,
+                                  boolean forceOnEveryWrite) {
+        super(historyManager, storage);
+        this.store = store;
+        this.storage = storage;
+        this.forceOnEveryWrite = forceOnEveryWrite;
+        storage.setLoadListener(this::replacePrioritizedTask);
+        loadFromStore();
+    }
+
+    @Override
+    public void removeAllTasks() {
+        //удаляемые задачи не декодируются, достаточно их id
+        int[] ids = storage.ids();
+        super.removeAllTasks();
+        for (int id : ids)
+            store.remove(id);
+        written();
+    }
+
+    @Override
+    public void createTask(Task task) throws CreateTaskException, OverlappingTaskTimeException {
+        super.createTask(task);
+        store.put(task);
+        written();
+    }
+
+    @Override
+    public void updateTask(Task task) throws TaskNotFoundException, OverlappingTaskTimeException {
+        super.updateTask(task);
+        store.put(task);
+        written();
+    }
+
+    @Override
+    public void removeTask(int id) throws TaskNotFoundException {
+        super.removeTask(id);
+        store.remove(id);
+        written();
+    }
+
+    @Override
+    public void removeAllEpics() {
+        List<Epic> epics = getAllEpics();
+        super.removeAllEpics();
+        epics.forEach(this::removeEpicFromStore);
+        written();
+    }
+
+    @Override
+    public void createEpic(Epic epic) throws CreateTaskException {
+        super.createEpic(epic);
+        store.put(epic);
+        epic.getAllRelatedTasks().forEach(store::put);
+        written();
+    }
+
+    @Override
+    public void updateEpic(Epic epic) throws TaskNotFoundException {
+        super.updateEpic(epic);
+        store.put(epic);
+        written();
+    }
+
+    @Override
+    public void removeEpic(int id) throws TaskNotFoundException {
+        Epic epic = findEpic(id);
+        super.removeEpic(id);
+        removeEpicFromStore(epic);
+        written();
+    }
+
+    @Override
+    public void removeAllSubtasks() {
+        List<Subtask> subtasks = getAllSubtasks();
+        super.removeAllSubtasks();
+        subtasks.forEach(subtask -> store.remove(subtask.getId()));
+        written();
+    }
+
+    @Override
+    public void createSubtask(Subtask subtask) throws CreateTaskException, OverlappingTaskTimeException {
+        super.createSubtask(subtask);
+        store.put(subtask);
+        written();
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) throws TaskNotFoundException, OverlappingTaskTimeException {
+        super.updateSubtask(subtask);
+        store.put(subtask);
+        written();
+    }
+
+    @Override
+    public void removeSubtask(int id) throws TaskNotFoundException {
+        super.removeSubtask(id);
+        store.remove(id);
+        written();
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        //строки задачи декодируются при обращении к элементу списка
+        return storage.resolvingList(super.getPrioritizedTasks(), MappedTaskStub.class);
+    }
+
+    public void flush() {
+        store.force();
+    }
+
+    public void close() {
+        store.close();
+    }
+
+    private void removeEpicFromStore(Epic epic) {
+        epic.getAllRelatedTasks().forEach(subtask -> store.remove(subtask.getId()));
+        store.remove(epic.getId());
+    }
+
+    private void written() {
+        if (forceOnEveryWrite)
+            store.force();
+    }
+
+    private void loadFromStore() {
+        //обычные задачи восстанавливаются заглушками из фиксированных полей, эпики и подзадачи - целиком
+        List<Task> tasks = new ArrayList<>(store.size());
+        Map<Integer, Epic> epics = new HashMap<>();
+        List<Subtask> subtasks = new ArrayList<>();
+        int[] initialUniqueId = {0};
+        store.forEachIndexed((id, taskType, startTime, duration) -> {
+            initialUniqueId[0] = Math.max(initialUniqueId[0], id);
+            if (taskType == TaskType.TASK)
+                tasks.add(new MappedTaskStub(id, startTime, duration));
+            else if (taskType == TaskType.EPIC)
+                epics.put(id, (Epic) store.read(id));
+            else
+                subtasks.add((Subtask) store.read(id));
+        });
+        setInitialUniqueId(initialUniqueId[0]);
+
+        for (Subtask subtask : subtasks) {
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic != null)
+                subtask.addRelatedTask(epic);
+        }
+        restoreTasks(tasks, epics.values());
+    }
+
+    int getNotLoadedTasksCount() {
+        return storage.getNotLoadedCount();
+    }
+}
@@ -0,0 +1,89 @@
+package managers.taskmanager.mapped;
+
+import domain.Task;
+import managers.taskmanager.inmemory.LoadingTaskMap;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+final class MappedTaskStorage extends LoadingTaskMap {
+    private final Map<Integer, Task> loadedTasks = new HashMap<>();
+    //задачи, для которых прочитаны только фиксированные поля слота, строки декодируются при обращении
+    private final Map<Integer, MappedTaskStub> notLoadedTasks = new HashMap<>();
+    private final MappedTaskStore store;
+    private Consumer<Task> loadListener = task -> {
+    };
+
+    MappedTaskStorage(MappedTaskStore store) {
+        this.store = store;
+    }
+
+    void setLoadListener(Consumer<Task> loadListener) {
+        this.loadListener = loadListener;
+    }
+
+    int getNotLoadedCount() {
+        return notLoadedTasks.size();
+    }
+
+    @Override
+    protected Task findLoaded(int id) {
+        return loadedTasks.get(id);
+    }
+
+    @Override
+    protected Task load(int id) {
+        return notLoadedTasks.containsKey(id) ? store.read(id) : null;
+    }
+
+    @Override
+    protected void loaded(int id, Task task) {
+        notLoadedTasks.remove(id);
+        loadedTasks.put(id, task);
+        loadListener.accept(task);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return loadedTasks.containsKey(key) || notLoadedTasks.containsKey(key);
+    }
+
+    @Override
+    public Task put(Integer id, Task task) {
+        Task previous = remove(id);
+        if (task instanceof MappedTaskStub)
+            notLoadedTasks.put(id, (MappedTaskStub) task);
+        else
+            loadedTasks.put(id, task);
+        return previous;
+    }
+
+    @Override
+    public Task remove(Object key) {
+        //удаляемая задача не декодируется, вместо нее возвращается заглушка
+        Task task = loadedTasks.remove(key);
+        return task != null ? task : notLoadedTasks.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        loadedTasks.clear();
+        notLoadedTasks.clear();
+    }
+
+    @Override
+    public int size() {
+        return loadedTasks.size() + notLoadedTasks.size();
+    }
+
+    @Override
+    protected int[] ids() {
+        int[] ids = new int[size()];
+        int i = 0;
+        for (int id : loadedTasks.keySet())
+            ids[i++] = id;
+        for (int id : notLoadedTasks.keySet())
+            ids[i++] = id;
+        return ids;
+    }
+}
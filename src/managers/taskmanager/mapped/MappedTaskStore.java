@@ -0,0 +1,328 @@
+package managers.taskmanager.mapped;
+
+import domain.*;
+import domain.exceptions.ManagerLoadException;
+import domain.exceptions.ManagerSaveException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+final class MappedTaskStore {
+    private static final int SLOTS_MAGIC = 0x4B534C54;
+    private static final int STRINGS_MAGIC = 0x4B535452;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int INITIAL_SLOTS_COUNT = 1024;
+    private static final int INITIAL_STRINGS_SIZE = 64 * 1024;
+    private static final int NO_EPIC_ID = -1;
+    private static final int NULL_LENGTH = -1;
+    private static final int NULL_NANO = -1;
+
+    //слот: state, type, status, reserved, id, epicId, duration, startSeconds, startNano,
+    //titleOffset, titleLength, titleCapacity, descriptionOffset, descriptionLength, descriptionCapacity
+    static final int SLOT_SIZE = 64;
+    private static final int STATE_OFFSET = 0;
+    private static final int TYPE_OFFSET = 1;
+    private static final int STATUS_OFFSET = 2;
+    private static final int ID_OFFSET = 4;
+    private static final int EPIC_ID_OFFSET = 8;
+    private static final int DURATION_OFFSET = 12;
+    private static final int START_SECONDS_OFFSET = 16;
+    private static final int START_NANO_OFFSET = 24;
+    private static final int TITLE_OFFSET = 28;
+    private static final int DESCRIPTION_OFFSET = 44;
+    private static final byte SLOT_FREE = 0;
+    private static final byte SLOT_USED = 1;
+
+    private final FileChannel slotsChannel;
+    private final FileChannel stringsChannel;
+    private final Map<Integer, Integer> slotsById = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private MappedByteBuffer slots;
+    private MappedByteBuffer strings;
+    private int slotsCount;
+    private int stringsTail;
+
+    MappedTaskStore(Path path) {
+        try {
+            slotsChannel = FileChannel.open(
+                    path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE
+            );
+            stringsChannel = FileChannel.open(
+                    Path.of(path + ".strings"), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE
+            );
+            openSlots();
+            openStrings();
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+        indexSlots();
+    }
+
+    int size() {
+        return slotsById.size();
+    }
+
+    void forEachIndexed(SlotVisitor visitor) {
+        //обход читает только фиксированные поля слотов, строки декодируются в read
+        for (int slot = 0; slot < slotsCount; slot++) {
+            int position = slotPosition(slot);
+            if (slots.get(position + STATE_OFFSET) == SLOT_USED)
+                visitor.visit(
+                        slots.getInt(position + ID_OFFSET), readTaskType(position),
+                        readStartTime(position), slots.getInt(position + DURATION_OFFSET)
+                );
+        }
+    }
+
+    Task read(int id) {
+        Integer slot = slotsById.get(id);
+        return slot != null ? readSlot(slot) : null;
+    }
+
+    void put(Task task) {
+        Integer slot = slotsById.get(task.getId());
+        if (slot == null) {
+            slot = allocateSlot();
+            slotsById.put(task.getId(), slot);
+            writeSlot(slot, task, NULL_LENGTH, 0, NULL_LENGTH, 0);
+        } else {
+            int position = slotPosition(slot);
+            writeSlot(
+                    slot, task,
+                    slots.getInt(position + TITLE_OFFSET + Long.BYTES + Integer.BYTES),
+                    slots.getLong(position + TITLE_OFFSET),
+                    slots.getInt(position + DESCRIPTION_OFFSET + Long.BYTES + Integer.BYTES),
+                    slots.getLong(position + DESCRIPTION_OFFSET)
+            );
+        }
+    }
+
+    void remove(int id) {
+        Integer slot = slotsById.remove(id);
+        if (slot == null)
+            return;
+        slots.put(slotPosition(slot) + STATE_OFFSET, SLOT_FREE);
+        freeSlots.push(slot);
+    }
+
+    void force() {
+        slots.force();
+        strings.force();
+    }
+
+    void close() {
+        force();
+        try {
+            slotsChannel.close();
+            stringsChannel.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    private void openSlots() throws IOException {
+        boolean created = slotsChannel.size() == 0;
+        slotsCount = created ? INITIAL_SLOTS_COUNT : (int) ((slotsChannel.size() - HEADER_SIZE) / SLOT_SIZE);
+        slots = slotsChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slotsCount * SLOT_SIZE);
+        if (created) {
+            slots.putInt(0, SLOTS_MAGIC);
+            slots.putInt(Integer.BYTES, VERSION);
+        } else if (slots.getInt(0) != SLOTS_MAGIC || slots.getInt(Integer.BYTES) != VERSION) {
+            throw new ManagerLoadException("Неизвестный формат файла задач");
+        }
+    }
+
+    private void openStrings() throws IOException {
+        boolean created = stringsChannel.size() == 0;
+        long size = created ? INITIAL_STRINGS_SIZE : stringsChannel.size();
+        strings = stringsChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (created) {
+            strings.putInt(0, STRINGS_MAGIC);
+            strings.putInt(Integer.BYTES, VERSION);
+            strings.putInt(2 * Integer.BYTES, HEADER_SIZE);
+        } else if (strings.getInt(0) != STRINGS_MAGIC || strings.getInt(Integer.BYTES) != VERSION) {
+            throw new ManagerLoadException("Неизвестный формат файла строк");
+        }
+        stringsTail = strings.getInt(2 * Integer.BYTES);
+    }
+
+    private void indexSlots() {
+        //индекс строится по фиксированным полям слотов, строки при этом не читаются
+        for (int slot = slotsCount - 1; slot >= 0; slot--) {
+            int position = slotPosition(slot);
+            if (slots.get(position + STATE_OFFSET) == SLOT_USED)
+                slotsById.put(slots.getInt(position + ID_OFFSET), slot);
+            else
+                freeSlots.push(slot);
+        }
+    }
+
+    private int allocateSlot() {
+        if (freeSlots.isEmpty())
+            growSlots();
+        return freeSlots.pop();
+    }
+
+    private void growSlots() {
+        int newSlotsCount = slotsCount * 2;
+        try {
+            slots.force();
+            slots = slotsChannel.map(
+                    FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) newSlotsCount * SLOT_SIZE
+            );
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+        for (int slot = newSlotsCount - 1; slot >= slotsCount; slot--)
+            freeSlots.push(slot);
+        slotsCount = newSlotsCount;
+    }
+
+    private void writeSlot(int slot, Task task, int titleCapacity, long titleOffset,
+                           int descriptionCapacity, long descriptionOffset) {
+        int position = slotPosition(slot);
+        slots.put(position + TYPE_OFFSET, (byte) task.getTaskType().ordinal());
+        slots.put(position + STATUS_OFFSET, (byte) task.getStatus().ordinal());
+        slots.putInt(position + ID_OFFSET, task.getId());
+        slots.putInt(position + EPIC_ID_OFFSET, getEpicId(task));
+        LocalDateTime startTime = task.getTaskType() != TaskType.EPIC ? task.getStartTime() : null;
+        slots.putInt(position + DURATION_OFFSET, task.getTaskType() != TaskType.EPIC ? task.getDuration() : 0);
+        slots.putLong(
+                position + START_SECONDS_OFFSET, startTime != null ? startTime.toEpochSecond(ZoneOffset.UTC) : 0
+        );
+        slots.putInt(position + START_NANO_OFFSET, startTime != null ? startTime.getNano() : NULL_NANO);
+        writeString(position + TITLE_OFFSET, task.getTitle(), titleOffset, titleCapacity);
+        writeString(position + DESCRIPTION_OFFSET, task.getDescription(), descriptionOffset, descriptionCapacity);
+        //новый слот становится видимым при загрузке только после записи всех полей
+        slots.put(position + STATE_OFFSET, SLOT_USED);
+    }
+
+    private void writeString(int fieldPosition, String value, long offset, int capacity) {
+        if (value == null) {
+            slots.putLong(fieldPosition, offset);
+            slots.putInt(fieldPosition + Long.BYTES, NULL_LENGTH);
+            slots.putInt(fieldPosition + Long.BYTES + Integer.BYTES, capacity);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > capacity) {
+            //строка не помещается на прежнее место и дописывается в конец области строк
+            offset = appendString(bytes.length);
+            capacity = bytes.length;
+        }
+        ByteBuffer target = strings.duplicate();
+        target.position((int) offset);
+        target.put(bytes);
+        slots.putLong(fieldPosition, offset);
+        slots.putInt(fieldPosition + Long.BYTES, bytes.length);
+        slots.putInt(fieldPosition + Long.BYTES + Integer.BYTES, capacity);
+    }
+
+    private long appendString(int length) {
+        if ((long) stringsTail + length > strings.capacity())
+            growStrings((long) stringsTail + length);
+        int offset = stringsTail;
+        stringsTail += length;
+        strings.putInt(2 * Integer.BYTES, stringsTail);
+        return offset;
+    }
+
+    private void growStrings(long requiredSize) {
+        long newSize = strings.capacity();
+        while (newSize < requiredSize)
+            newSize *= 2;
+        if (newSize > Integer.MAX_VALUE)
+            throw new ManagerSaveException("Превышен размер области строк");
+        try {
+            strings.force();
+            strings = stringsChannel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    private Task readSlot(int slot) {
+        int position = slotPosition(slot);
+        TaskType taskType = readTaskType(position);
+        TaskStatus status = readTaskStatus(position);
+        int id = slots.getInt(position + ID_OFFSET);
+        String title = readString(position + TITLE_OFFSET);
+        String description = readString(position + DESCRIPTION_OFFSET);
+        LocalDateTime startTime = readStartTime(position);
+        int duration = slots.getInt(position + DURATION_OFFSET);
+        Task task;
+        switch (taskType) {
+            case TASK:
+                task = new Task(id, title, description, startTime, duration);
+                task.setStatus(status);
+                return task;
+            case EPIC:
+                return new Epic(id, title, description);
+            case SUBTASK:
+                Subtask subtask = new Subtask(id, title, description, startTime, duration);
+                subtask.epicId = slots.getInt(position + EPIC_ID_OFFSET);
+                subtask.setStatus(status);
+                return subtask;
+            default:
+                throw new ManagerLoadException("Неизвестный тип задачи");
+        }
+    }
+
+    private TaskType readTaskType(int position) {
+        int ordinal = slots.get(position + TYPE_OFFSET);
+        //поврежденный байт слота не должен выходить за пределы перечисления
+        if (ordinal < 0 || ordinal >= TaskType.values().length)
+            throw new ManagerLoadException("Неизвестный тип задачи в слоте: " + ordinal);
+        return TaskType.values()[ordinal];
+    }
+
+    private TaskStatus readTaskStatus(int position) {
+        int ordinal = slots.get(position + STATUS_OFFSET);
+        if (ordinal < 0 || ordinal >= TaskStatus.values().length)
+            throw new ManagerLoadException("Неизвестный статус задачи в слоте: " + ordinal);
+        return TaskStatus.values()[ordinal];
+    }
+
+    private LocalDateTime readStartTime(int position) {
+        int startNano = slots.getInt(position + START_NANO_OFFSET);
+        return startNano != NULL_NANO ? LocalDateTime.ofEpochSecond(
+                slots.getLong(position + START_SECONDS_OFFSET), startNano, ZoneOffset.UTC
+        ) : null;
+    }
+
+    private String readString(int fieldPosition) {
+        int length = slots.getInt(fieldPosition + Long.BYTES);
+        if (length == NULL_LENGTH)
+            return null;
+        byte[] bytes = new byte[length];
+        ByteBuffer source = strings.duplicate();
+        source.position((int) slots.getLong(fieldPosition));
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int getEpicId(Task task) {
+        return task instanceof Subtask ? ((Subtask) task).getEpicId() : NO_EPIC_ID;
+    }
+
+    private static int slotPosition(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    interface SlotVisitor {
+        void visit(int id, TaskType taskType, LocalDateTime startTime, int duration);
+    }
+}
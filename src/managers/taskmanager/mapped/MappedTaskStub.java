@@ -0,0 +1,11 @@
+package managers.taskmanager.mapped;
+
+import domain.Task;
+
+import java.time.LocalDateTime;
+
+final class MappedTaskStub extends Task {
+    MappedTaskStub(int id, LocalDateTime startTime, int duration) {
+        super(id, "", "", startTime, duration);
+    }
+}
@@ -0,0 +1,204 @@
+package managers.taskmanager.tiered;
+
+import domain.Task;
+import domain.TaskStatus;
+import domain.exceptions.ManagerLoadException;
+import domain.exceptions.ManagerSaveException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+final class ColdTaskSegmentStore {
+    private static final long MIN_GARBAGE_BYTES_FOR_COMPACTION = 1024 * 1024;
+
+    private final Path segmentPath;
+    private final Map<Integer, Long> offsets = new HashMap<>();
+    private RandomAccessFile segment;
+    private long liveBytes;
+    private long garbageBytes;
+
+    ColdTaskSegmentStore(Path segmentPath) {
+        this.segmentPath = segmentPath;
+        try {
+            segment = new RandomAccessFile(segmentPath.toFile(), "rw");
+            segment.setLength(0);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    boolean contains(int id) {
+        return offsets.containsKey(id);
+    }
+
+    int size() {
+        return offsets.size();
+    }
+
+    Set<Integer> ids() {
+        return offsets.keySet();
+    }
+
+    void write(Task task) {
+        remove(task.getId());
+        byte[] record = encode(task);
+        try {
+            long offset = segment.length();
+            segment.seek(offset);
+            segment.writeInt(record.length);
+            segment.write(record);
+            offsets.put(task.getId(), offset);
+            liveBytes += Integer.BYTES + record.length;
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    Task read(int id) {
+        Long offset = offsets.get(id);
+        if (offset == null)
+            return null;
+        return decode(readRecord(offset));
+    }
+
+    void remove(int id) {
+        Long offset = offsets.remove(id);
+        if (offset == null)
+            return;
+        long recordSize = Integer.BYTES + readRecordLength(offset);
+        liveBytes -= recordSize;
+        garbageBytes += recordSize;
+        if (garbageBytes > liveBytes && garbageBytes > MIN_GARBAGE_BYTES_FOR_COMPACTION)
+            compact();
+    }
+
+    void clear() {
+        try {
+            segment.setLength(0);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+        offsets.clear();
+        liveBytes = 0;
+        garbageBytes = 0;
+    }
+
+    void close() {
+        try {
+            segment.close();
+            Files.deleteIfExists(segmentPath);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    private static byte[] encode(Task task) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(task.getId());
+            writeString(out, task.getTitle());
+            writeString(out, task.getDescription());
+            out.writeByte(task.getStatus().ordinal());
+            out.writeInt(task.getDuration());
+            LocalDateTime startTime = task.getStartTime();
+            out.writeBoolean(startTime != null);
+            if (startTime != null) {
+                out.writeLong(startTime.toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(startTime.getNano());
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Task decode(byte[] record) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            int id = in.readInt();
+            String title = readString(in);
+            String description = readString(in);
+            TaskStatus status = TaskStatus.values()[in.readByte()];
+            int duration = in.readInt();
+            LocalDateTime startTime = in.readBoolean()
+                    ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC) : null;
+            Task task = new Task(id, title, description, startTime, duration);
+            task.setStatus(status);
+            return task;
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte[] readRecord(long offset) {
+        try {
+            segment.seek(offset);
+            byte[] record = new byte[segment.readInt()];
+            segment.readFully(record);
+            return record;
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+    }
+
+    private int readRecordLength(long offset) {
+        try {
+            segment.seek(offset);
+            return segment.readInt();
+        } catch (IOException e) {
+            throw new ManagerLoadException(e.getMessage());
+        }
+    }
+
+    private void compact() {
+        Path compactedPath = segmentPath.resolveSibling(segmentPath.getFileName() + ".compact");
+        Map<Integer, Long> compactedOffsets = new HashMap<>(offsets.size());
+        try (RandomAccessFile compacted = new RandomAccessFile(compactedPath.toFile(), "rw")) {
+            compacted.setLength(0);
+            for (Map.Entry<Integer, Long> entry : offsets.entrySet()) {
+                byte[] record = readRecord(entry.getValue());
+                compactedOffsets.put(entry.getKey(), compacted.getFilePointer());
+                compacted.writeInt(record.length);
+                compacted.write(record);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+        try {
+            segment.close();
+            Files.move(compactedPath, segmentPath, StandardCopyOption.REPLACE_EXISTING);
+            segment = new RandomAccessFile(segmentPath.toFile(), "rw");
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+        offsets.clear();
+        offsets.putAll(compactedOffsets);
+        garbageBytes = 0;
+    }
+}
@@ -0,0 +1,9 @@
+package managers.taskmanager.tiered;
+
+import domain.Task;
+
+final class ColdTaskStub extends Task {
+    ColdTaskStub(Task task) {
+        super(task.getId(), "", "", task.getStartTime(), task.getDuration());
+    }
+}
@@ -0,0 +1,74 @@
+package managers.taskmanager.tiered;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TieredStorageStats {
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong coldReads = new AtomicLong();
+    private volatile int hotTasksCount;
+    private volatile int coldTasksCount;
+
+    void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    void recordEviction() {
+        evictions.incrementAndGet();
+    }
+
+    void recordColdRead() {
+        coldReads.incrementAndGet();
+    }
+
+    void updateSizes(int hotTasksCount, int coldTasksCount) {
+        this.hotTasksCount = hotTasksCount;
+        this.coldTasksCount = coldTasksCount;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getColdReads() {
+        return coldReads.get();
+    }
+
+    public int getHotTasksCount() {
+        return hotTasksCount;
+    }
+
+    public int getColdTasksCount() {
+        return coldTasksCount;
+    }
+
+    public double getHitRate() {
+        long total = getHits() + getMisses();
+        return total == 0 ? 0 : (double) getHits() / total;
+    }
+
+    @Override
+    public String toString() {
+        return "TieredStorageStats{" +
+                "hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", evictions=" + getEvictions() +
+                ", coldReads=" + getColdReads() +
+                ", hotTasksCount=" + hotTasksCount +
+                ", coldTasksCount=" + coldTasksCount +
+                '}';
+    }
+}
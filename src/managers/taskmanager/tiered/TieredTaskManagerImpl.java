@@ -0,0 +1,42 @@
+package managers.taskmanager.tiered;
+
+import domain.Task;
+import managers.historymanager.HistoryManager;
+import managers.taskmanager.inmemory.InMemoryTaskManagerImpl;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+public class TieredTaskManagerImpl extends InMemoryTaskManagerImpl {
+    private final TieredTaskStorage storage;
+
+    public TieredTaskManagerImpl(HistoryManager historyManager, Path coldStoragePath,
+                                 int maxHotTasks, Duration idleWindow) {
+        this(historyManager, new TieredTaskStorage(coldStoragePath, maxHotTasks, idleWindow));
+    }
+
+    private TieredTaskManagerImpl(HistoryManager historyManager, TieredTaskStorage storage) {
+        super(historyManager, storage);
+        this.storage = storage;
+        storage.setListeners(task -> replacePrioritizedTask(new ColdTaskStub(task)), this::replacePrioritizedTask);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        //холодные задачи читаются при обращении к элементу, а не все при каждом вызове
+        return storage.resolvingList(super.getPrioritizedTasks(), ColdTaskStub.class);
+    }
+
+    public void evictIdleTasks() {
+        storage.evictIdle();
+    }
+
+    public TieredStorageStats getStorageStats() {
+        return storage.getStats();
+    }
+
+    public void close() {
+        storage.close();
+    }
+}
@@ -0,0 +1,178 @@
+package managers.taskmanager.tiered;
+
+import domain.Task;
+import managers.taskmanager.inmemory.LoadingTaskMap;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Consumer;
+
+final class TieredTaskStorage extends LoadingTaskMap {
+    private final LinkedHashMap<Integer, HotEntry> hotTasks = new LinkedHashMap<>(16, 0.75f, true);
+    private final ColdTaskSegmentStore coldTasks;
+    private final int maxHotTasks;
+    private final long idleWindowMillis;
+    private final TieredStorageStats stats = new TieredStorageStats();
+    private Consumer<Task> evictionListener = task -> {
+    };
+    private Consumer<Task> loadListener = task -> {
+    };
+
+    TieredTaskStorage(Path coldStoragePath, int maxHotTasks, Duration idleWindow) {
+        if (maxHotTasks < 1)
+            throw new IllegalArgumentException("Размер горячего хранилища должен быть больше нуля");
+        this.coldTasks = new ColdTaskSegmentStore(coldStoragePath);
+        this.maxHotTasks = maxHotTasks;
+        this.idleWindowMillis = idleWindow.toMillis();
+    }
+
+    void setListeners(Consumer<Task> evictionListener, Consumer<Task> loadListener) {
+        this.evictionListener = evictionListener;
+        this.loadListener = loadListener;
+    }
+
+    TieredStorageStats getStats() {
+        stats.updateSizes(hotTasks.size(), coldTasks.size());
+        return stats;
+    }
+
+    @Override
+    protected Task peek(int id) {
+        //чтение без переноса в горячее хранилище, для обхода всех задач
+        HotEntry hotEntry = hotTasks.get(id);
+        if (hotEntry != null)
+            return hotEntry.task;
+        Task task = findEvictedInstance(id);
+        return task != null ? task : readCold(id);
+    }
+
+    void evictIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Integer, HotEntry>> iterator = hotTasks.entrySet().iterator();
+        List<Task> evicted = new ArrayList<>();
+        while (iterator.hasNext()) {
+            HotEntry hotEntry = iterator.next().getValue();
+            if (now - hotEntry.lastAccessMillis < idleWindowMillis)
+                break;
+            iterator.remove();
+            evicted.add(hotEntry.task);
+        }
+        evicted.forEach(this::spill);
+    }
+
+    void close() {
+        coldTasks.close();
+    }
+
+    @Override
+    protected Task findLoaded(int id) {
+        HotEntry hotEntry = hotTasks.get(id);
+        if (hotEntry == null)
+            return null;
+        stats.recordHit();
+        hotEntry.lastAccessMillis = System.currentTimeMillis();
+        return hotEntry.task;
+    }
+
+    @Override
+    protected Task load(int id) {
+        if (!coldTasks.contains(id))
+            return null;
+        stats.recordMiss();
+        Task task = findEvictedInstance(id);
+        return task != null ? task : readCold(id);
+    }
+
+    @Override
+    protected void loaded(int id, Task task) {
+        coldTasks.remove(id);
+        forgetEvictedInstance(id);
+        putHot(id, task);
+        loadListener.accept(task);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return hotTasks.containsKey(key) || (key instanceof Integer && coldTasks.contains((Integer) key));
+    }
+
+    @Override
+    public Task put(Integer id, Task task) {
+        Task previous = remove(id);
+        putHot(id, task);
+        return previous;
+    }
+
+    @Override
+    public Task remove(Object key) {
+        if (!(key instanceof Integer))
+            return null;
+        int id = (Integer) key;
+        HotEntry hotEntry = hotTasks.remove(id);
+        if (hotEntry != null)
+            return hotEntry.task;
+        Task task = findEvictedInstance(id);
+        if (task == null)
+            task = readCold(id);
+        coldTasks.remove(id);
+        forgetEvictedInstance(id);
+        return task;
+    }
+
+    @Override
+    public void clear() {
+        hotTasks.clear();
+        coldTasks.clear();
+        forgetEvictedInstances();
+    }
+
+    @Override
+    public int size() {
+        return hotTasks.size() + coldTasks.size();
+    }
+
+    @Override
+    protected int[] ids() {
+        int[] ids = new int[size()];
+        int i = 0;
+        for (int id : hotTasks.keySet())
+            ids[i++] = id;
+        for (int id : coldTasks.ids())
+            ids[i++] = id;
+        return ids;
+    }
+
+    private void putHot(int id, Task task) {
+        evictIdle();
+        while (hotTasks.size() >= maxHotTasks) {
+            Iterator<HotEntry> eldest = hotTasks.values().iterator();
+            HotEntry hotEntry = eldest.next();
+            eldest.remove();
+            spill(hotEntry.task);
+        }
+        hotTasks.put(id, new HotEntry(task));
+    }
+
+    private Task readCold(int id) {
+        stats.recordColdRead();
+        return coldTasks.read(id);
+    }
+
+    private void spill(Task task) {
+        coldTasks.write(task);
+        //вытесненный экземпляр, на который еще ссылаются снаружи, возвращается при следующем чтении
+        evicted(task);
+        stats.recordEviction();
+        evictionListener.accept(task);
+    }
+
+    private static class HotEntry {
+        final Task task;
+        long lastAccessMillis = System.currentTimeMillis();
+
+        HotEntry(Task task) {
+            this.task = task;
+        }
+    }
+}
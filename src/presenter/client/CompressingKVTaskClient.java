@@ -0,0 +1,95 @@
+package presenter.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class CompressingKVTaskClient implements KVTaskClient {
+    //сжатое значение: префикс, затем gzip в base64; значения без префикса читаются как есть
+    static final String COMPRESSED_PREFIX = "gz:";
+    //короткие значения после base64 только увеличиваются
+    private static final int MIN_COMPRESSED_LENGTH = 512;
+
+    private final KVTaskClient kvTaskClient;
+    private volatile boolean compressing;
+
+    public CompressingKVTaskClient(KVTaskClient kvTaskClient, boolean compressing) {
+        this.kvTaskClient = kvTaskClient;
+        this.compressing = compressing;
+    }
+
+    public void setCompressing(boolean compressing) {
+        this.compressing = compressing;
+    }
+
+    @Override
+    public void put(String key, String json) {
+        kvTaskClient.put(key, encode(json));
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(String key, String json) {
+        return kvTaskClient.putAsync(key, encode(json));
+    }
+
+    @Override
+    public void delete(String key) {
+        kvTaskClient.delete(key);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(String key) {
+        return kvTaskClient.deleteAsync(key);
+    }
+
+    @Override
+    public String load(String key) {
+        return decode(kvTaskClient.load(key));
+    }
+
+    @Override
+    public CompletableFuture<String> loadAsync(String key) {
+        return kvTaskClient.loadAsync(key).thenApply(CompressingKVTaskClient::decode);
+    }
+
+    private String encode(String json) {
+        if (compressing && json.length() >= MIN_COMPRESSED_LENGTH)
+            return COMPRESSED_PREFIX + Base64.getEncoder().encodeToString(compress(json));
+        return json;
+    }
+
+    private static String decode(String value) {
+        if (value == null || !value.startsWith(COMPRESSED_PREFIX))
+            return value;
+        return decompress(Base64.getDecoder().decode(value.substring(COMPRESSED_PREFIX.length())));
+    }
+
+    private static byte[] compress(String json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length() / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        }) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String decompress(byte[] compressed) {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,7 +1,38 @@
 package presenter.client;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface KVTaskClient {
     void put(String key, String json);
 
-    String load(String key); // key будет идентификатор задачи //value будет значение json возможно в обернутом виде
+    void delete(String key);
+
+    String load(String key); // key будет идентификатор задачи //value будет значение json возможно в обернутом виде, null если ключ не найден
+
+    //по умолчанию запрос выполняется синхронно, клиенты с неблокирующей отправкой переопределяют
+    default CompletableFuture<Void> putAsync(String key, String json) {
+        try {
+            put(key, json);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    default CompletableFuture<Void> deleteAsync(String key) {
+        try {
+            delete(key);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    default CompletableFuture<String> loadAsync(String key) {
+        try {
+            return CompletableFuture.completedFuture(load(key));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 }
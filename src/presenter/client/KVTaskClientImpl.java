@@ -7,53 +7,170 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 public class KVTaskClientImpl implements KVTaskClient {
 
     private static final Charset CHARSET = StandardCharsets.UTF_8;
+    //запросы сверх лимита ждут в очереди, вызывающий поток не блокируется
+    private static final int MAX_IN_FLIGHT_REQUESTS = 64;
     private final String url;
     private final HttpClient httpClient;
     private final String token;
+    //запуски, ожидающие освобождения места среди отправленных запросов, защищены блокировкой очереди
+    private final Queue<Runnable> pendingRequests = new ArrayDeque<>();
+    private int inFlightRequests;
+    //последний запрос по ключу, следующий запрос того же ключа отправляется после его завершения
+    private final Map<String, CompletableFuture<?>> lastRequestByKey = new HashMap<>();
 
     public KVTaskClientImpl(String url) {
+        this(url, null);
+    }
+
+    public KVTaskClientImpl(String url, Executor executor) {
         this.url = url;
-        httpClient = HttpClient.newHttpClient();
+        HttpClient.Builder builder = HttpClient.newBuilder();
+        if (executor != null)
+            builder.executor(executor);
+        httpClient = builder.build();
         token = register();
     }
 
     @Override
     public void put(String key, String json) {
+        join(putAsync(key, json));
+    }
+
+    @Override
+    public void delete(String key) {
+        join(deleteAsync(key));
+    }
+
+    @Override
+    public String load(String key) {
+        return join(loadAsync(key));
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(String key, String json) {
         HttpRequest httpRequest = HttpRequest
                 .newBuilder(URI.create(url + "/save/" + key + "?API_TOKEN=" + token))
                 .POST(HttpRequest.BodyPublishers.ofString(json, CHARSET))
                 .build();
-        try {
-            HttpResponse<Void> httpResponse = httpClient.send(httpRequest, HttpResponse.BodyHandlers.discarding());
-            if (httpResponse.statusCode() != 200)
-                throw new RuntimeException("Не удалось сохранить значение");
-        } catch (IOException | InterruptedException | RuntimeException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        }
+        return send(key, () -> httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.discarding())
+                .thenApply(httpResponse -> {
+                    if (httpResponse.statusCode() != 200)
+                        throw new RuntimeException("Не удалось сохранить значение");
+                    return null;
+                }));
     }
 
     @Override
-    public String load(String key) {
+    public CompletableFuture<Void> deleteAsync(String key) {
+        HttpRequest httpRequest = HttpRequest
+                .newBuilder(URI.create(url + "/delete/" + key + "?API_TOKEN=" + token))
+                .DELETE()
+                .build();
+        return send(key, () -> httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.discarding())
+                .thenApply(httpResponse -> {
+                    if (httpResponse.statusCode() != 200)
+                        throw new RuntimeException("Не удалось удалить значение");
+                    return null;
+                }));
+    }
+
+    @Override
+    public CompletableFuture<String> loadAsync(String key) {
         HttpRequest httpRequest = HttpRequest
                 .newBuilder(URI.create(url + "/load/" + key + "?API_TOKEN=" + token))
                 .GET()
                 .build();
+        return send(key, () -> httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString(CHARSET))
+                .thenApply(response -> {
+                    if (response.statusCode() == 200)
+                        return response.body();
+                    else if (response.statusCode() == 404)
+                        return null;
+                    else
+                        throw new RuntimeException("Не удалось получить значение");
+                }));
+    }
+
+    private <T> CompletableFuture<T> send(String key, Supplier<CompletableFuture<T>> request) {
+        CompletableFuture<T> response = new CompletableFuture<>();
+        Runnable launch = () -> launch(request, response);
+        CompletableFuture<?> previous;
+        synchronized (lastRequestByKey) {
+            previous = lastRequestByKey.put(key, response);
+        }
+        //результат предыдущего запроса не важен, важен только порядок
+        if (previous == null)
+            submit(launch);
+        else
+            previous.whenComplete((ignored, e) -> submit(launch));
+        response.whenComplete((ignored, e) -> {
+            synchronized (lastRequestByKey) {
+                lastRequestByKey.remove(key, response);
+            }
+        });
+        return response;
+    }
+
+    private void submit(Runnable launch) {
+        synchronized (pendingRequests) {
+            if (inFlightRequests == MAX_IN_FLIGHT_REQUESTS) {
+                pendingRequests.add(launch);
+                return;
+            }
+            inFlightRequests++;
+        }
+        launch.run();
+    }
+
+    private <T> void launch(Supplier<CompletableFuture<T>> request, CompletableFuture<T> response) {
+        CompletableFuture<T> sent;
         try {
-            HttpResponse<String> response = httpClient.send(
-                    httpRequest, HttpResponse.BodyHandlers.ofString(CHARSET)
-            );
-            if (response.statusCode() == 200)
-                return response.body();
+            sent = request.get();
+        } catch (RuntimeException e) {
+            //запрос не отправлен, место освобождается сразу
+            release();
+            response.completeExceptionally(e);
+            return;
+        }
+        sent.whenComplete((result, e) -> {
+            release();
+            if (e != null)
+                response.completeExceptionally(e);
             else
-                throw new RuntimeException("Не удалось получить значение");
-        } catch (IOException | InterruptedException | RuntimeException e) {
+                response.complete(result);
+        });
+    }
+
+    private void release() {
+        Runnable next;
+        synchronized (pendingRequests) {
+            //место завершенного запроса передается следующему из очереди
+            next = pendingRequests.poll();
+            if (next == null)
+                inFlightRequests--;
+        }
+        if (next != null)
+            next.run();
+    }
+
+    private static <T> T join(CompletableFuture<T> response) {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
             e.printStackTrace();
-            throw new RuntimeException(e);
+            throw new RuntimeException(e.getCause());
         }
     }
 
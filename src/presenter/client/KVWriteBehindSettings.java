@@ -0,0 +1,43 @@
+package presenter.client;
+
+import java.time.Duration;
+
+public class KVWriteBehindSettings {
+    public static final int DEFAULT_MAX_BUFFERED_WRITES = 10_000;
+
+    private final Duration maxLag;
+    private final int maxConcurrentWrites;
+    private final Duration maxRetryDelay;
+    private final int maxBufferedWrites;
+
+    public KVWriteBehindSettings(Duration maxLag, int maxConcurrentWrites, Duration maxRetryDelay) {
+        this(maxLag, maxConcurrentWrites, maxRetryDelay, DEFAULT_MAX_BUFFERED_WRITES);
+    }
+
+    public KVWriteBehindSettings(Duration maxLag, int maxConcurrentWrites, Duration maxRetryDelay,
+                                 int maxBufferedWrites) {
+        if (maxLag.isNegative() || maxConcurrentWrites < 1 || maxRetryDelay.compareTo(maxLag) < 0
+                || maxBufferedWrites < 1)
+            throw new IllegalArgumentException("Некорректные параметры отложенной записи");
+        this.maxLag = maxLag;
+        this.maxConcurrentWrites = maxConcurrentWrites;
+        this.maxRetryDelay = maxRetryDelay;
+        this.maxBufferedWrites = maxBufferedWrites;
+    }
+
+    public Duration getMaxLag() {
+        return maxLag;
+    }
+
+    public int getMaxConcurrentWrites() {
+        return maxConcurrentWrites;
+    }
+
+    public Duration getMaxRetryDelay() {
+        return maxRetryDelay;
+    }
+
+    public int getMaxBufferedWrites() {
+        return maxBufferedWrites;
+    }
+}
@@ -0,0 +1,81 @@
+package presenter.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class KVWriteBehindStats {
+    private final AtomicLong bufferedWrites = new AtomicLong();
+    private final AtomicLong coalescedWrites = new AtomicLong();
+    private final AtomicLong flushedWrites = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+    private final AtomicLong rejectedWrites = new AtomicLong();
+    private volatile long queueDepth;
+    private volatile long lagMillis;
+    private volatile int consecutiveFailedFlushes;
+
+    void recordBuffered(boolean coalesced) {
+        bufferedWrites.incrementAndGet();
+        if (coalesced)
+            coalescedWrites.incrementAndGet();
+    }
+
+    void recordRejected() {
+        rejectedWrites.incrementAndGet();
+    }
+
+    void recordFlush(long flushed, long failed, int consecutiveFailedFlushes) {
+        flushedWrites.addAndGet(flushed);
+        failedWrites.addAndGet(failed);
+        this.consecutiveFailedFlushes = consecutiveFailedFlushes;
+    }
+
+    void updateQueue(long queueDepth, long lagMillis) {
+        this.queueDepth = queueDepth;
+        this.lagMillis = lagMillis;
+    }
+
+    public long getBufferedWrites() {
+        return bufferedWrites.get();
+    }
+
+    public long getCoalescedWrites() {
+        return coalescedWrites.get();
+    }
+
+    public long getFlushedWrites() {
+        return flushedWrites.get();
+    }
+
+    public long getFailedWrites() {
+        return failedWrites.get();
+    }
+
+    public long getRejectedWrites() {
+        return rejectedWrites.get();
+    }
+
+    public long getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public int getConsecutiveFailedFlushes() {
+        return consecutiveFailedFlushes;
+    }
+
+    @Override
+    public String toString() {
+        return "KVWriteBehindStats{" +
+                "bufferedWrites=" + getBufferedWrites() +
+                ", coalescedWrites=" + getCoalescedWrites() +
+                ", flushedWrites=" + getFlushedWrites() +
+                ", failedWrites=" + getFailedWrites() +
+                ", rejectedWrites=" + getRejectedWrites() +
+                ", queueDepth=" + queueDepth +
+                ", lagMillis=" + lagMillis +
+                ", consecutiveFailedFlushes=" + consecutiveFailedFlushes +
+                '}';
+    }
+}
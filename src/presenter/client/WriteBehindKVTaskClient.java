@@ -0,0 +1,244 @@
+package presenter.client;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class WriteBehindKVTaskClient implements KVTaskClient {
+    private static final int SEND_PHASES = 3;
+
+    private final KVTaskClient kvTaskClient;
+    private final KVWriteBehindSettings settings;
+    //ключи, значения которых ссылаются на другие ключи, записываются после значений, на которые ссылаются
+    private final Set<String> indexKeys;
+    private final KVWriteBehindStats stats = new KVWriteBehindStats();
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "kv-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+    //на каждый ключ хранится только последнее значение, null - ключ удален
+    private final Map<String, PendingWrite> pendingWrites = new LinkedHashMap<>();
+    //значения, отправленные хранилищу, но еще не подтвержденные, видны при чтении
+    private Map<String, PendingWrite> flushingWrites = Map.of();
+    private boolean flushScheduled;
+    private int consecutiveFailedFlushes;
+    private boolean closed;
+
+    public WriteBehindKVTaskClient(KVTaskClient kvTaskClient, KVWriteBehindSettings settings) {
+        this(kvTaskClient, settings, Set.of());
+    }
+
+    public WriteBehindKVTaskClient(KVTaskClient kvTaskClient, KVWriteBehindSettings settings, Set<String> indexKeys) {
+        this.kvTaskClient = kvTaskClient;
+        this.settings = settings;
+        this.indexKeys = Set.copyOf(indexKeys);
+        //после закрытия отложенные повторы не выполняются, остаток записывается в close
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    @Override
+    public void put(String key, String json) {
+        if (!buffer(key, json))
+            throw bufferFull();
+    }
+
+    @Override
+    public void delete(String key) {
+        if (!buffer(key, null))
+            throw bufferFull();
+    }
+
+    @Override
+    public String load(String key) {
+        synchronized (this) {
+            PendingWrite pendingWrite = findPendingWrite(key);
+            if (pendingWrite != null)
+                return pendingWrite.json;
+        }
+        return kvTaskClient.load(key);
+    }
+
+    //запись считается принятой, когда значение попало в буфер
+    @Override
+    public CompletableFuture<Void> putAsync(String key, String json) {
+        if (!buffer(key, json))
+            return CompletableFuture.failedFuture(bufferFull());
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(String key) {
+        if (!buffer(key, null))
+            return CompletableFuture.failedFuture(bufferFull());
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<String> loadAsync(String key) {
+        synchronized (this) {
+            PendingWrite pendingWrite = findPendingWrite(key);
+            if (pendingWrite != null)
+                return CompletableFuture.completedFuture(pendingWrite.json);
+        }
+        return kvTaskClient.loadAsync(key);
+    }
+
+    public CompletableFuture<Void> flush() {
+        return CompletableFuture.runAsync(this::flushPending, executor);
+    }
+
+    public synchronized KVWriteBehindStats getStats() {
+        long now = System.currentTimeMillis();
+        long oldestBufferedAt = now;
+        for (PendingWrite pendingWrite : pendingWrites.values())
+            oldestBufferedAt = Math.min(oldestBufferedAt, pendingWrite.bufferedAtMillis);
+        for (PendingWrite pendingWrite : flushingWrites.values())
+            oldestBufferedAt = Math.min(oldestBufferedAt, pendingWrite.bufferedAtMillis);
+        stats.updateQueue(pendingWrites.size() + flushingWrites.size(), now - oldestBufferedAt);
+        return stats;
+    }
+
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        try {
+            flush().join();
+        } finally {
+            executor.shutdown();
+        }
+        synchronized (this) {
+            if (!pendingWrites.isEmpty())
+                throw new RuntimeException("Не удалось записать значения: " + pendingWrites.size());
+        }
+    }
+
+    private synchronized boolean buffer(String key, String json) {
+        if (closed)
+            throw new IllegalStateException("Клиент закрыт");
+        PendingWrite pendingWrite = pendingWrites.get(key);
+        if (pendingWrite != null) {
+            pendingWrite.json = json;
+        } else {
+            //новый ключ не принимается в заполненный буфер, значение существующего заменяется всегда
+            int bufferedWrites = pendingWrites.size() + flushingWrites.size();
+            if (bufferedWrites >= settings.getMaxBufferedWrites()) {
+                stats.recordRejected();
+                return false;
+            }
+            pendingWrites.put(key, new PendingWrite(json, System.currentTimeMillis()));
+            //заполненный буфер сбрасывается, не дожидаясь задержки, если хранилище отвечает
+            if (bufferedWrites + 1 == settings.getMaxBufferedWrites() && consecutiveFailedFlushes == 0)
+                executor.execute(this::flushPending);
+        }
+        stats.recordBuffered(pendingWrite != null);
+        if (!flushScheduled)
+            scheduleFlush(settings.getMaxLag().toMillis());
+        return true;
+    }
+
+    private RuntimeException bufferFull() {
+        return new IllegalStateException("Буфер отложенной записи заполнен: " + settings.getMaxBufferedWrites());
+    }
+
+    private PendingWrite findPendingWrite(String key) {
+        PendingWrite pendingWrite = pendingWrites.get(key);
+        return pendingWrite != null ? pendingWrite : flushingWrites.get(key);
+    }
+
+    private void scheduleFlush(long delayMillis) {
+        flushScheduled = true;
+        executor.schedule(this::flushPending, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushPending() {
+        Map<String, PendingWrite> batch;
+        synchronized (this) {
+            flushScheduled = false;
+            if (pendingWrites.isEmpty())
+                return;
+            batch = new LinkedHashMap<>(pendingWrites);
+            pendingWrites.clear();
+            flushingWrites = batch;
+        }
+
+        //сначала записываются значения, затем ключи-указатели, последними - удаления,
+        //указатель не опережает значение, ключ не пропадает раньше, чем записаны ссылки на его замену
+        Map<String, PendingWrite> failedWrites = new ConcurrentHashMap<>();
+        Semaphore writes = new Semaphore(settings.getMaxConcurrentWrites());
+        for (int phase = 0; phase < SEND_PHASES; phase++)
+            sendAll(batch, phase, writes, failedWrites);
+
+        synchronized (this) {
+            flushingWrites = Map.of();
+            //значение, записанное в буфер во время отправки, новее неудачно отправленного
+            batch.forEach((key, write) -> {
+                if (failedWrites.containsKey(key))
+                    pendingWrites.putIfAbsent(key, write);
+            });
+            consecutiveFailedFlushes = failedWrites.isEmpty() ? 0 : consecutiveFailedFlushes + 1;
+            stats.recordFlush(batch.size() - failedWrites.size(), failedWrites.size(), consecutiveFailedFlushes);
+            if (!pendingWrites.isEmpty() && !flushScheduled && !closed)
+                scheduleFlush(consecutiveFailedFlushes == 0
+                        ? settings.getMaxLag().toMillis() : getRetryDelayMillis());
+        }
+    }
+
+    private void sendAll(Map<String, PendingWrite> batch, int phase, Semaphore writes,
+                         Map<String, PendingWrite> failedWrites) {
+        //после неудачи предыдущего этапа записи откладываются до повторного сброса вместе с ним
+        boolean deferred = !failedWrites.isEmpty();
+        List<CompletableFuture<Void>> sent = new ArrayList<>();
+        for (Map.Entry<String, PendingWrite> entry : batch.entrySet()) {
+            String key = entry.getKey();
+            PendingWrite write = entry.getValue();
+            if (getSendPhase(key, write) != phase)
+                continue;
+            if (deferred) {
+                failedWrites.put(key, write);
+                continue;
+            }
+            writes.acquireUninterruptibly();
+            CompletableFuture<Void> request;
+            try {
+                request = write.json != null ? kvTaskClient.putAsync(key, write.json) : kvTaskClient.deleteAsync(key);
+            } catch (RuntimeException e) {
+                request = CompletableFuture.failedFuture(e);
+            }
+            sent.add(request.whenComplete((ignored, e) -> {
+                writes.release();
+                if (e != null)
+                    failedWrites.put(key, write);
+            }));
+        }
+        try {
+            CompletableFuture.allOf(sent.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            //неудачные ключи собраны в failedWrites и будут отправлены повторно
+        }
+    }
+
+    private int getSendPhase(String key, PendingWrite write) {
+        if (write.json == null)
+            return 2;
+        return indexKeys.contains(key) ? 1 : 0;
+    }
+
+    private long getRetryDelayMillis() {
+        //задержка удваивается после каждой неудачной попытки до заданного предела
+        long delayMillis = Math.max(1, settings.getMaxLag().toMillis());
+        for (int i = 1; i < consecutiveFailedFlushes && delayMillis < settings.getMaxRetryDelay().toMillis(); i++)
+            delayMillis *= 2;
+        return Math.min(delayMillis, settings.getMaxRetryDelay().toMillis());
+    }
+
+    private static class PendingWrite {
+        private String json;
+        private final long bufferedAtMillis;
+
+        PendingWrite(String json, long bufferedAtMillis) {
+            this.json = json;
+            this.bufferedAtMillis = bufferedAtMillis;
+        }
+    }
+}
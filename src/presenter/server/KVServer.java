@@ -5,23 +5,42 @@ import com.sun.net.httpserver.HttpServer;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 public class KVServer {
     public static final int PORT = 8078;
+
     private final String apiToken;
     private final HttpServer server;
-    private final Map<String, String> data = new HashMap<>();
+    //обработчики выполняются параллельно, каждое значение заменяется целиком
+    private final Map<String, String> data = new ConcurrentHashMap<>();
+    //пул, созданный самим сервером, останавливается вместе с ним
+    private final ExecutorService ownExecutor;
 
     public KVServer() throws IOException {
+        this(null);
+    }
+
+    public KVServer(Executor executor) throws IOException {
         apiToken = generateApiToken();
         server = HttpServer.create(new InetSocketAddress("localhost", PORT), 0);
+        ownExecutor = executor == null ? Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "kv-server");
+                    thread.setDaemon(true);
+                    return thread;
+                }) : null;
+        server.setExecutor(executor != null ? executor : ownExecutor);
         server.createContext("/register", this::register);
         server.createContext("/save", this::save);
         server.createContext("/load", this::load);
+        server.createContext("/delete", this::delete);
     }
 
     private void load(HttpExchange h) throws IOException {
@@ -38,11 +57,14 @@ public class KVServer {
                     h.sendResponseHeaders(400, 0);
                     return;
                 }
-                if (data.containsKey(key)) {
-                    h.sendResponseHeaders(200, 0);
-                    h.getResponseBody().write(data.get(key).getBytes(UTF_8));
+                //значение читается один раз, ключ могут удалить между проверкой и чтением
+                String value = data.get(key);
+                if (value != null) {
+                    //длина известна заранее, ответ отправляется без разбиения на части
+                    byte[] resp = value.getBytes(UTF_8);
+                    h.sendResponseHeaders(200, resp.length);
+                    h.getResponseBody().write(resp);
                 } else {
-                    System.out.println("Значения ключа " + key + " не найдено");
                     h.sendResponseHeaders(404, 0);
                 }
             } else {
@@ -56,7 +78,6 @@ public class KVServer {
 
     private void save(HttpExchange h) throws IOException {
         try {
-            System.out.println("\n/save");
             if (!hasAuth(h)) {
                 System.out.println("Запрос неавторизован, нужен параметр в query API_TOKEN со значением апи-ключа");
                 h.sendResponseHeaders(403, 0);
@@ -76,7 +97,7 @@ public class KVServer {
                     return;
                 }
                 data.put(key, value);
-                System.out.println("Значение для ключа " + key + " успешно обновлено!");
+                //длина -1 закрывает соединение после ответа, а клиент отправляет по нему следующий запрос
                 h.sendResponseHeaders(200, 0);
             } else {
                 System.out.println("/save ждёт POST-запрос, а получил: " + h.getRequestMethod());
@@ -87,6 +108,32 @@ public class KVServer {
         }
     }
 
+    private void delete(HttpExchange h) throws IOException {
+        try {
+            if (!hasAuth(h)) {
+                System.out.println("Запрос неавторизован, нужен параметр в query API_TOKEN со значением апи-ключа");
+                h.sendResponseHeaders(403, 0);
+                return;
+            }
+            if ("DELETE".equals(h.getRequestMethod())) {
+                String key = h.getRequestURI().getPath().substring("/delete/".length());
+                if (key.isEmpty()) {
+                    System.out.println("Key для удаления пустой. key указывается в пути: /delete/{key}");
+                    h.sendResponseHeaders(400, 0);
+                    return;
+                }
+                //удаление отсутствующего ключа не ошибка, повтор запроса дает тот же результат
+                data.remove(key);
+                h.sendResponseHeaders(200, 0);
+            } else {
+                System.out.println("/delete ждёт DELETE-запрос, а получил: " + h.getRequestMethod());
+                h.sendResponseHeaders(405, 0);
+            }
+        } finally {
+            h.close();
+        }
+    }
+
     private void register(HttpExchange h) throws IOException {
         try {
             System.out.println("\n/register");
@@ -111,6 +158,8 @@ public class KVServer {
     public void stop() {
         if (server != null)
             server.stop(0);
+        if (ownExecutor != null)
+            ownExecutor.shutdown();
         System.out.println("KVServer успешно остановлен");
     }
 
@@ -11,6 +11,9 @@ import domain.exceptions.OverlappingTaskTimeException;
 import domain.exceptions.TaskNotFoundException;
 import managers.Managers;
 import managers.historymanager.HistoryManager;
+import managers.historymanager.analytics.TaskViewFrequency;
+import managers.historymanager.analytics.ViewFrequencyTracker;
+import managers.historymanager.session.SessionHistoryManager;
 import managers.taskmanager.TaskManager;
 import presenter.config.GsonConfig;
 
@@ -22,13 +25,19 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
 
 public class TasksHandler implements HttpHandler {
     private final Gson gson = GsonConfig.getGson();
     private static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
+    private static final String SESSION_HEADER = "X-Session-Token";
+    private static final Pattern SESSION_TOKEN_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final int DEFAULT_HOT_TASKS_LIMIT = 10;
 
     private final TaskManager taskManager = Managers.getDefault();
     private final HistoryManager historyManager = Managers.getDefaultHistory();
+    private final SessionHistoryManager sessionHistoryManager = Managers.getSessionHistory();
+    private final ViewFrequencyTracker viewFrequencyTracker = Managers.getViewFrequencyTracker();
 
     private final Map<RequestInfo, BiConsumer<RequestInfo, HttpExchange>> taskHandlers = new HashMap<>();
 
@@ -41,7 +50,17 @@ public class TasksHandler implements HttpHandler {
         URI uri = exchange.getRequestURI();
         String method = exchange.getRequestMethod();
         RequestInfo requestInfo = new RequestInfo(uri, method);
-        taskHandlers.get(requestInfo).accept(requestInfo, exchange);
+        String sessionToken = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+        if (sessionToken == null)
+            sessionToken = SessionHistoryManager.DEFAULT_SESSION;
+        else if (!SESSION_TOKEN_PATTERN.matcher(sessionToken).matches()) {
+            exchange.sendResponseHeaders(400, 0);
+            exchange.close();
+            return;
+        }
+        sessionHistoryManager.runInSession(
+                sessionToken, () -> taskHandlers.get(requestInfo).accept(requestInfo, exchange)
+        );
     }
 
     private void initHttpHandlers() {
@@ -93,6 +112,9 @@ public class TasksHandler implements HttpHandler {
         taskHandlers.put(new RequestInfo(URI.create("/tasks/history"), "GET"),
                 (RequestInfo requestInfo, HttpExchange exchange) -> getHistory(exchange)
         );
+        taskHandlers.put(new RequestInfo(URI.create("/tasks/history?limit=*"), "GET"), this::getLastHistory);
+        taskHandlers.put(new RequestInfo(URI.create("/tasks/hot"), "GET"), this::getHotTasks);
+        taskHandlers.put(new RequestInfo(URI.create("/tasks/hot?limit=*"), "GET"), this::getHotTasks);
         taskHandlers.put(new RequestInfo(URI.create("/tasks"), "GET"),
                 (RequestInfo requestInfo, HttpExchange exchange) -> getPrioritizedTasks(exchange)
         );
@@ -408,6 +430,33 @@ public class TasksHandler implements HttpHandler {
         }
     }
 
+    private void getLastHistory(RequestInfo requestInfo, HttpExchange exchange) {
+        try {
+            int limit = Integer.parseInt(requestInfo.paramValues.get("limit"));
+            List<Task> history = historyManager.getHistory(limit);
+
+            writeStringBody(gson.toJson(history), exchange);
+        } catch (IOException | NumberFormatException e) {
+            handleError(exchange, e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void getHotTasks(RequestInfo requestInfo, HttpExchange exchange) {
+        try {
+            String limitParam = requestInfo.paramValues.get("limit");
+            int limit = limitParam != null ? Integer.parseInt(limitParam) : DEFAULT_HOT_TASKS_LIMIT;
+            List<TaskViewFrequency> hotTasks = viewFrequencyTracker.getHotTasks(limit);
+
+            writeStringBody(gson.toJson(hotTasks), exchange);
+        } catch (IOException | NumberFormatException e) {
+            handleError(exchange, e);
+        } finally {
+            exchange.close();
+        }
+    }
+
     private void handleError(HttpExchange exchange, Throwable error) {
         error.printStackTrace();
         try {
@@ -18,6 +18,19 @@ public abstract class HistoryManagerTest<T extends HistoryManager> {
 
     abstract protected void afterEach();
 
+    abstract protected T createHistoryManager(int maxSize);
+
+    @Test
+    protected void shouldEvictOldestViewWhenHistoryIsFull() {
+        int maxSize = 5;
+        int tasksCount = 12;
+        historyManager = createHistoryManager(maxSize);
+        final List<Task> tasks = generator.objects(Task.class, tasksCount).collect(Collectors.toList());
+        tasks.forEach(task -> historyManager.add(task));
+
+        assertEquals(tasks.subList(tasksCount - maxSize, tasksCount), historyManager.getHistory());
+    }
+
     @Test
     protected void shouldReturnEmptyHistoryAfterRemoveAllViews() {
         int tasksCount = 10;
@@ -86,4 +99,18 @@ public abstract class HistoryManagerTest<T extends HistoryManager> {
 
         assertEquals(tasks, historyManager.getHistory());
     }
+
+    @Test
+    protected void shouldReturnOnlyLastViewsWhenHistoryRequestedWithLimit() {
+        int tasksCount = 10;
+        int limit = 3;
+        final List<Task> tasks = generator.objects(Task.class, tasksCount).collect(Collectors.toList());
+        tasks.forEach(task -> historyManager.add(task));
+
+        assertAll(
+                () -> assertEquals(tasks.subList(tasksCount - limit, tasksCount), historyManager.getHistory(limit)),
+                () -> assertEquals(tasks, historyManager.getHistory(tasksCount * 2)),
+                () -> assertTrue(historyManager.getHistory(0).isEmpty())
+        );
+    }
 }
\ No newline at end of file
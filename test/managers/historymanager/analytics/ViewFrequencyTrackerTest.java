@@ -0,0 +1,109 @@
+package managers.historymanager.analytics;
+
+import domain.Task;
+import managers.historymanager.HistoryManager;
+import managers.historymanager.inmemory.InMemoryHistoryManagerImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ViewFrequencyTrackerTest {
+    private static final int MAX_HOT_TASKS = 3;
+
+    private ViewFrequencyTracker tracker;
+
+    @BeforeEach
+    void beforeEach() {
+        tracker = new ViewFrequencyTracker(MAX_HOT_TASKS, 1024, 4, Duration.ofDays(1));
+    }
+
+    @Test
+    void shouldReturnMostViewedTasksInDescendingOrder() {
+        for (int taskId = 1; taskId <= 10; taskId++) {
+            for (int i = 0; i < taskId * 10; i++)
+                tracker.recordView(taskId);
+        }
+
+        final List<TaskViewFrequency> hotTasks = tracker.getHotTasks(MAX_HOT_TASKS);
+
+        assertAll(
+                () -> assertEquals(
+                        List.of(10, 9, 8),
+                        hotTasks.stream().map(TaskViewFrequency::getTaskId).collect(Collectors.toList())
+                ),
+                () -> assertEquals(100, hotTasks.get(0).getViews(), 1)
+        );
+    }
+
+    @Test
+    void shouldKeepOnlyConfiguredNumberOfHotTasks() {
+        for (int taskId = 1; taskId <= 1000; taskId++)
+            tracker.recordView(taskId);
+
+        assertEquals(MAX_HOT_TASKS, tracker.getHotTasks(Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    void shouldForgetRemovedTask() {
+        tracker.recordView(1);
+        tracker.recordView(2);
+
+        tracker.forget(1);
+
+        assertEquals(
+                List.of(2),
+                tracker.getHotTasks(MAX_HOT_TASKS).stream().map(TaskViewFrequency::getTaskId).collect(Collectors.toList())
+        );
+    }
+
+    @Test
+    void shouldDecayOldViews() throws InterruptedException {
+        tracker = new ViewFrequencyTracker(MAX_HOT_TASKS, 1024, 4, Duration.ofMillis(20));
+        for (int i = 0; i < 100; i++)
+            tracker.recordView(1);
+
+        Thread.sleep(200);
+        tracker.recordView(2);
+        tracker.recordView(2);
+
+        assertEquals(2, tracker.getHotTasks(1).get(0).getTaskId());
+    }
+
+    @Test
+    void shouldCountConcurrentViewsOfSameTask() throws InterruptedException {
+        final int threadsCount = 4;
+        final int viewsPerThread = 10_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadsCount; i++)
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < viewsPerThread; j++)
+                    tracker.recordView(1);
+            }));
+        for (Thread thread : threads)
+            thread.start();
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(threadsCount * viewsPerThread, tracker.getHotTasks(1).get(0).getViews(), 1);
+    }
+
+    @Test
+    void shouldNotCountRestoredViews() {
+        final HistoryManager historyManager =
+                new ViewTrackingHistoryManager(new InMemoryHistoryManagerImpl(), tracker);
+        final Task task = new Task(1, "Задача", "Описание");
+
+        historyManager.restore(task);
+
+        assertAll(
+                () -> assertEquals(List.of(task), historyManager.getHistory(), "Просмотр восстановлен в истории"),
+                () -> assertTrue(tracker.getHotTasks(MAX_HOT_TASKS).isEmpty(), "Просмотр не учтен повторно")
+        );
+    }
+}
@@ -0,0 +1,78 @@
+package managers.historymanager.concurrent;
+
+import domain.Task;
+import managers.historymanager.HistoryManagerTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentHistoryManagerImplTest extends HistoryManagerTest<ConcurrentHistoryManagerImpl> {
+
+    @BeforeEach
+    @Override
+    protected void beforeEach() {
+        historyManager = new ConcurrentHistoryManagerImpl();
+    }
+
+    @Override
+    protected void afterEach() {
+    }
+
+    @Override
+    protected ConcurrentHistoryManagerImpl createHistoryManager(int maxSize) {
+        return new ConcurrentHistoryManagerImpl(maxSize);
+    }
+
+    @Test
+    protected void shouldKeepHistoryConsistentUnderParallelViews() throws Exception {
+        int threadsCount = 8;
+        int viewsPerThread = 20_000;
+        int tasksCount = 64;
+        int maxSize = 32;
+        historyManager = createHistoryManager(maxSize);
+        final List<Task> tasks = generator.objects(Task.class, tasksCount).collect(Collectors.toList());
+        for (int i = 0; i < tasksCount; i++)
+            tasks.get(i).setId(i);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadsCount);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threadsCount; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int j = 0; j < viewsPerThread; j++) {
+                        Task task = tasks.get(random.nextInt(tasksCount));
+                        if (random.nextInt(10) == 0)
+                            historyManager.remove(task.getId());
+                        else
+                            historyManager.add(task);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        final List<Task> history = historyManager.getHistory();
+        assertAll(
+                () -> assertTrue(history.size() <= maxSize),
+                () -> assertEquals(history.size(), history.stream().map(Task::getId).distinct().count())
+        );
+    }
+}
@@ -1,7 +1,14 @@
 package managers.historymanager.inmemory;
 
+import domain.Task;
 import managers.historymanager.HistoryManagerTest;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class InMemoryHistoryManagerImplTest extends HistoryManagerTest<InMemoryHistoryManagerImpl> {
 
@@ -14,4 +21,22 @@ class InMemoryHistoryManagerImplTest extends HistoryManagerTest<InMemoryHistoryM
     @Override
     protected void afterEach() {
     }
-}
\ No newline at end of file
+
+    @Override
+    protected InMemoryHistoryManagerImpl createHistoryManager(int maxSize) {
+        return new InMemoryHistoryManagerImpl(maxSize);
+    }
+
+    @Test
+    protected void shouldKeepViewWhenRepeatedViewMovesItToTheEnd() {
+        int maxSize = 3;
+        historyManager = createHistoryManager(maxSize);
+        final List<Task> tasks = generator.objects(Task.class, maxSize + 1).collect(Collectors.toList());
+        for (int i = 0; i < maxSize; i++)
+            historyManager.add(tasks.get(i));
+        historyManager.add(tasks.get(0));
+        historyManager.add(tasks.get(maxSize));
+
+        assertEquals(List.of(tasks.get(2), tasks.get(0), tasks.get(3)), historyManager.getHistory());
+    }
+}
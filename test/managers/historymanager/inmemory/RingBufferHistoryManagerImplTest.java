@@ -0,0 +1,55 @@
+package managers.historymanager.inmemory;
+
+import domain.Task;
+import managers.historymanager.HistoryManagerTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RingBufferHistoryManagerImplTest extends HistoryManagerTest<RingBufferHistoryManagerImpl> {
+    private static final int MAX_SIZE = 100;
+
+    @BeforeEach
+    @Override
+    protected void beforeEach() {
+        historyManager = new RingBufferHistoryManagerImpl(MAX_SIZE);
+    }
+
+    @Override
+    protected void afterEach() {
+    }
+
+    @Override
+    protected RingBufferHistoryManagerImpl createHistoryManager(int maxSize) {
+        return new RingBufferHistoryManagerImpl(maxSize);
+    }
+
+    @Test
+    protected void shouldMatchLinkedHistoryAfterRandomViewsAndRemovals() {
+        int maxSize = 16;
+        int tasksCount = 40;
+        historyManager = createHistoryManager(maxSize);
+        final InMemoryHistoryManagerImpl expectedHistoryManager = new InMemoryHistoryManagerImpl(maxSize);
+        final List<Task> tasks = generator.objects(Task.class, tasksCount).collect(Collectors.toList());
+        for (int i = 0; i < tasksCount; i++)
+            tasks.get(i).setId(i);
+
+        Random random = new Random(tasksCount);
+        for (int i = 0; i < 10_000; i++) {
+            Task task = tasks.get(random.nextInt(tasksCount));
+            if (random.nextInt(5) == 0) {
+                historyManager.remove(task.getId());
+                expectedHistoryManager.remove(task.getId());
+            } else {
+                historyManager.add(task);
+                expectedHistoryManager.add(task);
+            }
+            assertEquals(expectedHistoryManager.getHistory(), historyManager.getHistory());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package managers.historymanager.session;
+
+import domain.Task;
+import managers.historymanager.HistoryManagerTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionHistoryManagerTest extends HistoryManagerTest<SessionHistoryManager> {
+    private static final int MAX_SESSION_SIZE = 100;
+    private static final int MAX_TOTAL_SIZE = 300;
+
+    @BeforeEach
+    @Override
+    protected void beforeEach() {
+        historyManager = new SessionHistoryManager(MAX_SESSION_SIZE, MAX_TOTAL_SIZE, Duration.ofHours(1));
+    }
+
+    @Override
+    protected void afterEach() {
+    }
+
+    @Override
+    protected SessionHistoryManager createHistoryManager(int maxSize) {
+        return new SessionHistoryManager(maxSize, MAX_TOTAL_SIZE, Duration.ofHours(1));
+    }
+
+    @Test
+    protected void shouldKeepIndependentHistoryForEachSession() {
+        final List<Task> tasks = generator.objects(Task.class, 4).collect(Collectors.toList());
+        historyManager.runInSession("first", () -> {
+            historyManager.add(tasks.get(0));
+            historyManager.add(tasks.get(1));
+        });
+        historyManager.runInSession("second", () -> historyManager.add(tasks.get(2)));
+        historyManager.add(tasks.get(3));
+
+        assertAll(
+                () -> assertEquals(
+                        tasks.subList(0, 2), historyManager.callInSession("first", historyManager::getHistory)
+                ),
+                () -> assertEquals(
+                        List.of(tasks.get(2)), historyManager.callInSession("second", historyManager::getHistory)
+                ),
+                () -> assertEquals(List.of(tasks.get(3)), historyManager.getHistory())
+        );
+    }
+
+    @Test
+    protected void shouldRemoveDeletedTaskFromAllSessions() {
+        final Task task = generator.nextObject(Task.class);
+        historyManager.runInSession("first", () -> historyManager.add(task));
+        historyManager.runInSession("second", () -> historyManager.add(task));
+
+        historyManager.remove(task.getId());
+
+        assertAll(
+                () -> assertTrue(historyManager.callInSession("first", historyManager::getHistory).isEmpty()),
+                () -> assertTrue(historyManager.callInSession("second", historyManager::getHistory).isEmpty())
+        );
+    }
+
+    @Test
+    protected void shouldEvictLeastRecentlyUsedSessionWhenTotalSizeExceeded() throws InterruptedException {
+        final Task task = generator.nextObject(Task.class);
+        for (int i = 0; i <= MAX_TOTAL_SIZE / MAX_SESSION_SIZE; i++) {
+            historyManager.runInSession("session" + i, () -> historyManager.add(task));
+            Thread.sleep(2);
+        }
+
+        assertAll(
+                () -> assertEquals(MAX_TOTAL_SIZE / MAX_SESSION_SIZE, historyManager.getSessionIds().size()),
+                () -> assertFalse(historyManager.getSessionIds().contains("session0"))
+        );
+    }
+
+    @Test
+    protected void shouldEvictIdleSessions() throws InterruptedException {
+        historyManager = new SessionHistoryManager(MAX_SESSION_SIZE, MAX_TOTAL_SIZE, Duration.ZERO);
+        final Task task = generator.nextObject(Task.class);
+        historyManager.runInSession("first", () -> historyManager.add(task));
+        Thread.sleep(2);
+
+        historyManager.runInSession("second", () -> historyManager.add(task));
+
+        assertFalse(historyManager.getSessionIds().contains("first"));
+    }
+
+    @Test
+    protected void shouldDrainOnlyChangedSessions() {
+        final Task task = generator.nextObject(Task.class);
+        historyManager.runInSession("first", () -> historyManager.add(task));
+        historyManager.runInSession("second", () -> historyManager.add(task));
+        historyManager.drainChangedSessions();
+
+        historyManager.runInSession("second", () -> historyManager.add(task));
+        final Map<String, List<Integer>> changedSessions = historyManager.drainChangedSessions();
+
+        assertEquals(Map.of("second", List.of(task.getId())), changedSessions);
+    }
+}
@@ -1,15 +1,26 @@
 package managers.taskmanager.http;
 
+import com.sun.net.httpserver.HttpExchange;
+import domain.Task;
+import domain.exceptions.ManagerLoadException;
+import domain.exceptions.ManagerSaveException;
 import managers.historymanager.HistoryManager;
+import managers.historymanager.session.SessionHistoryManager;
 import managers.taskmanager.TaskManager;
 import managers.taskmanager.infile.FileBackedTaskManagerImplTest;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import presenter.client.KVTaskClient;
+import presenter.client.KVTaskClientImpl;
 import presenter.server.HttpTaskServer;
 import presenter.server.KVServer;
 
 import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 class HttpTaskManagerTest extends FileBackedTaskManagerImplTest {
 
@@ -37,14 +48,106 @@ class HttpTaskManagerTest extends FileBackedTaskManagerImplTest {
     @AfterEach
     @Override
     protected void afterEach() {
+        ((HttpTaskManager) taskManager).close();
         httpTaskServer.stop();
         kvServer.stop();
     }
 
     @Override
     protected TaskManager restoreTaskManager(HistoryManager historyManager, String path) {
+        ((HttpTaskManager) taskManager).flushHistory();
         return new HttpTaskManager(historyManager, path);
     }
 
+    @Test
+    void shouldStoreEachTaskUnderOwnKey() {
+        final KVTaskClient kvTaskClient = new KVTaskClientImpl(path);
+        final Task firstTask = new Task(taskManager.getUniqueTaskId(), "Задача 1", "Описание");
+        final Task secondTask = new Task(taskManager.getUniqueTaskId(), "Задача 2", "Описание");
+        taskManager.createTask(firstTask);
+        taskManager.createTask(secondTask);
+        final String secondTaskJson = kvTaskClient.load("TASK_" + secondTask.getId());
+
+        firstTask.setTitle("Новое название");
+        taskManager.updateTask(firstTask);
+        taskManager.removeTask(secondTask.getId());
+
+        assertAll(
+                () -> assertNotNull(secondTaskJson, "Задача записана своим ключом"),
+                () -> assertTrue(kvTaskClient.load("TASK_" + firstTask.getId()).contains("Новое название"),
+                        "Измененная задача перезаписана"),
+                () -> assertNull(kvTaskClient.load("TASK_" + secondTask.getId()), "Ключ удаленной задачи стерт"),
+                () -> assertNull(kvTaskClient.load("TASKS"), "Общее значение задач не пишется"),
+                () -> assertEquals("[\"TASK_" + firstTask.getId() + "\"]", kvTaskClient.load("MANIFEST"),
+                        "Манифест содержит только существующие ключи")
+        );
+    }
+
+    @Test
+    void shouldStoreSessionHistoryApartFromServiceKeys() {
+        final KVTaskClient kvTaskClient = new KVTaskClientImpl(path);
+        final SessionHistoryManager sessionHistoryManager = new SessionHistoryManager(1, 1, Duration.ofHours(1));
+        ((HttpTaskManager) taskManager).close();
+        taskManager = new HttpTaskManager(sessionHistoryManager, path);
+        final Task task = new Task(taskManager.getUniqueTaskId(), "Задача", "Описание");
+        taskManager.createTask(task);
 
-}
\ No newline at end of file
+        //токен сессии совпадает с окончанием служебного ключа списка сессий
+        sessionHistoryManager.runInSession("SESSIONS", () -> taskManager.getTask(task.getId()));
+        ((HttpTaskManager) taskManager).flushHistory();
+        final String sessionsJson = kvTaskClient.load("HISTORY_SESSIONS");
+        final String sessionHistoryJson = kvTaskClient.load("HISTORY.SESSIONS");
+        //новая сессия вытесняет прежнюю
+        sessionHistoryManager.runInSession("other", () -> taskManager.getTask(task.getId()));
+        ((HttpTaskManager) taskManager).flushHistory();
+
+        assertAll(
+                () -> assertEquals("[\"SESSIONS\"]", sessionsJson, "Список сессий не перезаписан историей"),
+                () -> assertEquals("[" + task.getId() + "]", sessionHistoryJson, "История сессии записана"),
+                () -> assertNull(kvTaskClient.load("HISTORY.SESSIONS"), "История вытесненной сессии удалена"),
+                () -> assertEquals("[\"other\"]", kvTaskClient.load("HISTORY_SESSIONS"), "Список сессий обновлен")
+        );
+    }
+
+    @Test
+    void shouldWriteTaskAndManifestAgainAfterFailedSave() throws IOException {
+        final boolean[] rejectRequests = {false};
+        ((HttpTaskManager) taskManager).close();
+        kvServer.stop();
+        kvServer = new KVServer() {
+            @Override
+            protected boolean hasAuth(HttpExchange h) {
+                return !rejectRequests[0] && super.hasAuth(h);
+            }
+        };
+        kvServer.start();
+        taskManager = new HttpTaskManager(historyManager, path);
+        final KVTaskClient kvTaskClient = new KVTaskClientImpl(path);
+        final Task failedTask = new Task(taskManager.getUniqueTaskId(), "Незаписанная", "Описание");
+        final Task nextTask = new Task(taskManager.getUniqueTaskId(), "Следующая", "Описание");
+
+        rejectRequests[0] = true;
+        assertThrows(ManagerSaveException.class, () -> taskManager.createTask(failedTask));
+        rejectRequests[0] = false;
+        taskManager.createTask(nextTask);
+
+        assertAll(
+                () -> assertNotNull(kvTaskClient.load("TASK_" + failedTask.getId()), "Задача записана повторно"),
+                () -> assertEquals(
+                        "[\"TASK_" + failedTask.getId() + "\",\"TASK_" + nextTask.getId() + "\"]",
+                        kvTaskClient.load("MANIFEST"), "Манифест содержит обе задачи"
+                )
+        );
+    }
+
+    @Test
+    void shouldFailLoadingWhenManifestReferencesMissingTask() {
+        final KVTaskClient kvTaskClient = new KVTaskClientImpl(path);
+        final Task task = new Task(taskManager.getUniqueTaskId(), "Задача", "Описание");
+        taskManager.createTask(task);
+        kvTaskClient.delete("TASK_" + task.getId());
+
+        assertThrows(ManagerLoadException.class, () -> new HttpTaskManager(getStubHistoryManager(), path),
+                "Задача из манифеста не пропускается молча");
+    }
+}
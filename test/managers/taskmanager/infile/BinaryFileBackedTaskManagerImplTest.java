@@ -0,0 +1,84 @@
+package managers.taskmanager.infile;
+
+import domain.Epic;
+import domain.Subtask;
+import domain.Task;
+import domain.exceptions.ManagerLoadException;
+import managers.historymanager.HistoryManager;
+import managers.taskmanager.TaskManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryFileBackedTaskManagerImplTest extends FileBackedTaskManagerImplTest {
+
+    @BeforeEach
+    @Override
+    protected void beforeEach() throws IOException {
+        super.beforeEach();
+        taskManager = new FileBackedTaskManagerImpl(historyManager, path, null, SnapshotFormat.binary());
+    }
+
+    @Override
+    protected TaskManager restoreTaskManager(HistoryManager historyManager, String path) {
+        return new FileBackedTaskManagerImpl(historyManager, path, null, SnapshotFormat.binary());
+    }
+
+    @Test
+    void shouldDetectFormatOfFileOnLoad() {
+        Task task = new Task(
+                taskManager.getUniqueTaskId(), generator.nextObject(String.class), generator.nextObject(String.class),
+                LocalDateTime.of(2022, 1, 1, 10, 0, 0, 123_456_789), 30);
+        taskManager.createTask(task);
+
+        final FileBackedTaskManagerImpl csvTaskManager =
+                new FileBackedTaskManagerImpl(getStubHistoryManager(), path);
+        csvTaskManager.createTask(new Task(csvTaskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class)));
+        final TaskManager binaryTaskManager = restoreTaskManager(getStubHistoryManager(), path);
+
+        assertAll(
+                () -> assertEquals(task, csvTaskManager.getTask(task.getId()), "Двоичный файл прочитан"),
+                () -> assertEquals(2, binaryTaskManager.getAllTasks().size(), "Текстовый файл прочитан")
+        );
+    }
+
+    @Test
+    void shouldWriteSmallerFileThanCsv() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            Epic epic = new Epic(
+                    taskManager.getUniqueEpicId(), generator.nextObject(String.class), generator.nextObject(String.class)
+            );
+            taskManager.createEpic(epic);
+            taskManager.createSubtask(new Subtask(taskManager.getUniqueSubtaskId(),
+                    generator.nextObject(String.class), generator.nextObject(String.class), epic));
+        }
+        final long binarySize = Files.size(Path.of(path));
+
+        new FileBackedTaskManagerImpl(getStubHistoryManager(), path).removeAllTasks();
+
+        assertTrue(binarySize < Files.size(Path.of(path)), "Двоичный снимок меньше текстового");
+    }
+
+    @Test
+    void shouldRejectUnknownTaskTypeInCorruptedFile() throws IOException {
+        taskManager.createTask(new Task(
+                taskManager.getUniqueTaskId(), generator.nextObject(String.class), generator.nextObject(String.class)
+        ));
+        byte[] content = Files.readAllBytes(Path.of(path));
+        //за сигнатурой и версией формата следует тип первой задачи
+        content[Integer.BYTES + 1] = 0x7F;
+        Files.write(Path.of(path), content);
+
+        assertThrows(
+                ManagerLoadException.class, () -> restoreTaskManager(getStubHistoryManager(), path),
+                "Поврежденный тип задачи не принят"
+        );
+    }
+}
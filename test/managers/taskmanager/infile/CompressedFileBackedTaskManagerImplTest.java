@@ -0,0 +1,64 @@
+package managers.taskmanager.infile;
+
+import domain.Task;
+import managers.historymanager.HistoryManager;
+import managers.taskmanager.TaskManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedFileBackedTaskManagerImplTest extends FileBackedTaskManagerImplTest {
+
+    @BeforeEach
+    @Override
+    protected void beforeEach() throws IOException {
+        super.beforeEach();
+        taskManager = new FileBackedTaskManagerImpl(historyManager, path, null, SnapshotFormat.csv().compressed());
+    }
+
+    @Override
+    protected TaskManager restoreTaskManager(HistoryManager historyManager, String path) {
+        return new FileBackedTaskManagerImpl(historyManager, path, null, SnapshotFormat.csv().compressed());
+    }
+
+    @Test
+    void shouldWriteCompressedSnapshotSmallerThanUncompressed() throws IOException {
+        for (int i = 0; i < 1_000; i++)
+            taskManager.createTask(new Task(taskManager.getUniqueTaskId(), "Задача " + i, "Описание задачи"));
+        final byte[] compressed = Files.readAllBytes(Path.of(path));
+        final byte[] uncompressed;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            uncompressed = in.readAllBytes();
+        }
+
+        assertAll(
+                () -> assertEquals(GZIPInputStream.GZIP_MAGIC, (compressed[0] & 0xFF) | (compressed[1] & 0xFF) << 8,
+                        "Файл не сжат"),
+                () -> assertTrue(compressed.length < uncompressed.length, "Сжатый файл не меньше исходного"),
+                () -> assertTrue(new String(uncompressed, StandardCharsets.UTF_8)
+                        .startsWith(FileBackedTaskMapper.HEADER_OF_FILE), "Внутри сжатого файла не CSV"),
+                () -> assertEquals(1_000, restoreTaskManager(getStubHistoryManager(), path).getAllTasks().size())
+        );
+    }
+
+    @Test
+    void shouldRestoreUncompressedSnapshot() {
+        final FileBackedTaskManagerImpl uncompressedTaskManager =
+                new FileBackedTaskManagerImpl(getStubHistoryManager(), path, null, SnapshotFormat.csv());
+        final Task task = new Task(uncompressedTaskManager.getUniqueTaskId(), "Задача", "Описание");
+        uncompressedTaskManager.createTask(task);
+
+        final TaskManager newTaskManager = restoreTaskManager(getStubHistoryManager(), path);
+
+        assertEquals(List.of(task), newTaskManager.getAllTasks());
+    }
+}
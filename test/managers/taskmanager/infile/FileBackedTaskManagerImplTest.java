@@ -4,6 +4,7 @@ import domain.Epic;
 import domain.Subtask;
 import domain.Task;
 import managers.historymanager.HistoryManager;
+import managers.historymanager.inmemory.InMemoryHistoryManagerImpl;
 import managers.taskmanager.TaskManager;
 import managers.taskmanager.TaskManagerTest;
 import org.junit.jupiter.api.AfterEach;
@@ -15,6 +16,8 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -45,6 +48,7 @@ public class FileBackedTaskManagerImplTest extends TaskManagerTest<FileBackedTas
     protected void afterEach() {
         try {
             Files.deleteIfExists(Path.of(path));
+            Files.deleteIfExists(Path.of(path + ".history"));
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -137,6 +141,206 @@ public class FileBackedTaskManagerImplTest extends TaskManagerTest<FileBackedTas
         );
     }
 
+    @Test
+    protected void shouldRestoreHistoryOfViewsMadeAfterLastChangeOfTasks() {
+        Task firstTask = new Task(taskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class));
+        Task secondTask = new Task(taskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class));
+        taskManager.createTask(firstTask);
+        taskManager.createTask(secondTask);
+
+        taskManager.getTask(secondTask.getId());
+        taskManager.getTask(firstTask.getId());
+
+        final HistoryManager newHistoryManager = getStubHistoryManager();
+        restoreTaskManager(newHistoryManager, path);
+
+        assertEquals(
+                List.of(firstTask, secondTask), newHistoryManager.getHistory(), "История просмотров восстановлена верно"
+        );
+    }
+
+    @Test
+    protected void shouldRestoreTasksWithSeparatorsAndQuotesInText() {
+        Task task = new Task(taskManager.getUniqueTaskId(), "Купить, \"молоко\"", "строка\nвторая строка",
+                LocalDateTime.of(2022, 1, 2, 3, 4, 5), 15);
+        taskManager.createTask(task);
+        Epic epic = new Epic(taskManager.getUniqueEpicId(), "\"Эпик\"", ",,");
+        taskManager.createEpic(epic);
+        Subtask subtask = new Subtask(taskManager.getUniqueSubtaskId(), "a,\r\nb", "\"",
+                LocalDateTime.of(2022, 1, 3, 0, 0), 30, epic);
+        taskManager.createSubtask(subtask);
+
+        final TaskManager newTaskManager = restoreTaskManager(getStubHistoryManager(), path);
+
+        assertAll(
+                () -> assertEquals(List.of(task), newTaskManager.getAllTasks(), "Задачи восстановлены неверно"),
+                () -> assertEquals(List.of(epic), newTaskManager.getAllEpics(), "Эпики восстановлены неверно"),
+                () -> assertEquals(
+                        List.of(subtask), newTaskManager.getAllSubtasks(), "Подзадачи восстановлены неверно"
+                )
+        );
+    }
+
+    @Test
+    protected void shouldRestoreFileOfPreviousFormatWithUnescapedQuotes() throws IOException {
+        final String snapshotPath = Files.createTempFile("", ".tmp").toString();
+        //прежний формат записывал текст без кавычек и экранирования
+        Files.writeString(Path.of(snapshotPath), FileBackedTaskMapper.HEADER_OF_FILE + "\n"
+                + "1,TASK,Монитор 5\" screen,NEW,Диагональ 27\",,01.01.2022 10:00:00,30,01.01.2022 10:30:00\n"
+                + "2,EPIC,\"Цитата\" автора,NEW,Описание,,,0,\n"
+                + "\n1,2\n");
+
+        try {
+            final HistoryManager newHistoryManager = new InMemoryHistoryManagerImpl();
+            final TaskManager newTaskManager = new FileBackedTaskManagerImpl(newHistoryManager, snapshotPath);
+
+            assertAll(
+                    () -> assertEquals("Монитор 5\" screen", newTaskManager.getAllTasks().get(0).getTitle()),
+                    () -> assertEquals("Диагональ 27\"", newTaskManager.getAllTasks().get(0).getDescription()),
+                    () -> assertEquals("\"Цитата\" автора", newTaskManager.getAllEpics().get(0).getTitle()),
+                    () -> assertEquals(2, newHistoryManager.getHistory().size(), "История восстановлена")
+            );
+        } finally {
+            Files.deleteIfExists(Path.of(snapshotPath));
+        }
+    }
+
+    @Test
+    protected void shouldRestoreSubtasksToPrioritizedTasks() {
+        Task task = new Task(taskManager.getUniqueTaskId(), "Задача", "Описание",
+                LocalDateTime.of(2022, 1, 2, 10, 0), 15);
+        taskManager.createTask(task);
+        Epic epic = new Epic(taskManager.getUniqueEpicId(), "Эпик", "Описание");
+        taskManager.createEpic(epic);
+        Subtask subtask = new Subtask(taskManager.getUniqueSubtaskId(), "Подзадача", "Описание",
+                LocalDateTime.of(2022, 1, 2, 9, 0), 30, epic);
+        taskManager.createSubtask(subtask);
+
+        final TaskManager newTaskManager = restoreTaskManager(getStubHistoryManager(), path);
+
+        assertEquals(List.of(subtask, task), newTaskManager.getPrioritizedTasks(),
+                "Приоритетный список восстановлен неверно");
+    }
+
+    @Test
+    protected void shouldRestoreLargeSnapshot() throws IOException {
+        final int tasksCount = 20_000;
+        final String largeSnapshotPath = Files.createTempFile("", ".tmp").toString();
+        final LocalDateTime startTime = LocalDateTime.of(2022, 1, 1, 0, 0);
+        try (FileWriter fileWriter = new FileWriter(largeSnapshotPath)) {
+            fileWriter.write(FileBackedTaskMapper.HEADER_OF_FILE + "\n");
+            for (int i = 1; i <= tasksCount; i++)
+                fileWriter.write(FileBackedTaskMapper.toString(
+                        new Task(i, "Задача " + i, "Описание", startTime.plusMinutes(i * 10L), 5)
+                ) + "\n");
+            fileWriter.write("\n\n");
+        }
+
+        try {
+            final TaskManager newTaskManager =
+                    new FileBackedTaskManagerImpl(getStubHistoryManager(), largeSnapshotPath);
+            final List<Task> prioritizedTasks = newTaskManager.getPrioritizedTasks();
+
+            assertAll(
+                    () -> assertEquals(tasksCount, newTaskManager.getAllTasks().size()),
+                    () -> assertEquals(1, prioritizedTasks.get(0).getId()),
+                    () -> assertEquals(tasksCount, prioritizedTasks.get(tasksCount - 1).getId()),
+                    () -> assertEquals(tasksCount + 1, newTaskManager.getUniqueTaskId())
+            );
+        } finally {
+            Files.deleteIfExists(Path.of(largeSnapshotPath));
+        }
+    }
+
+    @Test
+    protected void shouldRestoreHistoryInRecordedOrder() throws IOException {
+        final String snapshotPath = Files.createTempFile("", ".tmp").toString();
+        final List<Task> tasks = new ArrayList<>();
+        final StringBuilder snapshot = new StringBuilder(FileBackedTaskMapper.HEADER_OF_FILE).append("\n");
+        for (int i = 1; i <= 3; i++) {
+            Task task = new Task(i, "Задача " + i, "Описание");
+            tasks.add(task);
+            snapshot.append(FileBackedTaskMapper.toString(task)).append("\n");
+        }
+        snapshot.append("\n3,1,4,2\n");
+        Files.writeString(Path.of(snapshotPath), snapshot);
+
+        try {
+            final HistoryManager newHistoryManager = new InMemoryHistoryManagerImpl();
+            new FileBackedTaskManagerImpl(newHistoryManager, snapshotPath);
+
+            assertEquals(List.of(tasks.get(2), tasks.get(0), tasks.get(1)), newHistoryManager.getHistory(),
+                    "Порядок истории просмотров не сохранен");
+        } finally {
+            Files.deleteIfExists(Path.of(snapshotPath));
+        }
+    }
+
+    @Test
+    protected void shouldCompactHistoryLogWithoutRewritingSnapshot() throws IOException {
+        final String historyPath = Files.createTempFile("", ".tmp").toString();
+        Files.delete(Path.of(historyPath));
+        try {
+            final FileBackedTaskManagerImpl fileTaskManager =
+                    new FileBackedTaskManagerImpl(new InMemoryHistoryManagerImpl(), historyPath);
+            Task firstTask = new Task(fileTaskManager.getUniqueTaskId(), "Первая", "Описание");
+            Task secondTask = new Task(fileTaskManager.getUniqueTaskId(), "Вторая", "Описание");
+            fileTaskManager.createTask(firstTask);
+            fileTaskManager.createTask(secondTask);
+            final byte[] snapshot = Files.readAllBytes(Path.of(historyPath));
+            for (int i = 0; i < 2_501; i++)
+                fileTaskManager.getTask(i % 2 == 0 ? secondTask.getId() : firstTask.getId());
+            final byte[] snapshotAfterViews = Files.readAllBytes(Path.of(historyPath));
+            final long historyLogSize = Files.size(Path.of(historyPath + ".history"));
+            fileTaskManager.close();
+            final HistoryManager newHistoryManager = new InMemoryHistoryManagerImpl();
+            new FileBackedTaskManagerImpl(newHistoryManager, historyPath).close();
+
+            assertAll(
+                    () -> assertArrayEquals(snapshot, snapshotAfterViews, "Снимок задач не переписан просмотрами"),
+                    () -> assertTrue(historyLogSize <= 1_000L * ChecksummedRecords.frame("1").length(),
+                            "Журнал истории сжат: " + historyLogSize),
+                    () -> assertEquals(List.of(firstTask, secondTask), newHistoryManager.getHistory(),
+                            "История восстановлена из сжатого журнала")
+            );
+        } finally {
+            Files.deleteIfExists(Path.of(historyPath));
+            Files.deleteIfExists(Path.of(historyPath + ".history"));
+        }
+    }
+
+    @Test
+    protected void shouldKeepViewsRecordedAfterTornTailOfHistoryLog() throws IOException {
+        final String historyPath = Files.createTempFile("", ".tmp").toString();
+        Files.delete(Path.of(historyPath));
+        try {
+            final FileBackedTaskManagerImpl fileTaskManager =
+                    new FileBackedTaskManagerImpl(getStubHistoryManager(), historyPath);
+            Task firstTask = new Task(fileTaskManager.getUniqueTaskId(), "Первая", "Описание");
+            Task secondTask = new Task(fileTaskManager.getUniqueTaskId(), "Вторая", "Описание");
+            fileTaskManager.createTask(firstTask);
+            fileTaskManager.createTask(secondTask);
+            fileTaskManager.getTask(firstTask.getId());
+            fileTaskManager.close();
+            Files.writeString(Path.of(historyPath + ".history"), "1", StandardOpenOption.APPEND);
+
+            final FileBackedTaskManagerImpl recoveredTaskManager =
+                    new FileBackedTaskManagerImpl(getStubHistoryManager(), historyPath);
+            recoveredTaskManager.getTask(secondTask.getId());
+            recoveredTaskManager.close();
+            final HistoryManager newHistoryManager = getStubHistoryManager();
+            new FileBackedTaskManagerImpl(newHistoryManager, historyPath).close();
+
+            assertEquals(List.of(firstTask, secondTask), newHistoryManager.getHistory(),
+                    "Просмотр после недописанной записи сохранен");
+        } finally {
+            Files.deleteIfExists(Path.of(historyPath));
+            Files.deleteIfExists(Path.of(historyPath + ".history"));
+        }
+    }
+
     protected TaskManager restoreTaskManager(HistoryManager historyManager, String path) {
         return new FileBackedTaskManagerImpl(historyManager, path);
     }
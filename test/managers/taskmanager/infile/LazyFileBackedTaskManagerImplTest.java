@@ -0,0 +1,94 @@
+package managers.taskmanager.infile;
+
+import domain.Epic;
+import domain.Subtask;
+import domain.Task;
+import domain.exceptions.OverlappingTaskTimeException;
+import managers.historymanager.HistoryManager;
+import managers.taskmanager.TaskManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazyFileBackedTaskManagerImplTest extends FileBackedTaskManagerImplTest {
+
+    @BeforeEach
+    @Override
+    protected void beforeEach() throws IOException {
+        super.beforeEach();
+        taskManager = new FileBackedTaskManagerImpl(historyManager, path, null, SnapshotFormat.lazyPaged());
+    }
+
+    @Override
+    protected TaskManager restoreTaskManager(HistoryManager historyManager, String path) {
+        return new FileBackedTaskManagerImpl(historyManager, path, null, SnapshotFormat.lazyPaged());
+    }
+
+    @Test
+    void shouldLoadTasksOnFirstAccess() {
+        final List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Task task = new Task(taskManager.getUniqueTaskId(), "Задача " + i, "Описание",
+                    LocalDateTime.of(2022, 1, 1, 0, 0).plusHours(i), 30);
+            taskManager.createTask(task);
+            tasks.add(task);
+        }
+
+        final FileBackedTaskManagerImpl newTaskManager =
+                new FileBackedTaskManagerImpl(getStubHistoryManager(), path, null, SnapshotFormat.lazyPaged());
+        final int notLoadedAfterStart = newTaskManager.getNotLoadedTasksCount();
+        final Task task = newTaskManager.getTask(tasks.get(50).getId());
+
+        assertAll(
+                () -> assertEquals(100, notLoadedAfterStart, "Задачи загружены при запуске"),
+                () -> assertEquals(tasks.get(50), task),
+                () -> assertEquals(99, newTaskManager.getNotLoadedTasksCount()),
+                () -> assertEquals(tasks, newTaskManager.getPrioritizedTasks()),
+                () -> assertEquals(0, newTaskManager.getNotLoadedTasksCount())
+        );
+    }
+
+    @Test
+    void shouldCheckOverlappingWithNotLoadedTasks() {
+        final Task task = new Task(taskManager.getUniqueTaskId(), "Задача", "Описание",
+                LocalDateTime.of(2022, 1, 1, 10, 0), 60);
+        taskManager.createTask(task);
+
+        final FileBackedTaskManagerImpl newTaskManager =
+                new FileBackedTaskManagerImpl(getStubHistoryManager(), path, null, SnapshotFormat.lazyPaged());
+        final Task overlappingTask = new Task(newTaskManager.getUniqueTaskId(), "Задача", "Описание",
+                LocalDateTime.of(2022, 1, 1, 10, 30), 60);
+
+        assertAll(
+                () -> assertThrows(OverlappingTaskTimeException.class, () -> newTaskManager.createTask(overlappingTask)),
+                () -> assertEquals(1, newTaskManager.getNotLoadedTasksCount())
+        );
+    }
+
+    @Test
+    void shouldRemoveNotLoadedTask() {
+        final Task task = new Task(taskManager.getUniqueTaskId(), "Задача", "Описание",
+                LocalDateTime.of(2022, 1, 1, 10, 0), 60);
+        taskManager.createTask(task);
+        final Epic epic = new Epic(taskManager.getUniqueEpicId(), "Эпик", "Описание");
+        taskManager.createEpic(epic);
+        final Subtask subtask = new Subtask(taskManager.getUniqueSubtaskId(), "Подзадача", "Описание", epic);
+        taskManager.createSubtask(subtask);
+
+        final FileBackedTaskManagerImpl newTaskManager =
+                new FileBackedTaskManagerImpl(getStubHistoryManager(), path, null, SnapshotFormat.lazyPaged());
+        newTaskManager.removeTask(task.getId());
+
+        assertAll(
+                () -> assertTrue(newTaskManager.getAllTasks().isEmpty()),
+                () -> assertEquals(List.of(subtask), newTaskManager.getPrioritizedTasks()),
+                () -> assertTrue(restoreTaskManager(getStubHistoryManager(), path).getAllTasks().isEmpty())
+        );
+    }
+}
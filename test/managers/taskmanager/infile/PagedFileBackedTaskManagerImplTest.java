@@ -0,0 +1,81 @@
+package managers.taskmanager.infile;
+
+import domain.Epic;
+import domain.Subtask;
+import domain.Task;
+import managers.historymanager.HistoryManager;
+import managers.taskmanager.TaskManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PagedFileBackedTaskManagerImplTest extends FileBackedTaskManagerImplTest {
+
+    @BeforeEach
+    @Override
+    protected void beforeEach() throws IOException {
+        super.beforeEach();
+        taskManager = new FileBackedTaskManagerImpl(historyManager, path, null, SnapshotFormat.paged());
+    }
+
+    @Override
+    protected TaskManager restoreTaskManager(HistoryManager historyManager, String path) {
+        return new FileBackedTaskManagerImpl(historyManager, path, null, SnapshotFormat.paged());
+    }
+
+    @Test
+    void shouldRewriteOnlyRecordOfChangedTask() throws IOException {
+        for (int i = 0; i < 100; i++)
+            taskManager.createTask(new Task(taskManager.getUniqueTaskId(), "Задача " + i, "Описание"));
+        final byte[] before = Files.readAllBytes(Path.of(path));
+
+        Task task = taskManager.getAllTasks().get(50);
+        taskManager.updateTask(new Task(task.getId(), "Новое название", task.getDescription()));
+        final byte[] after = Files.readAllBytes(Path.of(path));
+
+        int changedBytes = 0;
+        for (int i = PagedTaskFile.HEADER_SIZE; i < after.length; i++)
+            if (before[i] != after[i])
+                changedBytes++;
+        assertEquals(before.length, after.length, "Размер файла изменился");
+        assertTrue(changedBytes > 0 && changedBytes <= PagedTaskFile.RECORD_SIZE, "Изменено больше одной записи");
+    }
+
+    @Test
+    void shouldReuseRecordsOfRemovedTasks() throws IOException {
+        for (int i = 0; i < 10; i++)
+            taskManager.createTask(new Task(taskManager.getUniqueTaskId(), "Задача " + i, "Описание"));
+        final long size = Files.size(Path.of(path));
+
+        taskManager.removeAllTasks();
+        for (int i = 0; i < 10; i++)
+            taskManager.createTask(new Task(taskManager.getUniqueTaskId(), "Задача " + i, "Описание"));
+
+        assertEquals(size, Files.size(Path.of(path)), "Освободившиеся записи не использованы повторно");
+        assertEquals(10, restoreTaskManager(getStubHistoryManager(), path).getAllTasks().size());
+    }
+
+    @Test
+    void shouldRestoreTaskLongerThanOneRecord() {
+        Epic epic = new Epic(taskManager.getUniqueEpicId(), "Эпик", "Описание");
+        taskManager.createEpic(epic);
+        Subtask subtask = new Subtask(taskManager.getUniqueSubtaskId(), "Подзадача",
+                "Длинное описание ".repeat(100), epic);
+        taskManager.createSubtask(subtask);
+        subtask.setDescription("Короткое описание");
+        taskManager.updateSubtask(subtask);
+        Subtask secondSubtask = new Subtask(taskManager.getUniqueSubtaskId(), "Вторая подзадача",
+                "Длинное описание ".repeat(50), epic);
+        taskManager.createSubtask(secondSubtask);
+
+        final TaskManager newTaskManager = restoreTaskManager(getStubHistoryManager(), path);
+
+        assertEquals(List.of(subtask, secondSubtask), newTaskManager.getAllSubtasksOfEpic(epic.getId()));
+    }
+}
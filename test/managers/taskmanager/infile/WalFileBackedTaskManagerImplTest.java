@@ -0,0 +1,324 @@
+package managers.taskmanager.infile;
+
+import domain.Epic;
+import domain.Subtask;
+import domain.Task;
+import domain.TaskStatus;
+import domain.exceptions.ManagerSaveException;
+import managers.historymanager.HistoryManager;
+import managers.taskmanager.TaskManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalFileBackedTaskManagerImplTest extends FileBackedTaskManagerImplTest {
+    private static final int SNAPSHOT_EVERY_RECORDS = 1_000;
+
+    @BeforeEach
+    @Override
+    protected void beforeEach() throws IOException {
+        super.beforeEach();
+        taskManager = new WalFileBackedTaskManagerImpl(historyManager, path, SNAPSHOT_EVERY_RECORDS);
+    }
+
+    @AfterEach
+    @Override
+    protected void afterEach() {
+        ((WalFileBackedTaskManagerImpl) taskManager).close();
+        super.afterEach();
+        try {
+            Files.deleteIfExists(Path.of(path + ".wal"));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    protected TaskManager restoreTaskManager(HistoryManager historyManager, String path) {
+        return new WalFileBackedTaskManagerImpl(historyManager, path, SNAPSHOT_EVERY_RECORDS);
+    }
+
+    @Test
+    void shouldNotRewriteSnapshotOnEveryOperation() throws IOException {
+        final List<String> snapshotBefore = Files.readAllLines(Path.of(path));
+
+        Task task = new Task(taskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class));
+        taskManager.createTask(task);
+        taskManager.getTask(task.getId());
+
+        assertAll(
+                () -> assertEquals(snapshotBefore, Files.readAllLines(Path.of(path)), "Снимок не перезаписан"),
+                () -> assertEquals(2, Files.readAllLines(Path.of(path + ".wal")).size(), "Операции записаны в журнал")
+        );
+    }
+
+    @Test
+    void shouldRestoreUpdatedAndRemovedTasksFromLog() {
+        Task task = new Task(taskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class));
+        Task removedTask = new Task(taskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class));
+        Epic epic = new Epic(
+                taskManager.getUniqueEpicId(), generator.nextObject(String.class), generator.nextObject(String.class)
+        );
+        Subtask subtask = new Subtask(
+                taskManager.getUniqueSubtaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class), epic
+        );
+        taskManager.createTask(task);
+        taskManager.createTask(removedTask);
+        taskManager.createEpic(epic);
+        taskManager.createSubtask(subtask);
+        task.setStatus(TaskStatus.DONE);
+        taskManager.updateTask(task);
+        subtask.setStatus(TaskStatus.IN_PROGRESS);
+        taskManager.updateSubtask(subtask);
+        taskManager.removeTask(removedTask.getId());
+
+        final TaskManager newTaskManager = restoreTaskManager(getStubHistoryManager(), path);
+
+        assertAll(
+                () -> assertEquals(List.of(task), newTaskManager.getAllTasks(), "Задачи восстановлены из журнала"),
+                () -> assertEquals(
+                        TaskStatus.DONE, newTaskManager.getTask(task.getId()).getStatus(), "Статус задачи восстановлен"
+                ),
+                () -> assertEquals(
+                        TaskStatus.IN_PROGRESS, newTaskManager.getEpic(epic.getId()).getStatus(),
+                        "Статус эпика пересчитан по подзадачам"
+                ),
+                () -> assertEquals(
+                        taskManager.getUniqueTaskId(), newTaskManager.getUniqueTaskId(),
+                        "Счетчик идентификаторов восстановлен"
+                )
+        );
+    }
+
+    @Test
+    void shouldTruncateLogAfterSnapshot() throws IOException {
+        final WalFileBackedTaskManagerImpl walTaskManager =
+                new WalFileBackedTaskManagerImpl(getStubHistoryManager(), path, 2);
+
+        Task task = new Task(walTaskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class));
+        walTaskManager.createTask(task);
+        walTaskManager.getTask(task.getId());
+        walTaskManager.close();
+
+        assertAll(
+                () -> assertFalse(Files.exists(Path.of(path + ".wal")), "Журнал очищен после снимка"),
+                () -> assertEquals(
+                        List.of(task), restoreTaskManager(getStubHistoryManager(), path).getAllTasks(),
+                        "Задачи восстановлены из снимка"
+                )
+        );
+    }
+
+    @Test
+    void shouldIgnoreTornLastRecordOfLog() throws IOException {
+        Task task = new Task(taskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class));
+        taskManager.createTask(task);
+        Files.writeString(Path.of(path + ".wal"), "CREA", StandardOpenOption.APPEND);
+
+        final TaskManager newTaskManager = restoreTaskManager(getStubHistoryManager(), path);
+
+        assertEquals(List.of(task), newTaskManager.getAllTasks(), "Недописанная запись пропущена");
+    }
+
+    @Test
+    void shouldTruncateTornTailBeforeAppendingNewRecords() throws IOException {
+        Task task = new Task(taskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class));
+        taskManager.createTask(task);
+        Files.writeString(Path.of(path + ".wal"), "CREA", StandardOpenOption.APPEND);
+
+        final WalFileBackedTaskManagerImpl recoveredTaskManager =
+                new WalFileBackedTaskManagerImpl(getStubHistoryManager(), path, SNAPSHOT_EVERY_RECORDS);
+        Task secondTask = new Task(recoveredTaskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class));
+        recoveredTaskManager.createTask(secondTask);
+        final long truncatedBytes = recoveredTaskManager.getWalStats().getTruncatedBytes();
+        recoveredTaskManager.close();
+
+        assertAll(
+                () -> assertEquals(4, truncatedBytes, "Недописанный хвост отрезан"),
+                () -> assertEquals(
+                        List.of(task, secondTask), restoreTaskManager(getStubHistoryManager(), path).getAllTasks(),
+                        "Запись после восстановления не потеряна"
+                )
+        );
+    }
+
+    @Test
+    void shouldDropRecordsStartingFromBrokenChecksum() throws IOException {
+        Task task = new Task(taskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class));
+        taskManager.createTask(task);
+        taskManager.createTask(new Task(taskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class)));
+        final Path logPath = Path.of(path + ".wal");
+        final String log = Files.readString(logPath);
+        final int lastRecordStart = log.lastIndexOf('\n', log.length() - 2) + 1;
+        //первый символ тела записи после контрольной суммы
+        final int brokenIndex = lastRecordStart + 9;
+        Files.writeString(logPath, log.substring(0, brokenIndex) + "U" + log.substring(brokenIndex + 1));
+
+        final TaskManager newTaskManager = restoreTaskManager(getStubHistoryManager(), path);
+
+        assertAll(
+                () -> assertEquals(List.of(task), newTaskManager.getAllTasks(), "Поврежденная запись пропущена"),
+                () -> assertEquals(lastRecordStart, Files.size(logPath), "Поврежденная запись отрезана")
+        );
+    }
+
+    @Test
+    void shouldDropRecordWithBrokenFrameInsteadOfReadingItAsPreviousFormat() throws IOException {
+        Task task = new Task(taskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class));
+        taskManager.createTask(task);
+        taskManager.createTask(new Task(taskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class)));
+        final Path logPath = Path.of(path + ".wal");
+        final String log = Files.readString(logPath);
+        final int lastRecordStart = log.lastIndexOf('\n', log.length() - 2) + 1;
+        //разделитель контрольной суммы и тела записи
+        final int brokenIndex = lastRecordStart + 8;
+        Files.writeString(logPath, log.substring(0, brokenIndex) + "x" + log.substring(brokenIndex + 1));
+
+        final TaskManager newTaskManager = restoreTaskManager(getStubHistoryManager(), path);
+
+        assertAll(
+                () -> assertEquals(List.of(task), newTaskManager.getAllTasks(), "Поврежденная запись пропущена"),
+                () -> assertEquals(lastRecordStart, Files.size(logPath), "Поврежденная запись отрезана")
+        );
+    }
+
+    @Test
+    void shouldRecoverWhenSnapshotInterruptedBeforeOldLogSegmentRemoved() throws IOException {
+        Task task = new Task(taskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class));
+        taskManager.createTask(task);
+        Files.move(Path.of(path + ".wal"), Path.of(path + ".wal.old"));
+
+        final TaskManager newTaskManager = restoreTaskManager(getStubHistoryManager(), path);
+
+        assertAll(
+                () -> assertEquals(List.of(task), newTaskManager.getAllTasks(), "Задачи восстановлены из сегмента"),
+                () -> assertFalse(Files.exists(Path.of(path + ".wal.old")), "Старый сегмент удален после снимка")
+        );
+    }
+
+    @Test
+    void shouldReplayRecordsAlreadyWrittenToSnapshot() throws IOException {
+        final LocalDateTime startTime = LocalDateTime.of(2024, 1, 1, 10, 0);
+        final int taskId = taskManager.getUniqueTaskId();
+        final String title = generator.nextObject(String.class);
+        final String description = generator.nextObject(String.class);
+        taskManager.createTask(new Task(taskId, title, description, startTime.minusHours(2), 60));
+        taskManager.updateTask(new Task(taskId, title, description, startTime, 60));
+        Task movedTask = new Task(taskId, title, description, startTime.plusHours(4), 60);
+        taskManager.updateTask(movedTask);
+        //вторая задача занимает время, которое первая занимала в середине журнала
+        Task secondTask = new Task(taskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class), startTime, 60);
+        taskManager.createTask(secondTask);
+        final byte[] log = Files.readAllBytes(Path.of(path + ".wal"));
+        ((WalFileBackedTaskManagerImpl) taskManager).snapshot();
+        Files.write(Path.of(path + ".wal.old"), log);
+
+        final TaskManager newTaskManager = restoreTaskManager(getStubHistoryManager(), path);
+
+        assertEquals(
+                List.of(movedTask, secondTask), newTaskManager.getAllTasks(),
+                "Записи, уже учтенные в снимке, применены повторно без ошибок"
+        );
+    }
+
+    @Test
+    void shouldKeepUnsavedLogSegmentWhenSnapshotFails() throws IOException {
+        Task task = new Task(taskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class));
+        taskManager.createTask(task);
+        //сегмент, оставшийся от предыдущего неудачного снимка
+        Files.move(Path.of(path + ".wal"), Path.of(path + ".wal.old"));
+        Task secondTask = new Task(taskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class));
+        taskManager.createTask(secondTask);
+        //каталог на месте файла снимка не дает его заменить
+        final Path snapshotPath = Path.of(path);
+        final Path blocker = snapshotPath.resolve("blocker");
+        Files.delete(snapshotPath);
+        Files.createDirectories(blocker);
+
+        final WalFileBackedTaskManagerImpl walTaskManager = (WalFileBackedTaskManagerImpl) taskManager;
+        assertThrows(ManagerSaveException.class, walTaskManager::snapshot, "Снимок не записан");
+        final WalStats stats = walTaskManager.getWalStats();
+        walTaskManager.close();
+        Files.delete(blocker);
+        Files.delete(snapshotPath);
+
+        assertAll(
+                () -> assertEquals(1, stats.getFailedSnapshots(), "Ошибка снимка учтена в статистике"),
+                () -> assertNotNull(stats.getLastSnapshotError(), "Причина ошибки снимка"),
+                () -> assertEquals(
+                        List.of(task, secondTask), restoreTaskManager(getStubHistoryManager(), path).getAllTasks(),
+                        "Записи обоих сегментов журнала сохранены"
+                )
+        );
+    }
+
+    @Test
+    void shouldReportLogSizeAndRecoveryMetrics() {
+        final int tasksCount = 10;
+        for (int i = 0; i < tasksCount; i++)
+            taskManager.createTask(new Task(taskManager.getUniqueTaskId(),
+                    generator.nextObject(String.class), generator.nextObject(String.class)));
+
+        final WalStats stats = ((WalFileBackedTaskManagerImpl) taskManager).getWalStats();
+        final WalStats recoveryStats =
+                ((WalFileBackedTaskManagerImpl) restoreTaskManager(getStubHistoryManager(), path)).getWalStats();
+
+        assertAll(
+                () -> assertEquals(tasksCount, stats.getLogRecords(), "Размер журнала в записях"),
+                () -> assertTrue(stats.getLogBytes() > 0, "Размер журнала в байтах"),
+                () -> assertEquals(tasksCount, recoveryStats.getRecoveredRecords(), "Восстановлено записей журнала"),
+                () -> assertTrue(recoveryStats.getRecoveryMillis() >= 0, "Время восстановления")
+        );
+    }
+
+    @Test
+    void shouldSnapshotPeriodicallyInBackground() throws InterruptedException {
+        final WalFileBackedTaskManagerImpl walTaskManager = new WalFileBackedTaskManagerImpl(
+                getStubHistoryManager(), path, SNAPSHOT_EVERY_RECORDS, Duration.ofMillis(10)
+        );
+        Task task = new Task(walTaskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class));
+        walTaskManager.createTask(task);
+
+        final long deadline = System.currentTimeMillis() + 5_000;
+        while (walTaskManager.getWalStats().getSnapshots() == 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        final WalStats stats = walTaskManager.getWalStats();
+        walTaskManager.close();
+
+        assertAll(
+                () -> assertEquals(1, stats.getSnapshots(), "Снимок записан в фоне"),
+                () -> assertEquals(0, stats.getLogRecords(), "Журнал очищен после снимка"),
+                () -> assertEquals(
+                        List.of(task), restoreTaskManager(getStubHistoryManager(), path).getAllTasks(),
+                        "Задачи восстановлены из снимка"
+                )
+        );
+    }
+}
@@ -0,0 +1,182 @@
+package managers.taskmanager.infile;
+
+import domain.Task;
+import managers.historymanager.HistoryManager;
+import managers.historymanager.inmemory.InMemoryHistoryManagerImpl;
+import managers.taskmanager.TaskManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindFileBackedTaskManagerImplTest extends FileBackedTaskManagerImplTest {
+    private static final WriteBehindSettings GROUP_COMMIT_SETTINGS =
+            new WriteBehindSettings(DurabilityPolicy.GROUP_COMMIT, Duration.ofMillis(5), 10);
+
+    @BeforeEach
+    @Override
+    protected void beforeEach() throws IOException {
+        super.beforeEach();
+        taskManager = new FileBackedTaskManagerImpl(historyManager, path, GROUP_COMMIT_SETTINGS);
+    }
+
+    @AfterEach
+    @Override
+    protected void afterEach() {
+        taskManager.close();
+        super.afterEach();
+    }
+
+    @Override
+    protected TaskManager restoreTaskManager(HistoryManager historyManager, String path) {
+        return new FileBackedTaskManagerImpl(historyManager, path, GROUP_COMMIT_SETTINGS);
+    }
+
+    @Test
+    void shouldPersistAsyncChangesOnlyAfterFlush() {
+        final FileBackedTaskManagerImpl asyncTaskManager = new FileBackedTaskManagerImpl(
+                getStubHistoryManager(), path,
+                new WriteBehindSettings(DurabilityPolicy.ASYNC, Duration.ofMinutes(1), 1_000)
+        );
+        final List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Task task = new Task(asyncTaskManager.getUniqueTaskId(),
+                    generator.nextObject(String.class), generator.nextObject(String.class));
+            tasks.add(task);
+            asyncTaskManager.createTask(task);
+        }
+
+        final List<Task> tasksBeforeFlush = restoreTaskManager(getStubHistoryManager(), path).getAllTasks();
+        asyncTaskManager.flush().join();
+        final List<Task> tasksAfterFlush = restoreTaskManager(getStubHistoryManager(), path).getAllTasks();
+        asyncTaskManager.close();
+
+        assertAll(
+                () -> assertTrue(tasksBeforeFlush.isEmpty(), "Изменения еще не записаны"),
+                () -> assertEquals(tasks, tasksAfterFlush, "Изменения записаны одним сбросом")
+        );
+    }
+
+    @Test
+    void shouldFlushGroupWhenOpsLimitReached() throws InterruptedException {
+        final FileBackedTaskManagerImpl asyncTaskManager = new FileBackedTaskManagerImpl(
+                getStubHistoryManager(), path,
+                new WriteBehindSettings(DurabilityPolicy.ASYNC, Duration.ofMinutes(1), 3)
+        );
+        final List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Task task = new Task(asyncTaskManager.getUniqueTaskId(),
+                    generator.nextObject(String.class), generator.nextObject(String.class));
+            tasks.add(task);
+            asyncTaskManager.createTask(task);
+        }
+
+        final long deadline = System.currentTimeMillis() + 5_000;
+        while (countTaskLines() < tasks.size() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        final List<Task> restoredTasks = restoreTaskManager(getStubHistoryManager(), path).getAllTasks();
+        asyncTaskManager.close();
+
+        assertEquals(tasks, restoredTasks, "Группа записана без ожидания окна");
+    }
+
+    @Test
+    void shouldReportAsyncFlushFailureInStats() throws IOException {
+        final FileBackedTaskManagerImpl asyncTaskManager = new FileBackedTaskManagerImpl(
+                getStubHistoryManager(), path,
+                new WriteBehindSettings(DurabilityPolicy.ASYNC, Duration.ofMinutes(1), 1_000)
+        );
+        asyncTaskManager.createTask(new Task(asyncTaskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class)));
+        //каталог на месте файла снимка не дает его заменить
+        final Path snapshotPath = Path.of(path);
+        final Path blocker = snapshotPath.resolve("blocker");
+        Files.delete(snapshotPath);
+        Files.createDirectories(blocker);
+
+        final CompletableFuture<Void> failedFlush = asyncTaskManager.flush();
+        assertThrows(CompletionException.class, failedFlush::join, "Снимок не записан");
+        final long failedFlushes = asyncTaskManager.getWriteBehindStats().getFailedFlushes();
+        final String lastFlushError = asyncTaskManager.getWriteBehindStats().getLastFlushError();
+        Files.delete(blocker);
+        Files.delete(snapshotPath);
+        asyncTaskManager.createTask(new Task(asyncTaskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class)));
+        asyncTaskManager.flush().join();
+        final long flushes = asyncTaskManager.getWriteBehindStats().getFlushes();
+        asyncTaskManager.close();
+
+        assertAll(
+                () -> assertEquals(1, failedFlushes, "Ошибка записи учтена в статистике"),
+                () -> assertNotNull(lastFlushError, "Причина ошибки записи"),
+                () -> assertEquals(1, flushes, "Следующий сброс записан")
+        );
+    }
+
+    @Test
+    void shouldPersistEveryOperationWithFsyncPolicy() {
+        final FileBackedTaskManagerImpl syncTaskManager = new FileBackedTaskManagerImpl(
+                getStubHistoryManager(), path,
+                new WriteBehindSettings(DurabilityPolicy.EVERY_OP_FSYNC, Duration.ZERO, 1)
+        );
+        Task task = new Task(syncTaskManager.getUniqueTaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class));
+        syncTaskManager.createTask(task);
+
+        assertEquals(
+                List.of(task), restoreTaskManager(getStubHistoryManager(), path).getAllTasks(),
+                "Изменение записано сразу"
+        );
+        syncTaskManager.close();
+    }
+
+    @Test
+    void shouldKeepViewsMadeWhileSnapshotIsWritten() {
+        final HistoryManager asyncHistoryManager = new InMemoryHistoryManagerImpl();
+        final FileBackedTaskManagerImpl asyncTaskManager = new FileBackedTaskManagerImpl(
+                asyncHistoryManager, path,
+                new WriteBehindSettings(DurabilityPolicy.ASYNC, Duration.ofMinutes(1), 1_000)
+        );
+        final List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Task task = new Task(asyncTaskManager.getUniqueTaskId(),
+                    generator.nextObject(String.class), generator.nextObject(String.class));
+            tasks.add(task);
+            asyncTaskManager.createTask(task);
+        }
+
+        //снимок пишется в фоне, просмотры не ждут окончания записи
+        final CompletableFuture<Void> written = asyncTaskManager.flush();
+        for (int i = tasks.size() - 1; i >= 0; i--)
+            asyncTaskManager.getTask(tasks.get(i).getId());
+        written.join();
+        asyncTaskManager.close();
+
+        final HistoryManager newHistoryManager = new InMemoryHistoryManagerImpl();
+        final List<Task> restoredTasks = restoreTaskManager(newHistoryManager, path).getAllTasks();
+        assertAll(
+                () -> assertEquals(tasks, restoredTasks, "Задачи записаны фоновым снимком"),
+                () -> assertEquals(asyncHistoryManager.getHistory(), newHistoryManager.getHistory(),
+                        "Просмотры во время записи снимка сохранены")
+        );
+    }
+
+    private static long countTaskLines() {
+        try {
+            return Files.readAllLines(Path.of(path)).stream().filter(line -> line.contains(",TASK,")).count();
+        } catch (IOException e) {
+            //файл заменяется фоновой записью
+            return 0;
+        }
+    }
+}
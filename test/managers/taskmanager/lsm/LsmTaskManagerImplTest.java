@@ -0,0 +1,216 @@
+package managers.taskmanager.lsm;
+
+import domain.Epic;
+import domain.Subtask;
+import domain.Task;
+import domain.TaskStatus;
+import domain.exceptions.OverlappingTaskTimeException;
+import domain.exceptions.TaskNotFoundException;
+import managers.historymanager.HistoryManager;
+import managers.historymanager.inmemory.InMemoryHistoryManagerImpl;
+import managers.taskmanager.TaskManagerTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LsmTaskManagerImplTest extends TaskManagerTest<LsmTaskManagerImpl> {
+    private static final long MEMTABLE_MAX_BYTES = 16 * 1024;
+    private static final int MAX_CACHED_TASKS = 10;
+
+    private static final HistoryManager historyManager = new HistoryManager() {
+        @Override
+        public void add(Task task) {
+        }
+
+        @Override
+        public void remove(int id) {
+        }
+
+        @Override
+        public List<Task> getHistory() {
+            return new ArrayList<>();
+        }
+    };
+
+    private Path directory;
+
+    @BeforeEach
+    @Override
+    protected void beforeEach() throws IOException {
+        directory = Files.createTempDirectory("tasks-lsm");
+        taskManager = open();
+    }
+
+    @AfterEach
+    @Override
+    protected void afterEach() {
+        taskManager.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator)
+                Files.deleteIfExists(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    protected void shouldRestoreTasksEpicsAndSubtasksAfterReopen() {
+        Task task = new Task(taskManager.getUniqueTaskId(), generator.nextObject(String.class), "",
+                LocalDateTime.of(2022, 1, 1, 10, 0, 0, 123_456_789), 30);
+        task.setStatus(TaskStatus.IN_PROGRESS);
+        Epic epic = new Epic(
+                taskManager.getUniqueEpicId(), generator.nextObject(String.class), generator.nextObject(String.class)
+        );
+        Subtask subtask = new Subtask(
+                taskManager.getUniqueSubtaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class), epic
+        );
+        subtask.setStatus(TaskStatus.DONE);
+        taskManager.createTask(task);
+        taskManager.createEpic(epic);
+        taskManager.createSubtask(subtask);
+        taskManager.close();
+
+        final LsmTaskManagerImpl newTaskManager = open();
+
+        assertAll(
+                () -> assertEquals(List.of(task), newTaskManager.getAllTasks(), "Задачи восстановлены"),
+                () -> assertEquals(List.of(epic), newTaskManager.getAllEpics(), "Эпики восстановлены"),
+                () -> assertEquals(List.of(subtask), newTaskManager.getAllSubtasks(), "Подзадачи восстановлены"),
+                () -> assertEquals(
+                        TaskStatus.DONE, newTaskManager.getEpic(epic.getId()).getStatus(), "Статус эпика пересчитан"
+                ),
+                () -> assertEquals(
+                        subtask.getId() + 1, newTaskManager.getUniqueTaskId(), "Счетчик идентификаторов восстановлен"
+                )
+        );
+        taskManager = newTaskManager;
+    }
+
+    @Test
+    protected void shouldRecoverUnflushedWritesFromLog() {
+        Task task = new Task(taskManager.getUniqueTaskId(), "Задача", "Описание");
+        Task removedTask = new Task(taskManager.getUniqueTaskId(), "Удаленная", "Описание");
+        taskManager.createTask(task);
+        taskManager.createTask(removedTask);
+        taskManager.removeTask(removedTask.getId());
+
+        //прежний менеджер не закрыт, как при сбое процесса
+        final LsmTaskManagerImpl newTaskManager = open();
+
+        assertAll(
+                () -> assertEquals(List.of(task), newTaskManager.getAllTasks()),
+                () -> assertEquals(3, newTaskManager.getStorageStats().getRecoveredRecords())
+        );
+        taskManager = newTaskManager;
+    }
+
+    @Test
+    protected void shouldFlushAndCompactTablesKeepingLatestVersions() {
+        final List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            Task task = new Task(taskManager.getUniqueTaskId(), "Задача " + i, "Описание");
+            taskManager.createTask(task);
+            tasks.add(task);
+        }
+        for (int i = 0; i < tasks.size(); i += 2)
+            taskManager.removeTask(tasks.get(i).getId());
+        Task updatedTask = new Task(tasks.get(1).getId(), "Новое название", "Описание");
+        taskManager.updateTask(updatedTask);
+        //закрытие дожидается запущенного сжатия
+        taskManager.close();
+        final LsmStats stats = taskManager.getStorageStats();
+
+        final LsmTaskManagerImpl newTaskManager = open();
+
+        assertAll(
+                () -> assertTrue(stats.getFlushes() > 4 && stats.getCompactions() > 0, "Таблицы не сжаты: " + stats),
+                () -> assertEquals(1_000, newTaskManager.getAllTasks().size()),
+                () -> assertEquals(updatedTask, newTaskManager.getTask(updatedTask.getId())),
+                () -> assertThrows(TaskNotFoundException.class, () -> newTaskManager.getTask(tasks.get(0).getId()))
+        );
+        taskManager = newTaskManager;
+    }
+
+    @Test
+    protected void shouldReturnEvictedTasksInPrioritizedOrder() {
+        final List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < MAX_CACHED_TASKS * 5; i++) {
+            Task task = new Task(taskManager.getUniqueTaskId(), "Задача " + i, "Описание",
+                    LocalDateTime.of(2022, 1, 1, 0, 0).plusHours(i), 30);
+            taskManager.createTask(task);
+            tasks.add(task);
+        }
+
+        assertEquals(tasks, taskManager.getPrioritizedTasks());
+    }
+
+    @Test
+    protected void shouldReturnInstanceHeldByHistoryAfterEviction() {
+        final HistoryManager viewHistory = new InMemoryHistoryManagerImpl();
+        taskManager.close();
+        taskManager = open(viewHistory);
+        final Task task = new Task(
+                taskManager.getUniqueTaskId(), generator.nextObject(String.class), generator.nextObject(String.class)
+        );
+        taskManager.createTask(task);
+        taskManager.getTask(task.getId());
+        for (int i = 0; i < MAX_CACHED_TASKS; i++)
+            taskManager.createTask(new Task(taskManager.getUniqueTaskId(),
+                    generator.nextObject(String.class), generator.nextObject(String.class)));
+        final String newTitle = generator.nextObject(String.class);
+
+        taskManager.updateTask(new Task(task.getId(), newTitle, task.getDescription()));
+        final Task viewedTask = viewHistory.getHistory().get(0);
+        final Task loadedTask = taskManager.getTask(task.getId());
+
+        assertAll(
+                () -> assertSame(viewedTask, loadedTask, "История и хранилище ссылаются на один экземпляр"),
+                () -> assertEquals(newTitle, viewedTask.getTitle(), "Изменение видно в истории")
+        );
+    }
+
+    @Test
+    protected void shouldDetectOverlappingWithEvictedTasksAfterReopen() {
+        final List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < MAX_CACHED_TASKS * 5; i++) {
+            Task task = new Task(taskManager.getUniqueTaskId(), "Задача " + i, "Описание",
+                    LocalDateTime.of(2022, 1, 1, 0, 0).plusDays(2 * i), 60 * 36);
+            taskManager.createTask(task);
+            tasks.add(task);
+        }
+        //прежний менеджер не закрыт, индекс расписания перестраивается по задачам
+        //пересечение приходится на следующий день после начала вытесненной задачи
+        final LsmTaskManagerImpl newTaskManager = open();
+        final Task overlappingTask = new Task(newTaskManager.getUniqueTaskId(), "Пересечение", "Описание",
+                LocalDateTime.of(2022, 1, 2, 6, 0).plusDays(2 * MAX_CACHED_TASKS), 30);
+        final Task freeTask = new Task(newTaskManager.getUniqueTaskId(), "Свободная", "Описание",
+                LocalDateTime.of(2022, 1, 1, 0, 0).plusDays(2 * tasks.size()), 30);
+
+        assertAll(
+                () -> assertEquals(tasks, newTaskManager.getPrioritizedTasks()),
+                () -> assertThrows(OverlappingTaskTimeException.class, () -> newTaskManager.createTask(overlappingTask)),
+                () -> assertDoesNotThrow(() -> newTaskManager.createTask(freeTask))
+        );
+        taskManager = newTaskManager;
+    }
+
+    private LsmTaskManagerImpl open() {
+        return open(historyManager);
+    }
+
+    private LsmTaskManagerImpl open(HistoryManager historyManager) {
+        return new LsmTaskManagerImpl(historyManager, directory, MEMTABLE_MAX_BYTES, MAX_CACHED_TASKS, false);
+    }
+}
@@ -0,0 +1,158 @@
+package managers.taskmanager.mapped;
+
+import domain.Epic;
+import domain.Subtask;
+import domain.Task;
+import domain.TaskStatus;
+import managers.historymanager.HistoryManager;
+import managers.taskmanager.TaskManagerTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedTaskManagerImplTest extends TaskManagerTest<MappedTaskManagerImpl> {
+
+    private static final HistoryManager historyManager = new HistoryManager() {
+        @Override
+        public void add(Task task) {
+        }
+
+        @Override
+        public void remove(int id) {
+        }
+
+        @Override
+        public List<Task> getHistory() {
+            return new ArrayList<>();
+        }
+    };
+
+    private Path path;
+
+    @BeforeEach
+    @Override
+    protected void beforeEach() throws IOException {
+        path = Files.createTempFile("tasks", ".slots");
+        taskManager = new MappedTaskManagerImpl(historyManager, path, false);
+    }
+
+    @AfterEach
+    @Override
+    protected void afterEach() {
+        taskManager.close();
+        try {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(Path.of(path + ".strings"));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    protected void shouldRestoreTasksEpicsAndSubtasksAfterReopen() {
+        Task task = new Task(taskManager.getUniqueTaskId(), generator.nextObject(String.class), "",
+                LocalDateTime.of(2022, 1, 1, 10, 0, 0, 123_456_789), 30);
+        task.setStatus(TaskStatus.IN_PROGRESS);
+        Epic epic = new Epic(
+                taskManager.getUniqueEpicId(), generator.nextObject(String.class), generator.nextObject(String.class)
+        );
+        Subtask subtask = new Subtask(
+                taskManager.getUniqueSubtaskId(),
+                generator.nextObject(String.class), generator.nextObject(String.class), epic
+        );
+        subtask.setStatus(TaskStatus.DONE);
+        taskManager.createTask(task);
+        taskManager.createEpic(epic);
+        taskManager.createSubtask(subtask);
+
+        final MappedTaskManagerImpl newTaskManager = reopen();
+
+        assertAll(
+                () -> assertEquals(List.of(task), newTaskManager.getAllTasks(), "Задачи восстановлены"),
+                () -> assertEquals(
+                        task.getStartTime(), newTaskManager.getTask(task.getId()).getStartTime(),
+                        "Время начала восстановлено без потери точности"
+                ),
+                () -> assertEquals(List.of(epic), newTaskManager.getAllEpics(), "Эпики восстановлены"),
+                () -> assertEquals(List.of(subtask), newTaskManager.getAllSubtasks(), "Подзадачи восстановлены"),
+                () -> assertEquals(
+                        TaskStatus.DONE, newTaskManager.getEpic(epic.getId()).getStatus(), "Статус эпика пересчитан"
+                ),
+                () -> assertEquals(
+                        taskManager.getUniqueTaskId(), newTaskManager.getUniqueTaskId(),
+                        "Счетчик идентификаторов восстановлен"
+                )
+        );
+    }
+
+    @Test
+    protected void shouldPatchUpdatedAndRemovedTasksInPlace() {
+        Task task = new Task(taskManager.getUniqueTaskId(), "Короткий", "Описание");
+        Task removedTask = new Task(taskManager.getUniqueTaskId(), "Удаленная", "Описание");
+        taskManager.createTask(task);
+        taskManager.createTask(removedTask);
+
+        Task updatedTask = new Task(task.getId(), "Гораздо более длинный заголовок задачи", "Опис");
+        taskManager.updateTask(updatedTask);
+        taskManager.removeTask(removedTask.getId());
+
+        final MappedTaskManagerImpl newTaskManager = reopen();
+        final Task restoredTask = newTaskManager.getTask(task.getId());
+
+        assertAll(
+                () -> assertEquals(1, newTaskManager.getAllTasks().size(), "Удаленная задача не восстановлена"),
+                () -> assertEquals(updatedTask.getTitle(), restoredTask.getTitle(), "Заголовок обновлен"),
+                () -> assertEquals(updatedTask.getDescription(), restoredTask.getDescription(), "Описание обновлено")
+        );
+    }
+
+    @Test
+    protected void shouldGrowSlotsWhenFileIsFull() {
+        final int tasksCount = 3_000;
+        for (int i = 0; i < tasksCount; i++)
+            taskManager.createTask(new Task(
+                    taskManager.getUniqueTaskId(), generator.nextObject(String.class), generator.nextObject(String.class)
+            ));
+
+        assertEquals(taskManager.getAllTasks(), reopen().getAllTasks(), "Все задачи восстановлены");
+    }
+
+    @Test
+    protected void shouldDecodeTaskStringsOnFirstAccessAfterReopen() {
+        Task lateTask = new Task(taskManager.getUniqueTaskId(), "Поздняя", "Описание",
+                LocalDateTime.of(2022, 1, 2, 10, 0), 30);
+        Task earlyTask = new Task(taskManager.getUniqueTaskId(), "Ранняя", "Описание",
+                LocalDateTime.of(2022, 1, 1, 10, 0), 30);
+        taskManager.createTask(lateTask);
+        taskManager.createTask(earlyTask);
+
+        final MappedTaskManagerImpl newTaskManager = reopen();
+        final int notLoadedAfterReopen = newTaskManager.getNotLoadedTasksCount();
+        final String lateTitle = newTaskManager.getTask(lateTask.getId()).getTitle();
+        final int notLoadedAfterGet = newTaskManager.getNotLoadedTasksCount();
+
+        assertAll(
+                () -> assertEquals(2, notLoadedAfterReopen, "Строки задач не декодируются при открытии"),
+                () -> assertEquals(lateTask.getTitle(), lateTitle, "Задача декодирована при обращении"),
+                () -> assertEquals(1, notLoadedAfterGet, "Декодирована только запрошенная задача"),
+                () -> assertEquals(
+                        List.of(earlyTask, lateTask), newTaskManager.getPrioritizedTasks(),
+                        "Порядок задач восстановлен по фиксированным полям"
+                )
+        );
+    }
+
+    private MappedTaskManagerImpl reopen() {
+        taskManager.flush();
+        return new MappedTaskManagerImpl(historyManager, path, false);
+    }
+}
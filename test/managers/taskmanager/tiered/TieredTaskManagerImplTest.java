@@ -0,0 +1,151 @@
+package managers.taskmanager.tiered;
+
+import domain.Task;
+import managers.historymanager.HistoryManager;
+import managers.historymanager.inmemory.InMemoryHistoryManagerImpl;
+import managers.taskmanager.TaskManagerTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TieredTaskManagerImplTest extends TaskManagerTest<TieredTaskManagerImpl> {
+    private static final int MAX_HOT_TASKS = 3;
+
+    private static final HistoryManager historyManager = new HistoryManager() {
+        @Override
+        public void add(Task task) {
+        }
+
+        @Override
+        public void remove(int id) {
+        }
+
+        @Override
+        public List<Task> getHistory() {
+            return new ArrayList<>();
+        }
+    };
+
+    private Path coldStoragePath;
+
+    @BeforeEach
+    @Override
+    protected void beforeEach() throws IOException {
+        coldStoragePath = Files.createTempFile("cold", ".seg");
+        taskManager = new TieredTaskManagerImpl(historyManager, coldStoragePath, MAX_HOT_TASKS, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    @Override
+    protected void afterEach() {
+        taskManager.close();
+    }
+
+    @Test
+    protected void shouldLoadEvictedTaskFromColdStorage() {
+        final int tasksCount = 10;
+        List<Task> tasks = new ArrayList<>(tasksCount);
+        for (int i = 0; i < tasksCount; i++) {
+            Task task = new Task(
+                    taskManager.getUniqueTaskId(),
+                    generator.nextObject(String.class),
+                    generator.nextObject(String.class)
+            );
+            tasks.add(task);
+            taskManager.createTask(task);
+        }
+
+        final Task expectedTask = tasks.get(0);
+        final Task actualTask = taskManager.getTask(expectedTask.getId());
+        final TieredStorageStats stats = taskManager.getStorageStats();
+
+        assertAll(
+                () -> assertEquals(expectedTask, actualTask),
+                () -> assertEquals(1, stats.getMisses()),
+                () -> assertEquals(MAX_HOT_TASKS, stats.getHotTasksCount()),
+                () -> assertEquals(tasksCount - MAX_HOT_TASKS, stats.getColdTasksCount()),
+                () -> assertEquals(tasks, taskManager.getAllTasks())
+        );
+    }
+
+    @Test
+    protected void shouldReadOnlyIteratedColdTasksOfPrioritizedList() {
+        final List<String> titles = new ArrayList<>();
+        for (int i = 0; i < MAX_HOT_TASKS * 4; i++) {
+            titles.add("Задача " + i);
+            taskManager.createTask(new Task(taskManager.getUniqueTaskId(), titles.get(i), "Описание",
+                    LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(i), 30));
+        }
+        final long coldReadsBefore = taskManager.getStorageStats().getColdReads();
+
+        final List<Task> prioritizedTasks = taskManager.getPrioritizedTasks();
+        final long coldReadsAfterCall = taskManager.getStorageStats().getColdReads();
+        final String firstTitle = prioritizedTasks.get(0).getTitle();
+        final long coldReadsAfterFirst = taskManager.getStorageStats().getColdReads();
+
+        assertAll(
+                () -> assertEquals(coldReadsBefore, coldReadsAfterCall, "Вызов не читает холодные задачи"),
+                () -> assertTrue(coldReadsAfterFirst - coldReadsAfterCall <= 1, "Прочитана только первая задача"),
+                () -> assertEquals(titles.get(0), firstTitle),
+                () -> assertEquals(titles, prioritizedTasks.stream().map(Task::getTitle).collect(Collectors.toList()))
+        );
+    }
+
+    @Test
+    protected void shouldEvictIdleTasks() {
+        taskManager.close();
+        taskManager = new TieredTaskManagerImpl(historyManager, coldStoragePath, MAX_HOT_TASKS, Duration.ZERO);
+        final Task task = new Task(
+                taskManager.getUniqueTaskId(), generator.nextObject(String.class), generator.nextObject(String.class)
+        );
+        taskManager.createTask(task);
+
+        taskManager.evictIdleTasks();
+
+        assertAll(
+                () -> assertEquals(0, taskManager.getStorageStats().getHotTasksCount()),
+                () -> assertEquals(List.of(task), taskManager.getPrioritizedTasks()),
+                () -> assertEquals(task, taskManager.getTask(task.getId())),
+                () -> assertEquals(1, taskManager.getStorageStats().getMisses())
+        );
+    }
+
+    @Test
+    protected void shouldReturnInstanceHeldByHistoryAfterEviction() {
+        final HistoryManager viewHistory = new InMemoryHistoryManagerImpl();
+        taskManager.close();
+        taskManager = new TieredTaskManagerImpl(viewHistory, coldStoragePath, MAX_HOT_TASKS, Duration.ofHours(1));
+        final Task task = new Task(
+                taskManager.getUniqueTaskId(), generator.nextObject(String.class), generator.nextObject(String.class)
+        );
+        taskManager.createTask(task);
+        taskManager.getTask(task.getId());
+        for (int i = 0; i < MAX_HOT_TASKS; i++)
+            taskManager.createTask(new Task(taskManager.getUniqueTaskId(),
+                    generator.nextObject(String.class), generator.nextObject(String.class)));
+        final String newTitle = generator.nextObject(String.class);
+
+        taskManager.updateTask(new Task(task.getId(), newTitle, task.getDescription()));
+        final Task viewedTask = viewHistory.getHistory().get(0);
+        final Task loadedTask = taskManager.getTask(task.getId());
+
+        assertAll(
+                () -> assertEquals(
+                        1, taskManager.getStorageStats().getMisses(), "Задача загружена из холодного хранилища"
+                ),
+                () -> assertSame(viewedTask, loadedTask, "История и хранилище ссылаются на один экземпляр"),
+                () -> assertEquals(newTitle, viewedTask.getTitle(), "Изменение видно в истории")
+        );
+    }
+}
@@ -0,0 +1,70 @@
+package presenter.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressingKVTaskClientTest {
+    private final Map<String, String> storage = new HashMap<>();
+    private KVTaskClient storageClient;
+
+    @BeforeEach
+    void beforeEach() {
+        storage.clear();
+        storageClient = new KVTaskClient() {
+            @Override
+            public void put(String key, String json) {
+                storage.put(key, json);
+            }
+
+            @Override
+            public void delete(String key) {
+                storage.remove(key);
+            }
+
+            @Override
+            public String load(String key) {
+                return storage.get(key);
+            }
+        };
+    }
+
+    @Test
+    void shouldCompressLargeValues() {
+        final KVTaskClient client = new CompressingKVTaskClient(storageClient, true);
+        final String json = "[" + "{\"title\":\"Задача\",\"description\":\"Описание\"},".repeat(100) + "{}]";
+
+        client.put("tasks", json);
+
+        assertAll(
+                () -> assertTrue(storage.get("tasks").startsWith(CompressingKVTaskClient.COMPRESSED_PREFIX)),
+                () -> assertTrue(storage.get("tasks").length() < json.length()),
+                () -> assertEquals(json, client.load("tasks"))
+        );
+    }
+
+    @Test
+    void shouldStoreShortValuesAsIs() {
+        final KVTaskClient client = new CompressingKVTaskClient(storageClient, true);
+
+        client.put("history", "[1,2,3]");
+
+        assertEquals("[1,2,3]", storage.get("history"));
+    }
+
+    @Test
+    void shouldLoadUncompressedValues() {
+        final String json = "[" + "{\"title\":\"Задача\"},".repeat(100) + "{}]";
+        new CompressingKVTaskClient(storageClient, false).put("tasks", json);
+
+        assertAll(
+                () -> assertEquals(json, storage.get("tasks")),
+                () -> assertEquals(json, new CompressingKVTaskClient(storageClient, true).load("tasks")),
+                () -> assertNull(new CompressingKVTaskClient(storageClient, true).load("epics"))
+        );
+    }
+}
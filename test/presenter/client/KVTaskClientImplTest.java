@@ -0,0 +1,89 @@
+package presenter.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import presenter.server.KVServer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KVTaskClientImplTest {
+    private KVServer kvServer;
+    private KVTaskClient client;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        kvServer = new KVServer();
+        kvServer.start();
+        client = new KVTaskClientImpl("http://localhost:" + KVServer.PORT);
+    }
+
+    @AfterEach
+    void afterEach() {
+        kvServer.stop();
+    }
+
+    @Test
+    void shouldApplyRequestsForSameKeyInOrder() {
+        final List<CompletableFuture<Void>> requests = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            requests.add(client.putAsync("tasks", "[" + i + "]"));
+            requests.add(client.putAsync("history", "[" + i + "]"));
+        }
+        requests.add(client.deleteAsync("history"));
+        final CompletableFuture<String> tasks = client.loadAsync("tasks");
+        final CompletableFuture<String> history = client.loadAsync("history");
+
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])).join();
+        assertAll(
+                () -> assertEquals("[49]", tasks.join(), "Загружено значение последней записи"),
+                () -> assertNull(history.join(), "Удаление выполнено после всех записей ключа")
+        );
+    }
+
+    @Test
+    void shouldQueueRequestsOverLimitWithoutBlockingCaller() throws IOException {
+        //сервер не отвечает, пока не открыта защелка, все отправленные запросы остаются незавершенными
+        final CountDownLatch responsesAllowed = new CountDownLatch(1);
+        kvServer.stop();
+        kvServer = new KVServer() {
+            @Override
+            protected boolean hasAuth(HttpExchange h) {
+                try {
+                    responsesAllowed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.hasAuth(h);
+            }
+        };
+        kvServer.start();
+        final KVTaskClient blockedClient = new KVTaskClientImpl("http://localhost:" + KVServer.PORT);
+        final List<CompletableFuture<Void>> requests = new ArrayList<>();
+
+        //вызовы из продолжений и потоков клиента не должны ждать свободного места
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (int i = 0; i < 200; i++)
+                requests.add(blockedClient.putAsync("TASK_" + i, "[]"));
+        });
+        responsesAllowed.countDown();
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])).join();
+
+        assertEquals("[]", blockedClient.load("TASK_199"));
+    }
+
+    @Test
+    void shouldFailRequestWithoutServer() {
+        kvServer.stop();
+
+        assertThrows(RuntimeException.class, () -> client.put("tasks", "[]"));
+    }
+}
@@ -0,0 +1,172 @@
+package presenter.client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindKVTaskClientTest {
+    private final Map<String, String> storage = new HashMap<>();
+    private final AtomicInteger storageWrites = new AtomicInteger();
+    private final AtomicBoolean storageAvailable = new AtomicBoolean(true);
+    private final Set<String> unavailableKeys = new HashSet<>();
+    private final List<String> writtenKeys = new ArrayList<>();
+    private KVTaskClient storageClient;
+    private WriteBehindKVTaskClient client;
+
+    @BeforeEach
+    void beforeEach() {
+        storage.clear();
+        storageWrites.set(0);
+        storageAvailable.set(true);
+        unavailableKeys.clear();
+        writtenKeys.clear();
+        storageClient = new KVTaskClient() {
+            @Override
+            public synchronized void put(String key, String json) {
+                checkAvailable();
+                if (unavailableKeys.contains(key))
+                    throw new RuntimeException("Ключ недоступен");
+                storageWrites.incrementAndGet();
+                writtenKeys.add(key);
+                storage.put(key, json);
+            }
+
+            @Override
+            public synchronized void delete(String key) {
+                checkAvailable();
+                storageWrites.incrementAndGet();
+                writtenKeys.add(key);
+                storage.remove(key);
+            }
+
+            @Override
+            public synchronized String load(String key) {
+                checkAvailable();
+                return storage.get(key);
+            }
+
+            private void checkAvailable() {
+                if (!storageAvailable.get())
+                    throw new RuntimeException("Хранилище недоступно");
+            }
+        };
+        client = new WriteBehindKVTaskClient(
+                storageClient, new KVWriteBehindSettings(Duration.ofMinutes(1), 4, Duration.ofMinutes(1))
+        );
+    }
+
+    @AfterEach
+    void afterEach() {
+        storageAvailable.set(true);
+        client.close();
+    }
+
+    @Test
+    void shouldWriteOnlyLatestValueOfKey() {
+        for (int i = 0; i < 50; i++)
+            client.put("TASK_1", "[" + i + "]");
+        client.put("TASK_2", "[0]");
+        client.delete("TASK_2");
+
+        final String bufferedValue = client.load("TASK_1");
+        client.flush().join();
+
+        assertAll(
+                () -> assertEquals("[49]", bufferedValue, "Чтение видит значение из буфера"),
+                () -> assertEquals("[49]", storage.get("TASK_1"), "Записано последнее значение"),
+                () -> assertFalse(storage.containsKey("TASK_2"), "Удаление применено"),
+                () -> assertEquals(2, storageWrites.get(), "Одна запись на ключ"),
+                () -> assertEquals(50, client.getStats().getCoalescedWrites(), "Учтены объединенные записи"),
+                () -> assertEquals(0, client.getStats().getQueueDepth(), "Буфер пуст")
+        );
+    }
+
+    @Test
+    void shouldBufferWritesWhileStorageUnavailable() {
+        storageAvailable.set(false);
+        client.put("TASK_1", "[1]");
+        client.flush().join();
+        final KVWriteBehindStats statsDuringOutage = client.getStats();
+        final long queueDepthDuringOutage = statsDuringOutage.getQueueDepth();
+        final int failedFlushesDuringOutage = statsDuringOutage.getConsecutiveFailedFlushes();
+
+        storageAvailable.set(true);
+        client.flush().join();
+
+        assertAll(
+                () -> assertEquals(1, queueDepthDuringOutage, "Значение осталось в буфере"),
+                () -> assertEquals(1, failedFlushesDuringOutage, "Неудачный сброс учтен"),
+                () -> assertEquals("[1]", storage.get("TASK_1"), "Значение записано после восстановления"),
+                () -> assertEquals(0, client.getStats().getConsecutiveFailedFlushes(), "Счетчик неудач сброшен")
+        );
+    }
+
+    @Test
+    void shouldRejectNewKeysWhenBufferIsFull() {
+        client.close();
+        client = new WriteBehindKVTaskClient(
+                storageClient, new KVWriteBehindSettings(Duration.ofMinutes(1), 4, Duration.ofMinutes(1), 2)
+        );
+        storageAvailable.set(false);
+        client.put("TASK_1", "[1]");
+        client.put("TASK_2", "[2]");
+        client.flush().join();
+
+        assertThrows(IllegalStateException.class, () -> client.put("TASK_3", "[3]"));
+        final CompletableFuture<Void> rejectedWrite = client.putAsync("TASK_3", "[3]");
+        client.put("TASK_1", "[11]");
+        storageAvailable.set(true);
+        client.flush().join();
+        client.put("TASK_3", "[3]");
+        client.flush().join();
+
+        assertAll(
+                () -> assertTrue(rejectedWrite.isCompletedExceptionally(), "Асинхронная запись отклонена"),
+                () -> assertEquals(2, client.getStats().getRejectedWrites(), "Отклоненные записи учтены"),
+                () -> assertEquals("[11]", storage.get("TASK_1"), "Значение ключа из буфера заменено"),
+                () -> assertEquals("[3]", storage.get("TASK_3"), "Запись принята после сброса буфера")
+        );
+    }
+
+    @Test
+    void shouldWriteIndexKeysAfterValuesAndDeletesLast() {
+        client.close();
+        client = new WriteBehindKVTaskClient(
+                storageClient, new KVWriteBehindSettings(Duration.ofMinutes(1), 4, Duration.ofMinutes(1)),
+                Set.of("MANIFEST")
+        );
+        storage.put("TASK_0", "[0]");
+        unavailableKeys.add("TASK_2");
+        client.put("MANIFEST", "[\"TASK_1\",\"TASK_2\"]");
+        client.delete("TASK_0");
+        client.put("TASK_1", "[1]");
+        client.put("TASK_2", "[2]");
+        client.flush().join();
+        final boolean manifestWrittenBeforeRecords = storage.containsKey("MANIFEST");
+        final boolean deletedBeforeManifest = !storage.containsKey("TASK_0");
+
+        unavailableKeys.clear();
+        client.flush().join();
+
+        assertAll(
+                () -> assertFalse(manifestWrittenBeforeRecords, "Манифест не записан раньше задачи"),
+                () -> assertFalse(deletedBeforeManifest, "Ключ не удален раньше записи манифеста"),
+                () -> assertEquals(List.of("TASK_1", "TASK_2", "MANIFEST", "TASK_0"), writtenKeys,
+                        "Значения, затем манифест, затем удаления"),
+                () -> assertEquals(0, client.getStats().getQueueDepth(), "Буфер пуст")
+        );
+    }
+}
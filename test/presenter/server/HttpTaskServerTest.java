@@ -6,6 +6,7 @@ import domain.Epic;
 import domain.Subtask;
 import domain.Task;
 import managers.Managers;
+import managers.historymanager.analytics.TaskViewFrequency;
 import managers.taskmanager.TaskManager;
 import org.jeasy.random.EasyRandom;
 import org.junit.jupiter.api.*;
@@ -449,6 +450,31 @@ class HttpTaskServerTest {
         );
     }
 
+    @Test
+    void getHotTasks() throws IOException, InterruptedException {
+        Task task = initialTasks.get(getRandomNumberUsingNextInt(0, initialTasks.size()));
+        for (int i = 0; i < 100; i++)
+            taskManager.getTask(task.getId());
+
+        HttpRequest httpRequest = HttpRequest
+                .newBuilder(URI.create(BASE_URL + "/tasks/hot?limit=1"))
+                .GET()
+                .build();
+
+        HttpResponse<String> httpResponse = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString(CHARSET));
+
+        assertAll(
+                () -> assertEquals(200, httpResponse.statusCode()),
+                () -> {
+                    List<TaskViewFrequency> hotTasks = gson.fromJson(
+                            httpResponse.body(), new TypeToken<List<TaskViewFrequency>>() {
+                            }.getType()
+                    );
+                    assertEquals(task.getId(), hotTasks.get(0).getTaskId());
+                }
+        );
+    }
+
     @Test
     void getPrioritizedTasks() throws IOException, InterruptedException {
         HttpRequest httpRequest = HttpRequest
@@ -0,0 +1,130 @@
+package presenter.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import presenter.client.KVTaskClient;
+import presenter.client.KVTaskClientImpl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class KVServerTest {
+    private static final String URL = "http://localhost:" + KVServer.PORT;
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+    //клиенты и обработчики сервера делят ядра, идеальное ускорение - половина числа ядер
+    private static final double MIN_SPEEDUP_PER_CORE_PAIR = 0.5;
+    private KVServer kvServer;
+
+    @BeforeAll
+    static void beforeAll() {
+        //как и при запуске из Main, иначе задержка подтверждений TCP ограничивает каждый поток
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        kvServer = new KVServer();
+        kvServer.start();
+    }
+
+    @AfterEach
+    void afterEach() {
+        kvServer.stop();
+    }
+
+    @Test
+    void shouldKeepAllValuesWrittenConcurrently() throws InterruptedException {
+        final int threads = 8;
+        final int keysPerThread = 100;
+        runConcurrently(threads, thread -> {
+            KVTaskClient client = new KVTaskClientImpl(URL);
+            for (int i = 0; i < keysPerThread; i++) {
+                client.put("TASK_" + thread + "_" + i, "[" + i + "]");
+                client.put("HISTORY", "[" + thread + "]");
+            }
+        });
+
+        final KVTaskClient client = new KVTaskClientImpl(URL);
+        for (int thread = 0; thread < threads; thread++)
+            for (int i = 0; i < keysPerThread; i++)
+                assertEquals("[" + i + "]", client.load("TASK_" + thread + "_" + i), "Значение не потеряно");
+        assertNotNull(client.load("HISTORY"), "Общий ключ записан");
+    }
+
+    @Test
+    void shouldReuseConnectionForSequentialSavesAndDeletes() {
+        //ответ без тела не должен закрывать соединение, которое клиент использует повторно
+        final KVTaskClient client = new KVTaskClientImpl(URL);
+        for (int i = 0; i < 500; i++) {
+            client.put("TASK_" + i, "[" + i + "]");
+            client.delete("TASK_" + (i - 1));
+        }
+
+        assertAll(
+                () -> assertEquals("[499]", client.load("TASK_499"), "Последнее значение записано"),
+                () -> assertNull(client.load("TASK_498"), "Предыдущее значение удалено")
+        );
+    }
+
+    @Test
+    void shouldScaleThroughputWithThreads() throws InterruptedException {
+        //на одном ядре параллельные обработчики не дают прироста
+        assumeTrue(CORES >= 4, "Для проверки масштабирования нужно не меньше 4 ядер");
+        //прогрев: первые запросы платят за загрузку классов и установку соединений
+        measureThroughput(CORES);
+        final double singleThreadThroughput = measureThroughput(1);
+        final double multiThreadThroughput = measureThroughput(CORES);
+        final double speedupPerCorePair = multiThreadThroughput / singleThreadThroughput / (CORES / 2.0);
+
+        assertTrue(speedupPerCorePair >= MIN_SPEEDUP_PER_CORE_PAIR, String.format(
+                "Ускорение на пару ядер %.2f меньше %.2f: 1 поток - %.0f оп/с, %d потоков - %.0f оп/с",
+                speedupPerCorePair, MIN_SPEEDUP_PER_CORE_PAIR, singleThreadThroughput, CORES, multiThreadThroughput
+        ));
+    }
+
+    private static double measureThroughput(int threads) throws InterruptedException {
+        final int opsPerThread = 2_000;
+        final long start = System.nanoTime();
+        runConcurrently(threads, thread -> {
+            //у каждого потока свой клиент и свое соединение
+            KVTaskClient client = new KVTaskClientImpl(URL);
+            for (int i = 0; i < opsPerThread; i++) {
+                String key = "TASK_" + thread + "_" + i % 100;
+                if (i % 2 == 0)
+                    client.put(key, "[" + i + "]");
+                else
+                    client.load(key);
+            }
+        });
+        return threads * opsPerThread / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static void runConcurrently(int threads, IntConsumerTask task) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                int threadNumber = thread;
+                futures.add(executor.submit(() -> task.run(threadNumber)));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } catch (ExecutionException e) {
+            fail(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private interface IntConsumerTask {
+        void run(int thread);
+    }
+}